@@ -0,0 +1,28 @@
+/**
+ * Runs the driver benchmarks with the GC profiler, so allocation rates (gc.alloc.rate.norm, in bytes per operation) are reported next to the timings
+ * Usage : BenchmarkRunner [benchmark name regex]
+ *
+ * @author Alexandre Scieux
+ * @version 1.0
+ */
+
+package sensor;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+public class BenchmarkRunner
+{
+	public static void main(String[] args) throws RunnerException
+	{
+		Options options = new OptionsBuilder()
+			.include(args.length > 0 ? args[0] : "sensor\\..*Benchmark")
+			.addProfiler(GCProfiler.class)
+			.build();
+
+		new Runner(options).run();
+	}
+}
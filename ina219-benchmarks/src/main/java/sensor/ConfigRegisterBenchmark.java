@@ -0,0 +1,92 @@
+/**
+ * JMH benchmarks of the configuration getters and setters against a simulated INA219
+ *
+ * @author Alexandre Scieux
+ * @version 1.0
+ */
+
+package sensor;
+
+import java.io.IOException;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConfigRegisterBenchmark
+{
+	private Ina219 ina219;
+	private ConfigRegister configuration;
+	private boolean toggle;
+
+	private final Ina219Configuration bulkConfiguration = Ina219Configuration.builder()
+		.busVoltageRange(Ina219.BusVoltageRange.INA219_CONFIG_BVOLTAGERANGE_16V)
+		.gain(Ina219.Gain.INA219_CONFIG_GAIN_2_80MV)
+		.busADCResolution(Ina219.BusADCResolution.INA219_CONFIG_BADCRES_12BIT)
+		.shuntADCResolution(Ina219.ShuntADCResolution.INA219_CONFIG_SADCRES_12BIT_8S_4260US)
+		.operatingMode(Ina219.OperatingMode.INA219_CONFIG_MODE_SANDBVOLT_CONTINUOUS)
+		.calibration(4096)
+		.build();
+
+	@Setup
+	public void setup() throws IOException
+	{
+		ina219 = new Ina219(new SimulatedIna219(Ina219.Registers.INA219_I2C_ADDRESS.getValue()));
+		ina219.resyncRegisters();
+
+		configuration = ConfigRegister.DEFAULT;
+	}
+
+	@Benchmark
+	public ConfigRegister codecWithGain()
+	{
+		toggle = !toggle;
+		return configuration.withGain(toggle ? Ina219.Gain.INA219_CONFIG_GAIN_1_40MV : Ina219.Gain.INA219_CONFIG_GAIN_8_320MV);
+	}
+
+	@Benchmark
+	public Ina219.ShuntADCResolution codecGetShuntADCResolution()
+	{
+		return configuration.getShuntADCResolution();
+	}
+
+	@Benchmark
+	public int getGainSetting() throws IOException
+	{
+		return ina219.getGainSetting();
+	}
+
+	@Benchmark
+	public int getShuntADCResolutionSetting() throws IOException
+	{
+		return ina219.getShuntADCResolutionSetting();
+	}
+
+	@Benchmark
+	public void setGain() throws IOException
+	{
+		toggle = !toggle;
+		ina219.setGain(toggle ? Ina219.Gain.INA219_CONFIG_GAIN_1_40MV : Ina219.Gain.INA219_CONFIG_GAIN_8_320MV);
+	}
+
+	@Benchmark
+	public void configure() throws IOException
+	{
+		ina219.configure(bulkConfiguration);
+	}
+}
@@ -0,0 +1,70 @@
+/**
+ * JMH benchmark of several threads sampling the same INA219
+ * Each thread fills its own Sample, the register transfers are serialized by the driver
+ *
+ * @author Alexandre Scieux
+ * @version 1.0
+ */
+
+package sensor;
+
+import java.io.IOException;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContentionBenchmark
+{
+	@State(Scope.Benchmark)
+	public static class SharedDevice
+	{
+		Ina219 ina219;
+
+		@Setup
+		public void setup() throws IOException
+		{
+			SimulatedIna219 device = new SimulatedIna219(Ina219.Registers.INA219_I2C_ADDRESS.getValue());
+			device.setLoad(0.5, 0.1);
+			device.setBusVoltage(12);
+
+			ina219 = new Ina219(device);
+			ina219.configure(Ina219Configuration.builder().calibration(4096).build());
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class ThreadSample
+	{
+		final Sample sample = new Sample();
+	}
+
+	@Benchmark
+	@Threads(1)
+	public Sample readInto1Thread(SharedDevice device, ThreadSample sample) throws IOException
+	{
+		return device.ina219.readInto(sample.sample);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public Sample readInto4Threads(SharedDevice device, ThreadSample sample) throws IOException
+	{
+		return device.ina219.readInto(sample.sample);
+	}
+}
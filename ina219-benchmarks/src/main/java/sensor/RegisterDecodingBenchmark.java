@@ -0,0 +1,125 @@
+/**
+ * JMH benchmarks of the measurement register decoders
+ * Compares the bitwise RegisterDecoder with the String-based twosComplement it replaces, and measures the precomputed
+ * Ina219Scaling in floating point and in fixed point
+ *
+ * @author Alexandre Scieux
+ * @version 1.0
+ */
+
+package sensor;
+
+import java.io.IOException;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegisterDecodingBenchmark
+{
+	private static final int values_mask = 1023;
+
+	private final int[] registers = new int[values_mask + 1];
+	private int index;
+
+	private Ina219 ina219;
+	private Ina219Scaling scaling;
+
+	@Setup
+	public void setup() throws IOException
+	{
+		Random random = new Random(42);
+
+		for (int i = 0; i < registers.length; i++)
+		{
+			registers[i] = random.nextInt(0x10000);
+		}
+
+		ina219 = new Ina219(new SimulatedIna219(Ina219.Registers.INA219_I2C_ADDRESS.getValue()));
+		scaling = Ina219Scaling.of(ConfigRegister.DEFAULT, Ina219Calibration.compute(0.1, 2.0).getCalibration(), 0.1);
+	}
+
+	private int next()
+	{
+		return registers[index++ & values_mask];
+	}
+
+	@Benchmark
+	public double shuntVoltage()
+	{
+		return RegisterDecoder.shuntVoltage(next(), Ina219.Gain.INA219_CONFIG_GAIN_8_320MV);
+	}
+
+	@Benchmark
+	public double busVoltage()
+	{
+		return RegisterDecoder.busVoltage(next());
+	}
+
+	@Benchmark
+	public boolean busVoltageFlags()
+	{
+		int register = next();
+
+		return RegisterDecoder.isConversionReady(register) & RegisterDecoder.isOverflow(register);
+	}
+
+	@Benchmark
+	public int currentCounts()
+	{
+		return RegisterDecoder.currentCounts(next());
+	}
+
+	@Benchmark
+	public int powerCounts()
+	{
+		return RegisterDecoder.powerCounts(next());
+	}
+
+	@Benchmark
+	public double current()
+	{
+		return scaling.current(next());
+	}
+
+	@Benchmark
+	public long currentMicros()
+	{
+		return scaling.currentMicros(next());
+	}
+
+	@Benchmark
+	public long powerMicros()
+	{
+		return scaling.powerMicros(next());
+	}
+
+	@Benchmark
+	public int magnitudeBitwise()
+	{
+		return RegisterDecoder.magnitude(next());
+	}
+
+	@Benchmark
+	@SuppressWarnings("deprecation")
+	public int twosComplementString()
+	{
+		return ina219.twosComplement(next());
+	}
+}
@@ -0,0 +1,81 @@
+/**
+ * JMH benchmarks of a recorded capture replayed through the driver as fast as possible
+ * The recording (one million samples at 1 kHz) is written to a temporary file and mapped, then looped by a ReplayIna219 :
+ * the numbers are the cost of one replayed sample, mapped record access included
+ *
+ * @author Alexandre Scieux
+ * @version 1.0
+ */
+
+package sensor;
+
+import java.io.IOException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReplayBenchmark
+{
+	private static final int SAMPLES = 1_000_000;
+
+	private Path file;
+	private SampleRecording recording;
+	private Ina219 ina219;
+	private final Sample sample = new Sample();
+
+	@Setup
+	public void setup() throws IOException
+	{
+		file = Files.createTempFile("ina219-replay", ".bin");
+
+		try (SampleRecordingWriter writer = SampleRecordingWriter.create(file, 0x40, ConfigRegister.DEFAULT, 4096))
+		{
+			for (int i = 0; i < SAMPLES; i++)
+			{
+				writer.append(i * 1_000_000L, i & 0x7FF, ((i % 4000) << 3) | RegisterDecoder.BUS_VOLTAGE_CNVR, i & 0x7FFF, i & 0xFFFF);
+			}
+		}
+
+		recording = SampleRecording.open(file);
+		ina219 = new Ina219(new ReplayIna219(recording, ReplayIna219.AS_FAST_AS_POSSIBLE, true));
+	}
+
+	@TearDown
+	public void tearDown() throws IOException
+	{
+		recording.close();
+		Files.deleteIfExists(file);
+	}
+
+	@Benchmark
+	public Sample readInto() throws IOException
+	{
+		return ina219.readInto(sample);
+	}
+
+	@Benchmark
+	public boolean readIntoIfReady() throws IOException
+	{
+		return ina219.readIntoIfReady(sample);
+	}
+}
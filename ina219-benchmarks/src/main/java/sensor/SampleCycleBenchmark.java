@@ -0,0 +1,72 @@
+/**
+ * JMH benchmarks of a full four-register sample cycle against a simulated INA219
+ * The simulated bus has no transfer latency : the numbers are the driver's own CPU and allocation cost
+ *
+ * @author Alexandre Scieux
+ * @version 1.0
+ */
+
+package sensor;
+
+import java.io.IOException;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SampleCycleBenchmark
+{
+	private Ina219 ina219;
+	private Ina219 ina219Pi4j;
+	private final Sample sample = new Sample();
+
+	@Setup
+	public void setup() throws IOException
+	{
+		SimulatedIna219 device = new SimulatedIna219(Ina219.Registers.INA219_I2C_ADDRESS.getValue());
+		device.setLoad(0.5, 0.1);
+		device.setBusVoltage(12);
+
+		ina219 = new Ina219(device);
+		ina219.configure(Ina219Configuration.builder().calibration(4096).build());
+
+		// Same device through the Pi4J I2CDevice interface and its byte buffers
+		ina219Pi4j = new Ina219(new Pi4jTransport(device, device.getAddress()));
+	}
+
+	@Benchmark
+	public Sample readInto() throws IOException
+	{
+		return ina219.readInto(sample);
+	}
+
+	@Benchmark
+	public Sample readIntoPi4jTransport() throws IOException
+	{
+		return ina219Pi4j.readInto(sample);
+	}
+
+	@Benchmark
+	public int registerGetters() throws IOException
+	{
+		return ina219.getShuntVoltageRegister()
+			+ ina219.getBusVoltageRegister()
+			+ ina219.getCurrentRegister()
+			+ ina219.getPowerRegister();
+	}
+}
@@ -0,0 +1,181 @@
+/**
+ * JMH benchmark of a fleet of background samplers, one per simulated INA219, on platform threads versus virtual threads
+ * The devices are spread over two buses, each serialized by a fair I2CBusLock, with 400 kHz transfer latencies
+ * and the fastest ADC settings (84 us + 84 us per conversion cycle).
+ * Reports the aggregate sample rate (samples, per second) and the resident memory taken by the started samplers (footprintKB).
+ * The virtual variant needs a Java 21+ JVM. On a single-CPU host, give the virtual thread scheduler two carriers
+ * (-Djdk.virtualThreadScheduler.parallelism=2) : with one, the simulated bus transfers spin while pinned and starve the other samplers.
+ *
+ * @author Alexandre Scieux
+ * @version 1.0
+ */
+
+package sensor;
+
+import java.io.IOException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SamplerFleetBenchmark
+{
+	private static final int BUSES = 2;
+
+	@State(Scope.Benchmark)
+	public static class Fleet
+	{
+		@Param({"platform", "virtual"})
+		String threads;
+
+		@Param({"16", "64"})
+		int devices;
+
+		Ina219Sampler[] samplers;
+		long footprintKB;
+
+		@Setup(Level.Trial)
+		public void setup() throws IOException, InterruptedException
+		{
+			ThreadFactory factory = "virtual".equals(threads) ? SamplerThreads.virtual("ina219-sampler-") : SamplerThreads.platform("ina219-sampler-");
+
+			I2CBusLock[] buses = new I2CBusLock[BUSES];
+
+			for (int bus = 0; bus < BUSES; bus++)
+			{
+				buses[bus] = new I2CBusLock();
+			}
+
+			samplers = new Ina219Sampler[devices];
+
+			for (int i = 0; i < devices; i++)
+			{
+				SimulatedIna219 device = new SimulatedIna219(0x40 + i % 16);
+				device.setClockFrequency(SimulatedIna219.FAST_MODE_HZ);
+				device.setLoad(0.5, 0.1);
+				device.setBusVoltage(12);
+
+				Ina219 ina219 = new Ina219(buses[i % BUSES].transport(device));
+				ina219.configure(Ina219Configuration.builder()
+					.busADCResolution(Ina219.BusADCResolution.INA219_CONFIG_BADCRES_9BIT)
+					.shuntADCResolution(Ina219.ShuntADCResolution.INA219_CONFIG_SADCRES_9BIT_1S_84US)
+					.calibration(4096)
+					.build());
+
+				samplers[i] = new Ina219Sampler(ina219, new SampleRingBuffer(64));
+				samplers[i].setThreadFactory(factory);
+			}
+
+			long before = residentKB();
+
+			for (Ina219Sampler sampler : samplers)
+			{
+				sampler.start();
+			}
+
+			// Lets every sampling loop reach its steady state before measuring
+			Thread.sleep(200);
+			System.gc();
+
+			footprintKB = residentKB() - before;
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown()
+		{
+			for (Ina219Sampler sampler : samplers)
+			{
+				sampler.stop();
+			}
+		}
+
+		long totalSamples()
+		{
+			long total = 0;
+
+			for (Ina219Sampler sampler : samplers)
+			{
+				total += sampler.getSampleCount();
+			}
+
+			return total;
+		}
+
+		/**
+		 * Resident set size of the JVM (Linux), 0 elsewhere
+		 */
+		private static long residentKB() throws IOException
+		{
+			Path status = Paths.get("/proc/self/status");
+
+			if (!Files.exists(status))
+			{
+				return 0;
+			}
+
+			for (String line : Files.readAllLines(status))
+			{
+				if (line.startsWith("VmRSS:"))
+				{
+					return Long.parseLong(line.replaceAll("[^0-9]", ""));
+				}
+			}
+
+			return 0;
+		}
+	}
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Samples
+	{
+		public long samples;
+
+		@Setup(Level.Iteration)
+		public void reset()
+		{
+			samples = 0;
+		}
+	}
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Footprint
+	{
+		public long footprintKB;
+	}
+
+	@Benchmark
+	public void fleet(Fleet fleet, Samples samples, Footprint footprint) throws InterruptedException
+	{
+		long before = fleet.totalSamples();
+
+		// The samplers run on their own threads : the benchmark thread only observes them
+		Thread.sleep(10);
+
+		samples.samples += fleet.totalSamples() - before;
+		footprint.footprintKB = fleet.footprintKB;
+	}
+}
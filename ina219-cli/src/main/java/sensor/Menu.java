@@ -18,7 +18,8 @@ public class Menu
 
 	public Menu() throws IOException
 	{
-		 Menu.ina219 = new Ina219();
+		// The driver is silent by default : the menu shows everything, readings included
+		 Menu.ina219 = new Ina219(new ConsoleDiagnosticSink(DiagnosticSink.Level.DEBUG));
 	}
 
 	/**
@@ -640,4 +641,21 @@ public class Menu
 			}
 		}
 	}
-}
\ No newline at end of file
+
+	public static void main (String[] args) throws IOException
+	{
+		new Menu();
+
+		// ina219.reset();
+		ina219.calibrate_default();					// Calibrating the INA219 to default values
+		
+		ina219.show_all_registers();				// Showing all registers on startup
+
+		ina219.read_shunt_voltage();				// Reading shunt voltage
+		ina219.read_bus_voltage();					// Reading bus boltage
+		ina219.read_current();						// Reading current flowing through
+		ina219.read_power();						// Reading power flowing through
+
+		showRootMenu();								// Showing menu
+	}
+}
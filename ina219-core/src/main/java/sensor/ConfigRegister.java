@@ -0,0 +1,314 @@
+/**
+ * Immutable view of the INA219 configuration register
+ * Structure :  RST - BRNG PG1 PG0 BADC4 BADC3 BADC2 BADC1 SADC4 SADC3 SADC2 SADC1 MODE3 MODE2 MODE1
+ * Fields are read and replaced with the masks of the Ina219 configuration enums, no String conversion involved
+ *
+ * @author Alexandre Scieux
+ * @version 1.0
+ */
+
+package sensor;
+
+public final class ConfigRegister
+{
+	/* Masks */
+	private static final int reset_mask                 = Ina219.Registers.INA219_CONFIG_RESET.getValue();
+	private static final int bvoltagerange_mask         = Ina219.BusVoltageRange.INA219_CONFIG_BVOLTAGERANGE_MASK.getValue();
+	private static final int gain_mask                  = Ina219.Gain.INA219_CONFIG_GAIN_MASK.getValue();
+	private static final int badcres_mask               = Ina219.BusADCResolution.INA219_CONFIG_BADCRES_MASK.getValue();
+	private static final int sadcres_mask               = Ina219.ShuntADCResolution.INA219_CONFIG_SADCRES_MASK.getValue();
+	private static final int mode_mask                  = Ina219.OperatingMode.INA219_CONFIG_MODE_MASK.getValue();
+
+	/* Field value --> setting lookup tables, indexed by (register & mask) >>> shift */
+	private static final Ina219.BusVoltageRange[] busVoltageRanges       = new Ina219.BusVoltageRange[fieldSize(bvoltagerange_mask)];
+	private static final Ina219.Gain[] gains                             = new Ina219.Gain[fieldSize(gain_mask)];
+	private static final Ina219.BusADCResolution[] busADCResolutions     = new Ina219.BusADCResolution[fieldSize(badcres_mask)];
+	private static final Ina219.ShuntADCResolution[] shuntADCResolutions = new Ina219.ShuntADCResolution[fieldSize(sadcres_mask)];
+	private static final Ina219.OperatingMode[] operatingModes           = new Ina219.OperatingMode[fieldSize(mode_mask)];
+
+	static
+	{
+		// The first constant of each enum is its mask and is skipped
+		for (Ina219.BusVoltageRange busVoltageRange : Ina219.BusVoltageRange.values())
+		{
+			if (busVoltageRange != Ina219.BusVoltageRange.INA219_CONFIG_BVOLTAGERANGE_MASK)
+			{
+				busVoltageRanges[field(busVoltageRange.getValue(), bvoltagerange_mask)] = busVoltageRange;
+			}
+		}
+
+		for (Ina219.Gain gain : Ina219.Gain.values())
+		{
+			if (gain != Ina219.Gain.INA219_CONFIG_GAIN_MASK)
+			{
+				gains[field(gain.getValue(), gain_mask)] = gain;
+			}
+		}
+
+		for (Ina219.BusADCResolution busADCResolution : Ina219.BusADCResolution.values())
+		{
+			if (busADCResolution != Ina219.BusADCResolution.INA219_CONFIG_BADCRES_MASK)
+			{
+				busADCResolutions[field(busADCResolution.getValue(), badcres_mask)] = busADCResolution;
+			}
+		}
+
+		for (Ina219.ShuntADCResolution shuntADCResolution : Ina219.ShuntADCResolution.values())
+		{
+			if (shuntADCResolution != Ina219.ShuntADCResolution.INA219_CONFIG_SADCRES_MASK)
+			{
+				shuntADCResolutions[field(shuntADCResolution.getValue(), sadcres_mask)] = shuntADCResolution;
+			}
+		}
+
+		for (Ina219.OperatingMode operatingMode : Ina219.OperatingMode.values())
+		{
+			if (operatingMode != Ina219.OperatingMode.INA219_CONFIG_MODE_MASK)
+			{
+				operatingModes[field(operatingMode.getValue(), mode_mask)] = operatingMode;
+			}
+		}
+
+		// Single sample modes are encoded 0X00..0X11 (X = don't care) and 1000 is an alternate 12-bit encoding (datasheet, table 5)
+		for (int i = 0; i < 4; i++)
+		{
+			busADCResolutions[i | 0x4]   = busADCResolutions[i];
+			shuntADCResolutions[i | 0x4] = shuntADCResolutions[i];
+		}
+
+		busADCResolutions[0x8]   = Ina219.BusADCResolution.INA219_CONFIG_BADCRES_12BIT;
+		shuntADCResolutions[0x8] = Ina219.ShuntADCResolution.INA219_CONFIG_SADCRES_12BIT_1S_532US;
+	}
+
+	/* Power-on configuration (0x399F) */
+	public static final ConfigRegister DEFAULT = new ConfigRegister(Ina219.Registers.INA219_CONFIG_DEFAULT.getValue());
+
+	private final int value;
+
+	private ConfigRegister(int value)
+	{
+		this.value = value & 0xFFFF;
+	}
+
+	/**
+	 * @param  value Raw configuration register content
+	 * @return       The matching configuration
+	 */
+	public static ConfigRegister of(int value)
+	{
+		return new ConfigRegister(value);
+	}
+
+	/**
+	 * @return Raw configuration register content (0..65535)
+	 */
+	public int getValue()
+	{
+		return value;
+	}
+
+	/**
+	 * @return True if the RST bit is set
+	 */
+	public boolean isReset()
+	{
+		return (value & reset_mask) != 0;
+	}
+
+	/**
+	 * @return Bus Voltage Range (BRNG)
+	 */
+	public Ina219.BusVoltageRange getBusVoltageRange()
+	{
+		return busVoltageRanges[field(value, bvoltagerange_mask)];
+	}
+
+	/**
+	 * @return Gain (PG1, PG0)
+	 */
+	public Ina219.Gain getGain()
+	{
+		return gains[field(value, gain_mask)];
+	}
+
+	/**
+	 * @return PG1..PG0 bits (0 = PGA 1 ... 3 = PGA 1/8)
+	 */
+	public int getGainBits()
+	{
+		return field(value, gain_mask);
+	}
+
+	/**
+	 * @return Bus ADC Resolution (BADC4..BADC1), null if the averaging mode has no matching setting
+	 */
+	public Ina219.BusADCResolution getBusADCResolution()
+	{
+		return busADCResolutions[field(value, badcres_mask)];
+	}
+
+	/**
+	 * @return Shunt ADC Resolution (SADC4..SADC1)
+	 */
+	public Ina219.ShuntADCResolution getShuntADCResolution()
+	{
+		return shuntADCResolutions[field(value, sadcres_mask)];
+	}
+
+	/**
+	 * @return Operating Mode (MODE3..MODE1)
+	 */
+	public Ina219.OperatingMode getOperatingMode()
+	{
+		return operatingModes[field(value, mode_mask)];
+	}
+
+	/**
+	 * @return Bus ADC conversion time in us, averaging modes included
+	 */
+	public int getBusConversionTimeMicros()
+	{
+		// BADC and SADC share the same encoding
+		return shuntADCResolutions[field(value, badcres_mask)].getConversionTimeMicros();
+	}
+
+	/**
+	 * @return Shunt ADC conversion time in us
+	 */
+	public int getShuntConversionTimeMicros()
+	{
+		return shuntADCResolutions[field(value, sadcres_mask)].getConversionTimeMicros();
+	}
+
+	/**
+	 * Time taken by one conversion cycle in the current operating mode
+	 * MODE1 enables the shunt voltage conversion, MODE2 the bus voltage conversion, ADC OFF and Powerdown convert nothing
+	 * @return Conversion cycle time in us, 0 if the ADC is off
+	 */
+	public int getConversionTimeMicros()
+	{
+		int mode = field(value, mode_mask);
+		int conversionTime = 0;
+
+		if ((mode & 0x1) != 0)
+		{
+			conversionTime += getShuntConversionTimeMicros();
+		}
+
+		if ((mode & 0x2) != 0)
+		{
+			conversionTime += getBusConversionTimeMicros();
+		}
+
+		return conversionTime;
+	}
+
+	/**
+	 * @return True if the operating mode converts continuously
+	 */
+	public boolean isContinuous()
+	{
+		int mode = field(value, mode_mask);
+
+		return (mode & 0x4) != 0 && (mode & 0x3) != 0;
+	}
+
+	/**
+	 * @return True if the operating mode is one of the triggered (single-shot) modes
+	 */
+	public boolean isTriggered()
+	{
+		int mode = field(value, mode_mask);
+
+		return (mode & 0x4) == 0 && (mode & 0x3) != 0;
+	}
+
+	/**
+	 * @param  reset True to set the RST bit
+	 * @return       A copy of this configuration with the RST bit set or cleared
+	 */
+	public ConfigRegister withReset(boolean reset)
+	{
+		return with(reset_mask, reset ? reset_mask : 0);
+	}
+
+	/**
+	 * @param  busVoltageRange Bus Voltage Range
+	 * @return                 A copy of this configuration with the BRNG bit replaced
+	 */
+	public ConfigRegister withBusVoltageRange(Ina219.BusVoltageRange busVoltageRange)
+	{
+		return with(bvoltagerange_mask, busVoltageRange.getValue());
+	}
+
+	/**
+	 * @param  gain Gain
+	 * @return      A copy of this configuration with the PG1, PG0 bits replaced
+	 */
+	public ConfigRegister withGain(Ina219.Gain gain)
+	{
+		return with(gain_mask, gain.getValue());
+	}
+
+	/**
+	 * @param  busADCResolution Bus ADC Resolution
+	 * @return                  A copy of this configuration with the BADC4..BADC1 bits replaced
+	 */
+	public ConfigRegister withBusADCResolution(Ina219.BusADCResolution busADCResolution)
+	{
+		return with(badcres_mask, busADCResolution.getValue());
+	}
+
+	/**
+	 * @param  shuntADCResolution Shunt ADC Resolution
+	 * @return                    A copy of this configuration with the SADC4..SADC1 bits replaced
+	 */
+	public ConfigRegister withShuntADCResolution(Ina219.ShuntADCResolution shuntADCResolution)
+	{
+		return with(sadcres_mask, shuntADCResolution.getValue());
+	}
+
+	/**
+	 * @param  operatingMode Operating Mode
+	 * @return               A copy of this configuration with the MODE3..MODE1 bits replaced
+	 */
+	public ConfigRegister withOperatingMode(Ina219.OperatingMode operatingMode)
+	{
+		return with(mode_mask, operatingMode.getValue());
+	}
+
+	@Override
+	public boolean equals(Object other)
+	{
+		return other instanceof ConfigRegister && ((ConfigRegister) other).value == value;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return value;
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("ConfigRegister[0x%04X]", value);
+	}
+
+	private ConfigRegister with(int mask, int bits)
+	{
+		int newValue = (value & ~mask) | (bits & mask);
+
+		return newValue == value ? this : new ConfigRegister(newValue);
+	}
+
+	private static int field(int register, int mask)
+	{
+		return (register & mask) >>> Integer.numberOfTrailingZeros(mask);
+	}
+
+	private static int fieldSize(int mask)
+	{
+		return field(mask, mask) + 1;
+	}
+}
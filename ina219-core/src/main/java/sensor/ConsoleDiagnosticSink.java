@@ -0,0 +1,65 @@
+/**
+ * DiagnosticSink writing to the console : DEBUG and INFO to System.out, WARN and ERROR to System.err
+ * Used by the console menu. Exceptions are printed as "Exception : message", as the driver always did.
+ *
+ * @author Alexandre Scieux
+ * @version 1.0
+ */
+
+package sensor;
+
+import java.io.PrintStream;
+
+public class ConsoleDiagnosticSink implements DiagnosticSink
+{
+	private final Level threshold;
+	private final PrintStream out;
+	private final PrintStream err;
+
+	/**
+	 * Writes INFO and above
+	 */
+	public ConsoleDiagnosticSink()
+	{
+		this(Level.INFO);
+	}
+
+	/**
+	 * @param threshold Least severe level written
+	 */
+	public ConsoleDiagnosticSink(Level threshold)
+	{
+		this(threshold, System.out, System.err);
+	}
+
+	/**
+	 * @param threshold Least severe level written
+	 * @param out       Destination of DEBUG and INFO messages
+	 * @param err       Destination of WARN and ERROR messages
+	 */
+	public ConsoleDiagnosticSink(Level threshold, PrintStream out, PrintStream err)
+	{
+		this.threshold = threshold;
+		this.out       = out;
+		this.err       = err;
+	}
+
+	@Override
+	public boolean isEnabled(Level level)
+	{
+		return level.compareTo(threshold) >= 0;
+	}
+
+	@Override
+	public void log(Level level, String message, Throwable cause)
+	{
+		PrintStream stream = level.compareTo(Level.WARN) >= 0 ? err : out;
+
+		stream.println(message);
+
+		if (cause != null)
+		{
+			stream.println("Exception : " + cause.getMessage());
+		}
+	}
+}
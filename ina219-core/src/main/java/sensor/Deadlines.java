@@ -0,0 +1,41 @@
+/**
+ * Waits until a System.nanoTime() deadline : LockSupport.parkNanos for the bulk of the wait, then a short spin tail,
+ * parkNanos alone overshooting by tens of microseconds
+ *
+ * @author Alexandre Scieux
+ * @version 1.0
+ */
+
+package sensor;
+
+import java.util.concurrent.locks.LockSupport;
+
+final class Deadlines
+{
+	/* Part of the wait spent spinning, covering the parkNanos wake-up latency */
+	static final long SPIN_TAIL_NANOS = 100_000;
+
+	private Deadlines()
+	{
+	}
+
+	/**
+	 * Waits until the deadline
+	 * @param deadline System.nanoTime() value to wait for
+	 */
+	static void awaitNanoTime(long deadline)
+	{
+		long remaining;
+
+		// parkNanos may return early (unpark, spurious wake-up)
+		while ((remaining = deadline - System.nanoTime()) > SPIN_TAIL_NANOS)
+		{
+			LockSupport.parkNanos(remaining - SPIN_TAIL_NANOS);
+		}
+
+		while (deadline - System.nanoTime() > 0)
+		{
+			Thread.onSpinWait();
+		}
+	}
+}
@@ -0,0 +1,65 @@
+/**
+ * Destination of the driver diagnostics (progress messages, register dumps, readings and errors)
+ * The driver is silent by default (NONE). Every message is guarded by isEnabled(), so a disabled level
+ * costs a single inlined check : no string is built and nothing is written.
+ *
+ * @author Alexandre Scieux
+ * @version 1.0
+ */
+
+package sensor;
+
+public interface DiagnosticSink
+{
+	/**
+	 * Diagnostic levels, from the most verbose to the most severe
+	 */
+	enum Level
+	{
+		DEBUG,
+		INFO,
+		WARN,
+		ERROR
+	}
+
+	/**
+	 * Discards everything
+	 */
+	DiagnosticSink NONE = new DiagnosticSink()
+	{
+		@Override
+		public boolean isEnabled(Level level)
+		{
+			return false;
+		}
+
+		@Override
+		public void log(Level level, String message, Throwable cause)
+		{
+		}
+	};
+
+	/**
+	 * @param  level Level of the message about to be logged
+	 * @return       True if messages of this level are written somewhere
+	 */
+	boolean isEnabled(Level level);
+
+	/**
+	 * Writes a message. Callers check isEnabled() first.
+	 * @param level   Message level
+	 * @param message Message
+	 * @param cause   Exception at the origin of the message, null if none
+	 */
+	void log(Level level, String message, Throwable cause);
+
+	/**
+	 * Writes a message. Callers check isEnabled() first.
+	 * @param level   Message level
+	 * @param message Message
+	 */
+	default void log(Level level, String message)
+	{
+		log(level, message, null);
+	}
+}
@@ -0,0 +1,416 @@
+/**
+ * Energy (J, Wh) and charge (C, Ah) integrated from the samples, on the sampling thread (Ina219Sampler.addListener)
+ * Each interval between two samples adds the trapezoid (p0 + p1) / 2 x dt, dt being the exact difference of the System.nanoTime
+ * timestamps. Intervals longer than the maximum gap (sampler stopped, bus errors) are not integrated and counted instead.
+ * The totals are Neumaier (compensated) sums : at 1 kHz, weeks of increments a billion times smaller than the total
+ * keep full double precision, where a plain sum would drift.
+ * Any thread reads the totals without locks (version counter, retried on a concurrent update). Named counters measure the energy
+ * from their last reset(), for instance per job : a counter is a baseline subtracted from the totals, so resetting it costs nothing
+ * to the sampling thread.
+ *
+ * @author Alexandre Scieux
+ * @version 1.0
+ */
+
+package sensor;
+
+import java.lang.invoke.VarHandle;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+public final class EnergyAccumulator implements SampleListener
+{
+	/* Default longest interval integrated */
+	public static final long DEFAULT_MAX_GAP_NANOS = 1_000_000_000L;
+
+	private static final double NANOS_PER_SECOND  = 1e9;
+	private static final double SECONDS_PER_HOUR  = 3600;
+
+	private final long maxGapNanos;
+	private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+
+	/* Sampling thread only */
+	private boolean started;
+	private long lastTimestamp;
+	private double lastPower;
+	private double lastCurrent;
+
+	/* Totals, written by the sampling thread, guarded by version */
+	private final AtomicLong version = new AtomicLong();
+	private double energy;
+	private double energyCompensation;
+	private double charge;
+	private double chargeCompensation;
+	private long integratedNanos;
+	private long sampleCount;
+	private long gapCount;
+
+	/**
+	 * Totals at a given instant : baseline of a counter
+	 */
+	private static final class Totals
+	{
+		final double energy;
+		final double energyCompensation;
+		final double charge;
+		final double chargeCompensation;
+		final long integratedNanos;
+
+		Totals(double energy, double energyCompensation, double charge, double chargeCompensation, long integratedNanos)
+		{
+			this.energy             = energy;
+			this.energyCompensation = energyCompensation;
+			this.charge             = charge;
+			this.chargeCompensation = chargeCompensation;
+			this.integratedNanos    = integratedNanos;
+		}
+	}
+
+	/**
+	 * Energy and charge accumulated since the last reset of the counter
+	 */
+	public final class Counter
+	{
+		private final String name;
+		private volatile Totals baseline;
+
+		private Counter(String name)
+		{
+			this.name     = name;
+			this.baseline = totals();
+		}
+
+		/**
+		 * @return Name of the counter
+		 */
+		public String getName()
+		{
+			return name;
+		}
+
+		/**
+		 * Restarts the counter from 0, from any thread
+		 */
+		public void reset()
+		{
+			baseline = totals();
+		}
+
+		/**
+		 * @return Energy since the last reset, in J
+		 */
+		public double getJoules()
+		{
+			Totals start = baseline;
+			Totals now = totals();
+
+			return (now.energy - start.energy) + (now.energyCompensation - start.energyCompensation);
+		}
+
+		/**
+		 * @return Energy since the last reset, in Wh
+		 */
+		public double getWattHours()
+		{
+			return getJoules() / SECONDS_PER_HOUR;
+		}
+
+		/**
+		 * @return Charge since the last reset, in C (negative when the current flows backwards)
+		 */
+		public double getCoulombs()
+		{
+			Totals start = baseline;
+			Totals now = totals();
+
+			return (now.charge - start.charge) + (now.chargeCompensation - start.chargeCompensation);
+		}
+
+		/**
+		 * @return Charge since the last reset, in Ah
+		 */
+		public double getAmpHours()
+		{
+			return getCoulombs() / SECONDS_PER_HOUR;
+		}
+
+		/**
+		 * @return Time integrated since the last reset, in ns (gaps excluded)
+		 */
+		public long getIntegratedNanos()
+		{
+			return totals().integratedNanos - baseline.integratedNanos;
+		}
+
+		/**
+		 * @return Mean power since the last reset, in W (0 if nothing was integrated)
+		 */
+		public double getAveragePower()
+		{
+			long nanos = getIntegratedNanos();
+
+			return nanos > 0 ? getJoules() / (nanos / NANOS_PER_SECOND) : 0;
+		}
+	}
+
+	/**
+	 * Accumulator integrating intervals up to DEFAULT_MAX_GAP_NANOS
+	 */
+	public EnergyAccumulator()
+	{
+		this(DEFAULT_MAX_GAP_NANOS);
+	}
+
+	/**
+	 * @param maxGapNanos Longest interval between two samples that is integrated
+	 */
+	public EnergyAccumulator(long maxGapNanos)
+	{
+		if (maxGapNanos <= 0)
+		{
+			throw new IllegalArgumentException("Maximum gap out of range : " + maxGapNanos);
+		}
+
+		this.maxGapNanos = maxGapNanos;
+	}
+
+	/**
+	 * Integrates the interval ending with this sample. Sampling thread only.
+	 * @param sample A decoded sample
+	 */
+	@Override
+	public void onSample(Sample sample)
+	{
+		long timestamp = sample.timestampNanos;
+		double power   = sample.power;
+		double current = sample.current;
+
+		long v = version.get();
+
+		version.lazySet(v + 1);
+		VarHandle.storeStoreFence();
+
+		sampleCount++;
+
+		if (started)
+		{
+			long dt = timestamp - lastTimestamp;
+
+			if (dt > 0 && dt <= maxGapNanos)
+			{
+				double seconds = dt / NANOS_PER_SECOND;
+
+				addEnergy((lastPower + power) * 0.5 * seconds);
+				addCharge((lastCurrent + current) * 0.5 * seconds);
+				integratedNanos += dt;
+			}
+			else
+			{
+				gapCount++;
+			}
+		}
+
+		started       = true;
+		lastTimestamp = timestamp;
+		lastPower     = power;
+		lastCurrent   = current;
+
+		// Release : the totals are visible to any reader that sees the even version
+		version.lazySet(v + 2);
+	}
+
+	/**
+	 * Returns the counter of the given name, created from 0 if it does not exist
+	 * @param  name Name of the counter
+	 * @return      The counter
+	 */
+	public Counter counter(String name)
+	{
+		return counters.computeIfAbsent(name, Counter::new);
+	}
+
+	/**
+	 * @param name Name of the counter to remove
+	 */
+	public void removeCounter(String name)
+	{
+		counters.remove(name);
+	}
+
+	/**
+	 * @return Names of the existing counters
+	 */
+	public Set<String> getCounterNames()
+	{
+		return counters.keySet();
+	}
+
+	/**
+	 * @return Energy since the creation of the accumulator, in J
+	 */
+	public double getJoules()
+	{
+		Totals now = totals();
+
+		return now.energy + now.energyCompensation;
+	}
+
+	/**
+	 * @return Energy since the creation of the accumulator, in Wh
+	 */
+	public double getWattHours()
+	{
+		return getJoules() / SECONDS_PER_HOUR;
+	}
+
+	/**
+	 * @return Charge since the creation of the accumulator, in C
+	 */
+	public double getCoulombs()
+	{
+		Totals now = totals();
+
+		return now.charge + now.chargeCompensation;
+	}
+
+	/**
+	 * @return Charge since the creation of the accumulator, in Ah
+	 */
+	public double getAmpHours()
+	{
+		return getCoulombs() / SECONDS_PER_HOUR;
+	}
+
+	/**
+	 * @return Time integrated, in ns (gaps excluded)
+	 */
+	public long getIntegratedNanos()
+	{
+		return totals().integratedNanos;
+	}
+
+	/**
+	 * @return Number of samples received
+	 */
+	public long getSampleCount()
+	{
+		long v;
+		long count;
+
+		do
+		{
+			v = awaitStable();
+			count = sampleCount;
+			VarHandle.loadLoadFence();
+		}
+		while (version.get() != v);
+
+		return count;
+	}
+
+	/**
+	 * @return Number of intervals longer than the maximum gap (or going back in time), not integrated
+	 */
+	public long getGapCount()
+	{
+		long v;
+		long count;
+
+		do
+		{
+			v = awaitStable();
+			count = gapCount;
+			VarHandle.loadLoadFence();
+		}
+		while (version.get() != v);
+
+		return count;
+	}
+
+	/**
+	 * @return Longest interval between two samples that is integrated, in ns
+	 */
+	public long getMaxGapNanos()
+	{
+		return maxGapNanos;
+	}
+
+	/**
+	 * Neumaier summation : the low-order bits lost by the sum are kept in the compensation
+	 */
+	private void addEnergy(double x)
+	{
+		double sum = energy + x;
+
+		if (Math.abs(energy) >= Math.abs(x))
+		{
+			energyCompensation += (energy - sum) + x;
+		}
+		else
+		{
+			energyCompensation += (x - sum) + energy;
+		}
+
+		energy = sum;
+	}
+
+	private void addCharge(double x)
+	{
+		double sum = charge + x;
+
+		if (Math.abs(charge) >= Math.abs(x))
+		{
+			chargeCompensation += (charge - sum) + x;
+		}
+		else
+		{
+			chargeCompensation += (x - sum) + charge;
+		}
+
+		charge = sum;
+	}
+
+	/**
+	 * @return Consistent copy of the totals
+	 */
+	private Totals totals()
+	{
+		long v;
+		double e;
+		double ec;
+		double c;
+		double cc;
+		long nanos;
+
+		do
+		{
+			v     = awaitStable();
+			e     = energy;
+			ec    = energyCompensation;
+			c     = charge;
+			cc    = chargeCompensation;
+			nanos = integratedNanos;
+			VarHandle.loadLoadFence();
+		}
+		while (version.get() != v);
+
+		return new Totals(e, ec, c, cc, nanos);
+	}
+
+	/**
+	 * @return The version, once no update is in progress
+	 */
+	private long awaitStable()
+	{
+		long v;
+
+		while (((v = version.get()) & 1) != 0)
+		{
+			Thread.onSpinWait();
+		}
+
+		return v;
+	}
+}
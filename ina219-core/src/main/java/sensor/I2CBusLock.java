@@ -0,0 +1,86 @@
+/**
+ * Fair lock serializing the register transfers of all the devices of one I2C bus
+ * Lighter than I2CBusScheduler (no owner thread, no queue) : each caller performs its own transfer once it holds the lock,
+ * in arrival order. A ReentrantLock, so virtual threads waiting for the bus unmount instead of pinning their carrier.
+ * Devices are attached with transport(), which wraps their transport into a LockedTransport.
+ *
+ * @author Alexandre Scieux
+ * @version 1.0
+ */
+
+package sensor;
+
+import java.io.IOException;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class I2CBusLock
+{
+	private final ReentrantLock lock = new ReentrantLock(true);
+
+	/**
+	 * I2CTransport of one device, holding the bus lock during each transfer
+	 */
+	public final class LockedTransport implements I2CTransport
+	{
+		private final I2CTransport device;
+
+		private LockedTransport(I2CTransport device)
+		{
+			this.device = device;
+		}
+
+		@Override
+		public int getAddress()
+		{
+			return device.getAddress();
+		}
+
+		@Override
+		public int readRegister(int register) throws IOException
+		{
+			lock.lock();
+
+			try
+			{
+				return device.readRegister(register);
+			}
+			finally
+			{
+				lock.unlock();
+			}
+		}
+
+		@Override
+		public void writeRegister(int register, int value) throws IOException
+		{
+			lock.lock();
+
+			try
+			{
+				device.writeRegister(register, value);
+			}
+			finally
+			{
+				lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Attaches a device of the bus to the lock
+	 * @param  device Direct transport of the device (Pi4jTransport, SimulatedIna219 ...)
+	 * @return        Transport serializing every transfer of the device with the other devices of the bus
+	 */
+	public LockedTransport transport(I2CTransport device)
+	{
+		return new LockedTransport(device);
+	}
+
+	/**
+	 * @return Number of threads waiting for the bus
+	 */
+	public int getQueueLength()
+	{
+		return lock.getQueueLength();
+	}
+}
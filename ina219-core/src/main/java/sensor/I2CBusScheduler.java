@@ -0,0 +1,473 @@
+/**
+ * Serializes the register transfers of all the devices of one I2C bus on a single owner thread
+ * Requests go through a bounded FIFO queue, so register pointer writes and reads of concurrent callers never interleave.
+ * A read joins an identical read (same device, same register) still waiting in the queue instead of issuing a second transfer,
+ * unless a write to that device was queued in between : writes are always executed before the reads queued after them.
+ * Devices are attached once each with transport(), which wraps their transport into a ScheduledTransport.
+ *
+ * @author Alexandre Scieux
+ * @version 1.0
+ */
+
+package sensor;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class I2CBusScheduler implements AutoCloseable
+{
+	private final int capacity;
+	private final Thread owner;
+
+	/* Queue, pending reads and metrics are guarded by lock */
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = lock.newCondition();
+	private final Condition notFull  = lock.newCondition();
+	private final ArrayDeque<Transaction> queue;
+	private final Map<Integer, Transaction> pendingReads = new HashMap<>();
+
+	private int nextDeviceId = 0;
+	private boolean closed;
+
+	/* Metrics */
+	private int maxQueueDepth;
+	private long submittedCount;
+	private long transferCount;
+	private long coalescedCount;
+	private long totalWaitNanos;
+	private long maxWaitNanos;
+
+	/**
+	 * One register transfer, completed by the owner thread
+	 */
+	private static final class Transaction
+	{
+		private final I2CTransport target;
+		private final int key;
+		private final boolean write;
+		private final int register;
+		private final int value;
+		private final long enqueuedNanos;
+
+		/* Completion, guarded by its own lock : a ReentrantLock rather than synchronized, so a virtual thread waiting for the transfer does not pin its carrier */
+		private final ReentrantLock completion = new ReentrantLock();
+		private final Condition completed      = completion.newCondition();
+		private boolean done;
+		private int result;
+		private IOException error;
+
+		private Transaction(I2CTransport target, int key, boolean write, int register, int value)
+		{
+			this.target        = target;
+			this.key           = key;
+			this.write         = write;
+			this.register      = register;
+			this.value         = value;
+			this.enqueuedNanos = System.nanoTime();
+		}
+
+		private void complete(int result, IOException error)
+		{
+			completion.lock();
+
+			try
+			{
+				this.result = result;
+				this.error  = error;
+				this.done   = true;
+
+				completed.signalAll();
+			}
+			finally
+			{
+				completion.unlock();
+			}
+		}
+
+		private int await() throws IOException
+		{
+			completion.lock();
+
+			try
+			{
+				// The transfer is already on its way : wait for it even if interrupted, the flag being kept
+				while (!done)
+				{
+					completed.awaitUninterruptibly();
+				}
+			}
+			finally
+			{
+				completion.unlock();
+			}
+
+			if (error != null)
+			{
+				throw new IOException(error.getMessage(), error);
+			}
+
+			return result;
+		}
+	}
+
+	/**
+	 * I2CTransport of one device, routed through the scheduler
+	 */
+	public final class ScheduledTransport implements I2CTransport
+	{
+		private final I2CTransport device;
+		private final int deviceId;
+
+		private ScheduledTransport(I2CTransport device, int deviceId)
+		{
+			this.device   = device;
+			this.deviceId = deviceId;
+		}
+
+		@Override
+		public int getAddress()
+		{
+			return device.getAddress();
+		}
+
+		@Override
+		public int readRegister(int register) throws IOException
+		{
+			return submit(device, deviceId, false, register, 0);
+		}
+
+		@Override
+		public void writeRegister(int register, int value) throws IOException
+		{
+			submit(device, deviceId, true, register, value);
+		}
+	}
+
+	/**
+	 * @param name     Name of the bus, used for the owner thread name
+	 * @param capacity Maximum number of queued transfers, callers block beyond
+	 */
+	public I2CBusScheduler(String name, int capacity)
+	{
+		if (capacity < 1)
+		{
+			throw new IllegalArgumentException("Queue capacity out of range : " + capacity);
+		}
+
+		this.capacity = capacity;
+		this.queue    = new ArrayDeque<>(capacity);
+
+		this.owner = new Thread(this::run, "ina219-i2c-" + name);
+		this.owner.setDaemon(true);
+		this.owner.start();
+	}
+
+	/**
+	 * Attaches a device of the bus to the scheduler
+	 * @param  device Direct transport of the device (Pi4jTransport, SimulatedIna219 ...)
+	 * @return        Transport routing every transfer of the device through the scheduler
+	 */
+	public ScheduledTransport transport(I2CTransport device)
+	{
+		lock.lock();
+
+		try
+		{
+			// Registers are 8-bit, the device id takes the upper bits of the coalescing key
+			return new ScheduledTransport(device, nextDeviceId++);
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return Number of transfers waiting in the queue
+	 */
+	public int getQueueDepth()
+	{
+		lock.lock();
+
+		try
+		{
+			return queue.size();
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return Highest number of transfers ever waiting in the queue
+	 */
+	public int getMaxQueueDepth()
+	{
+		lock.lock();
+
+		try
+		{
+			return maxQueueDepth;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return Number of register reads and writes requested by the devices
+	 */
+	public long getSubmittedCount()
+	{
+		lock.lock();
+
+		try
+		{
+			return submittedCount;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return Number of transfers issued on the bus
+	 */
+	public long getTransferCount()
+	{
+		lock.lock();
+
+		try
+		{
+			return transferCount;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return Number of reads served by joining an identical queued read
+	 */
+	public long getCoalescedCount()
+	{
+		lock.lock();
+
+		try
+		{
+			return coalescedCount;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return Mean time spent in the queue by the issued transfers, in ns
+	 */
+	public long getMeanWaitNanos()
+	{
+		lock.lock();
+
+		try
+		{
+			return transferCount == 0 ? 0 : totalWaitNanos / transferCount;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return Longest time spent in the queue by a transfer, in ns
+	 */
+	public long getMaxWaitNanos()
+	{
+		lock.lock();
+
+		try
+		{
+			return maxWaitNanos;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Stops the owner thread. Queued transfers fail with an IOException.
+	 */
+	@Override
+	public void close()
+	{
+		lock.lock();
+
+		try
+		{
+			closed = true;
+			notEmpty.signalAll();
+			notFull.signalAll();
+		}
+		finally
+		{
+			lock.unlock();
+		}
+
+		try
+		{
+			owner.join();
+		}
+		catch (InterruptedException ie)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Queues a transfer, or joins an identical queued read, and waits for its completion
+	 */
+	private int submit(I2CTransport device, int deviceId, boolean write, int register, int value) throws IOException
+	{
+		int key = (deviceId << 8) | (register & 0xFF);
+		Transaction transaction;
+
+		lock.lock();
+
+		try
+		{
+			submittedCount++;
+
+			transaction = write ? null : pendingReads.get(key);
+
+			if (transaction != null)
+			{
+				coalescedCount++;
+			}
+			else
+			{
+				while (queue.size() == capacity && !closed)
+				{
+					notFull.await();
+				}
+
+				if (closed)
+				{
+					throw new IOException("I2C bus scheduler closed");
+				}
+
+				transaction = new Transaction(device, key, write, register, value);
+				queue.addLast(transaction);
+				maxQueueDepth = Math.max(maxQueueDepth, queue.size());
+
+				if (write)
+				{
+					// Reads queued after this write must not join the reads queued before it
+					pendingReads.values().removeIf(read -> read.key >>> 8 == deviceId);
+				}
+				else
+				{
+					pendingReads.put(key, transaction);
+				}
+
+				notEmpty.signal();
+			}
+		}
+		catch (InterruptedException ie)
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for the I2C bus queue");
+		}
+		finally
+		{
+			lock.unlock();
+		}
+
+		return transaction.await();
+	}
+
+	/**
+	 * Owner loop : executes the queued transfers in FIFO order
+	 */
+	private void run()
+	{
+		while (true)
+		{
+			Transaction transaction;
+
+			lock.lock();
+
+			try
+			{
+				while (queue.isEmpty() && !closed)
+				{
+					notEmpty.awaitUninterruptibly();
+				}
+
+				if (closed)
+				{
+					for (Transaction abandoned : queue)
+					{
+						abandoned.complete(0, new IOException("I2C bus scheduler closed"));
+					}
+
+					queue.clear();
+					pendingReads.clear();
+					return;
+				}
+
+				transaction = queue.pollFirst();
+
+				// From now on, a new read of this register needs a new transfer
+				if (!transaction.write)
+				{
+					pendingReads.remove(transaction.key, transaction);
+				}
+
+				long wait = System.nanoTime() - transaction.enqueuedNanos;
+				totalWaitNanos += wait;
+				maxWaitNanos = Math.max(maxWaitNanos, wait);
+				transferCount++;
+
+				notFull.signal();
+			}
+			finally
+			{
+				lock.unlock();
+			}
+
+			try
+			{
+				if (transaction.write)
+				{
+					transaction.target.writeRegister(transaction.register, transaction.value);
+					transaction.complete(0, null);
+				}
+				else
+				{
+					transaction.complete(transaction.target.readRegister(transaction.register), null);
+				}
+			}
+			catch (IOException ioe)
+			{
+				transaction.complete(0, ioe);
+			}
+			catch (RuntimeException re)
+			{
+				// Keeps the owner thread alive for the other devices
+				transaction.complete(0, new IOException("I2C transfer failed", re));
+			}
+		}
+	}
+}
@@ -0,0 +1,35 @@
+/**
+ * Register-level access to one INA219 on an I2C bus
+ * This is the only boundary between the driver and the I2C implementation : Pi4jTransport on a Raspberry Pi, SimulatedIna219 without hardware
+ *
+ * @author Alexandre Scieux
+ * @version 1.0
+ */
+
+package sensor;
+
+import java.io.IOException;
+
+public interface I2CTransport
+{
+	/**
+	 * @return Address of the device on the I2C bus
+	 */
+	int getAddress();
+
+	/**
+	 * Reads a 16-bit register (MSB first on the wire)
+	 * @param  register    Register address
+	 * @return             Unsigned register content (0..65535)
+	 * @throws IOException Input/Output Exception
+	 */
+	int readRegister(int register) throws IOException;
+
+	/**
+	 * Writes a 16-bit register (MSB first on the wire)
+	 * @param  register    Register address
+	 * @param  value       Register content (0..65535)
+	 * @throws IOException Input/Output Exception
+	 */
+	void writeRegister(int register, int value) throws IOException;
+}
@@ -0,0 +1,1945 @@
+/**
+ * Library for interfacing an INA219 High DC Current Sensor with a Raspberry Pi
+ * @author Alexandre Scieux
+ * @version 1.0
+ *
+ * Caution : Be sure to include /opt/pi4j/lib/'*' in your classpath (http://pi4j.com/) when using the default Pi4J transport
+ * 
+ */
+
+package sensor;
+
+import java.io.IOException;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class Ina219
+{
+
+	private I2CTransport transport;
+
+	/* Guards the register accesses and the shadow state. A ReentrantLock rather than synchronized, so a virtual thread waiting for the device does not pin its carrier */
+	private final ReentrantLock lock = new ReentrantLock();
+
+	/* Destination of the progress messages, register dumps, readings and errors : silent by default */
+	private volatile DiagnosticSink diagnostics = DiagnosticSink.NONE;
+
+	/* Shadow copies of the configuration and calibration registers (power-on values until the first sync, which the first decoding read triggers) */
+	private volatile ConfigRegister configuration = ConfigRegister.DEFAULT;
+	private volatile int calibration              = 0;
+	private volatile boolean shadowSynced         = false;
+
+	/* Shunt resistance the calibration applies to */
+	private volatile double shuntOhms             = Constants.R_SHUNT_OHM.getValue();
+
+	/* Scale factors of the measurement registers, recomputed whenever the configuration, calibration or shunt resistance change */
+	private volatile Ina219Scaling scaling        = Ina219Scaling.of(configuration, calibration, shuntOhms);
+
+	/* I2C transaction counters */
+	private long busTransactions                  = 0;
+	private long savedTransactions                = 0;
+
+	/**
+	 * INA219 constants
+	 */
+	public enum Constants
+	{
+		BUS_MAX_V										(32.0),
+		SHUNT_MAX_V										(0.32),
+		R_SHUNT_OHM 									(5.0),
+		MAX_POSSIBLE_CURRENT_A 							(0.064);
+
+		private double value;
+
+		private Constants (double value)
+		{
+			this.value = value;
+		}
+
+		public double getValue() 
+		{
+			return value;
+		}
+
+		public void setValue(double value)
+		{
+			this.value = value;
+		}
+	}
+
+	/**
+	 * Addresses of the INA219 registers
+	 */
+	public enum Registers
+	{
+		INA219_I2C_BUS									(1),
+		INA219_I2C_ADDRESS								(0x40),
+		
+		INA219_CONFIG_RESET 							(0x8000),
+		INA219_CONFIG_DEFAULT							(0x399F),
+		INA219_CALIBRATION_DEFAULT						(0x1000),
+
+		INA219_REG_CONFIG 								(0x00),
+		INA219_REG_SHUNTVOLTAGE 						(0x01),
+		INA219_REG_BUSVOLTAGE 							(0x02),
+		INA219_REG_POWER 								(0x03),
+		INA219_REG_CURRENT 								(0x04),
+		INA219_REG_CALIBRATION 							(0x05);
+
+		private int value;
+
+		private Registers (int value)
+		{
+			this.value = value;
+		}
+		
+		public int getValue() 
+		{
+			return value;
+		}
+
+		public void setValue(int value)
+		{
+			this.value = value; 
+		}
+	}
+
+	/**
+	 * INA219 Bus Voltage Range configuration values
+	 */
+	public enum BusVoltageRange
+	{
+		INA219_CONFIG_BVOLTAGERANGE_MASK 				(0x2000),
+		INA219_CONFIG_BVOLTAGERANGE_16V 				(0x0000),
+		INA219_CONFIG_BVOLTAGERANGE_32V 				(0x2000);
+
+		private int value;
+
+		private BusVoltageRange()
+		{
+			this.value = (0x2000);
+		}
+
+		private BusVoltageRange (int value)
+		{
+			this.value = value;
+		}
+
+		public int getValue() 
+		{
+			return value;
+		}
+
+		public void setValue(int value)
+		{
+			this.value = value; 
+		}
+	}
+
+	/**
+	 * INA219 Gain configuration values
+	 */
+	public enum Gain
+	{
+		INA219_CONFIG_GAIN_MASK							(0x1800),
+		INA219_CONFIG_GAIN_1_40MV 						(0x0000),
+		INA219_CONFIG_GAIN_2_80MV 						(0x0800),
+		INA219_CONFIG_GAIN_4_160MV 						(0x1000),	
+		INA219_CONFIG_GAIN_8_320MV 						(0x1800);
+
+		private int value;
+
+		private Gain()
+		{
+			this.value = (0x1800);
+		}
+
+		private Gain (int value)
+		{
+			this.value = value;
+		}
+
+		public int getValue() 
+		{
+			return value;
+		}
+
+		public void setValue(int value)
+		{
+			this.value = value; 
+		}
+	}
+
+	/**
+	 * INA219 Bus ADC Resolution configuration values
+	 */
+	public enum BusADCResolution
+	{
+		INA219_CONFIG_BADCRES_MASK 						(0x0780, 0),	
+		INA219_CONFIG_BADCRES_9BIT 						(0x0000, 84),
+		INA219_CONFIG_BADCRES_10BIT 					(0x0080, 148),
+		INA219_CONFIG_BADCRES_11BIT 					(0x0100, 276),	
+		INA219_CONFIG_BADCRES_12BIT 					(0x0180, 532);
+
+		private int value;
+		private final int conversionTimeMicros;
+
+		private BusADCResolution()
+		{
+			this(0x0180, 532);
+		}
+
+		private BusADCResolution (int value, int conversionTimeMicros)
+		{
+			this.value = value;
+			this.conversionTimeMicros = conversionTimeMicros;
+		}
+
+		public int getValue() 
+		{
+			return value;
+		}
+
+		/**
+		 * @return Maximum conversion time in us (datasheet, table 5)
+		 */
+		public int getConversionTimeMicros()
+		{
+			return conversionTimeMicros;
+		}
+
+		public void setValue(int value)
+		{
+			this.value = value; 
+		}
+	}
+
+	/**
+	 * INA219 Shunt ADC resolution configuration values
+	 */
+	public enum ShuntADCResolution
+	{
+		INA219_CONFIG_SADCRES_MASK						(0x0078, 0),
+		INA219_CONFIG_SADCRES_9BIT_1S_84US				(0x0000, 84),
+		INA219_CONFIG_SADCRES_10BIT_1S_148US 			(0x0008, 148),	
+		INA219_CONFIG_SADCRES_11BIT_1S_276US			(0x0010, 276),	
+		INA219_CONFIG_SADCRES_12BIT_1S_532US			(0x0018, 532),	
+		INA219_CONFIG_SADCRES_12BIT_2S_1060US 			(0x0048, 1060),	
+		INA219_CONFIG_SADCRES_12BIT_4S_2130US			(0x0050, 2130),	
+		INA219_CONFIG_SADCRES_12BIT_8S_4260US 			(0x0058, 4260),	
+		INA219_CONFIG_SADCRES_12BIT_16S_8510US			(0x0060, 8510),	
+		INA219_CONFIG_SADCRES_12BIT_32S_17MS			(0x0068, 17020),	
+		INA219_CONFIG_SADCRES_12BIT_64S_34MS			(0x0070, 34050),	
+		INA219_CONFIG_SADCRES_12BIT_128S_69MS 			(0x0078, 68100);
+
+		private int value;
+		private final int conversionTimeMicros;
+
+		private ShuntADCResolution()
+		{
+			this(0x0018, 532);
+		}
+
+		private ShuntADCResolution (int value, int conversionTimeMicros)
+		{
+			this.value = value;
+			this.conversionTimeMicros = conversionTimeMicros;
+		}
+
+		public int getValue() 
+		{
+			return value;
+		}
+
+		/**
+		 * @return Maximum conversion time in us (datasheet, table 5)
+		 */
+		public int getConversionTimeMicros()
+		{
+			return conversionTimeMicros;
+		}
+
+		public void setValue(int value)
+		{
+			this.value = value; 
+		}
+	}
+
+	/**
+	 * INA219 Operating mode configuration values
+	 */
+	public enum OperatingMode
+	{
+		INA219_CONFIG_MODE_MASK 						(0x0007),	
+		INA219_CONFIG_MODE_POWERDOWN 					(0x0000),	
+		INA219_CONFIG_MODE_SVOLT_TRIGGERED  			(0x0001),	
+		INA219_CONFIG_MODE_BVOLT_TRIGGERED  			(0x0002),	
+		INA219_CONFIG_MODE_SANDBVOLT_TRIGGERED  		(0x0003),	
+		INA219_CONFIG_MODE_ADCOFF 						(0x0004),	
+		INA219_CONFIG_MODE_SVOLT_CONTINUOUS  			(0x0005),	
+		INA219_CONFIG_MODE_BVOLT_CONTINUOUS  			(0x0006),	
+		INA219_CONFIG_MODE_SANDBVOLT_CONTINUOUS  		(0x0007);
+
+		private int value;
+
+		private OperatingMode()
+		{
+			this.value = (0x0007);
+		}
+
+		private OperatingMode (int value)
+		{
+			this.value = value;
+		}
+
+		public int getValue() 
+		{
+			return value;
+		}
+
+		// Use global variable instead of enum
+		public void setValue(int value)
+		{
+			this.value = value; 
+		}
+	}
+	
+	/* I2C */
+	private static final int i2cbus                                  = Registers.INA219_I2C_BUS.getValue();											// Raspberry Pi's I2C Bus (0 on Raspberry Pi Rev A, 1 on Raspberry Pi Rev B)
+	private static final int address                                 = Registers.INA219_I2C_ADDRESS.getValue();										// INA219 Device address one the I2C Bus. Run i2cdetect -y 1 to see the address. Default is 0x40.
+	
+	/* Registers */
+
+	/* Shunt Resistor Register (Read only) */
+	private static final int ina219_reg_shuntvoltage                 =	Registers.INA219_REG_SHUNTVOLTAGE.getValue();								// Address of the register containing the shunt voltage value. Structure at full-scale range : SIGN SD14_8 SD13_8 SD12_8 SD11_8 SD10_8 SD9_8 SD8_8 SD7_8 SD6_8 SD5_8 SD4_8 SD3_8 SD2_8 SD1_8 SD0_8 (16 bits)
+	
+	/* Bus Voltage Register (Read only) */
+	private static final int ina219_reg_busvoltage                   =	Registers.INA219_REG_BUSVOLTAGE.getValue();									// Address of the register containing the bus voltage value. Structure : BD12 BD11 BD10 BD9 BD8 BD7 BD6 BD5 BD4 BD3 BD2 BD1 BD0 - CNVR OVF (16 bits)
+	
+	/* Power Register (Read only) */
+	private static final int ina219_reg_power                        =	Registers.INA219_REG_POWER.getValue();										// Address of the register containing the power value. Structure : PD15 PD14 PD13 PD12 PD11 PD10 PD9 PD8 PD7 PD6 PD5 PD4 PD3 PD2 PD1 PD0 (16 bits)
+	
+	/* Current Register (Read only) */
+	private static final int ina219_reg_current                      =	Registers.INA219_REG_CURRENT.getValue();									// Address of the register containing the current value. Structure : CSIGN CD14 CD13 CD12 CD11 CD10 CD9 CD8 CD7 CD6 CD5 CD4 CD3 CD2 CD1 CD (16 bits)
+	
+	/* Calibration Register (Read / Write) */
+	private static final int ina219_reg_calibration                  =	Registers.INA219_REG_CALIBRATION.getValue();								// Address of the calibration register. Structure :  FS15 FS14 FS13 FS12 FS11 FS10 FS9 FS8 FS7 FS6 FS5 FS4 FS3 FS2 FS1 FS0 (16 bits). FS0 is a void bit and will always be 0. It is not possible to write a 1 to FS0. Calibration is the value stored in FS15:FS1.
+	private static final int ina219_calibration_default				 =  Registers.INA219_CALIBRATION_DEFAULT.getValue();							// Default calibration value. No overflow, maximum range.
+	
+	/* Configuration register (Read / Write) */
+	private static final int ina219_reg_config                       =	Registers.INA219_REG_CONFIG.getValue(); 									// Adress of the configuration register. Structure :  RST - BRNG PG1 PG0 BADC4 BADC3 BADC2 BADC1 SADC4 SADC3 SADC2 SADC1 MODE3 MODE2 MODE1
+	private static final int ina219_config_reset                     =	Registers.INA219_CONFIG_RESET.getValue(); 									// Reset Bit. Setting this bit to '1' generates a system reset that is the same as power-on reset. Resets all registers to default values. This bit self-clears.
+	private static final int ina219_config_default 					 =  Registers.INA219_CONFIG_DEFAULT.getValue();									// Default configuration value.
+	
+	/* Configuration */
+
+	/* Bus Voltage Range */
+	private static final int ina219_config_bvoltagerange_mask        =	BusVoltageRange.INA219_CONFIG_BVOLTAGERANGE_MASK.getValue();				// Bus Voltage Range Mask
+	private static final int ina219_config_bvoltagerange_16v         =	BusVoltageRange.INA219_CONFIG_BVOLTAGERANGE_16V.getValue();					// 0-16V Range
+	private static final int ina219_config_bvoltagerange_32v         =	BusVoltageRange.INA219_CONFIG_BVOLTAGERANGE_32V.getValue();					// 0-32V Range
+	
+	/* Gain */
+	private static final int ina219_config_gain_mask                 =	Gain.INA219_CONFIG_GAIN_MASK.getValue();									// Gain Mask
+	private static final int ina219_config_gain_1_40mv               =	Gain.INA219_CONFIG_GAIN_1_40MV.getValue();									// Gain 1, 40mV Range
+	private static final int ina219_config_gain_2_80mv               =	Gain.INA219_CONFIG_GAIN_2_80MV.getValue();									// Gain 2, 80mV Range
+	private static final int ina219_config_gain_4_160mv              =	Gain.INA219_CONFIG_GAIN_4_160MV.getValue();									// Gain 4, 160mV Range
+	private static final int ina219_config_gain_8_320mv              =	Gain.INA219_CONFIG_GAIN_8_320MV.getValue();									// Gain 8, 320mV Range
+	
+	/* Bus ADC Resolution */
+	private static final int ina219_config_badcres_mask              =	BusADCResolution.INA219_CONFIG_BADCRES_MASK.getValue();						// Bus ADC resolution mask
+	private static final int ina219_config_badcres_9bit              =	BusADCResolution.INA219_CONFIG_BADCRES_9BIT.getValue();						// 9-bit bus resolution = 0..511
+	private static final int ina219_config_badcres_10bit             =	BusADCResolution.INA219_CONFIG_BADCRES_10BIT.getValue();					// 10-bit bus resolution = 0..1023
+	private static final int ina219_config_badcres_11bit             =	BusADCResolution.INA219_CONFIG_BADCRES_11BIT.getValue();					// 11-bit bus res = 0..2047
+	private static final int ina219_config_badcres_12bit             =	BusADCResolution.INA219_CONFIG_BADCRES_12BIT.getValue();					// 12-bit bus res = 0..4097
+	
+	/* Shunt ADC Resolution */
+	private static final int ina219_config_sadcres_mask              =	ShuntADCResolution.INA219_CONFIG_SADCRES_MASK.getValue();					// Shunt ADC resolution and averaging mask
+	private static final int ina219_config_sadcres_9bit_1s_84us      =	ShuntADCResolution.INA219_CONFIG_SADCRES_9BIT_1S_84US.getValue();			// 1 x 9-bit shunt sample
+	private static final int ina219_config_sadcres_10bit_1s_148us    =	ShuntADCResolution.INA219_CONFIG_SADCRES_10BIT_1S_148US.getValue();			// 1 x 10-bit shunt sample
+	private static final int ina219_config_sadcres_11bit_1s_276us    =	ShuntADCResolution.INA219_CONFIG_SADCRES_11BIT_1S_276US.getValue();			// 1 x 11-bit shunt sample
+	private static final int ina219_config_sadcres_12bit_1s_532us    =	ShuntADCResolution.INA219_CONFIG_SADCRES_12BIT_1S_532US.getValue();			// 1 x 12-bit shunt sample
+	private static final int ina219_config_sadcres_12bit_2s_1060us   =	ShuntADCResolution.INA219_CONFIG_SADCRES_12BIT_2S_1060US.getValue();		// 2 x 12-bit shunt samples averaged together
+	private static final int ina219_config_sadcres_12bit_4s_2130us   =	ShuntADCResolution.INA219_CONFIG_SADCRES_12BIT_4S_2130US.getValue();		// 4 x 12-bit shunt samples averaged together
+	private static final int ina219_config_sadcres_12bit_8s_4260us   =	ShuntADCResolution.INA219_CONFIG_SADCRES_12BIT_8S_4260US.getValue();		// 8 x 12-bit shunt samples averaged together
+	private static final int ina219_config_sadcres_12bit_16s_8510us  =	ShuntADCResolution.INA219_CONFIG_SADCRES_12BIT_16S_8510US.getValue();		// 16 x 12-bit shunt samples averaged together
+	private static final int ina219_config_sadcres_12bit_32s_17ms    =	ShuntADCResolution.INA219_CONFIG_SADCRES_12BIT_32S_17MS.getValue();			// 32 x 12-bit shunt samples averaged together
+	private static final int ina219_config_sadcres_12bit_64s_34ms    =	ShuntADCResolution.INA219_CONFIG_SADCRES_12BIT_64S_34MS.getValue();			// 64 x 12-bit shunt samples averaged together
+	private static final int ina219_config_sadcres_12bit_128s_69ms   =	ShuntADCResolution.INA219_CONFIG_SADCRES_12BIT_128S_69MS.getValue();		// 128 x 12-bit shunt samples averaged together
+	
+	/* Operating Mode */
+	private static final int ina219_config_mode_mask                 =	OperatingMode.INA219_CONFIG_MODE_MASK.getValue();							// Operating mode mask
+	private static final int ina219_config_mode_powerdown            =	OperatingMode.INA219_CONFIG_MODE_POWERDOWN.getValue();						// Powerdown
+	private static final int ina219_config_mode_svolt_triggered      = 	OperatingMode.INA219_CONFIG_MODE_SVOLT_TRIGGERED.getValue();				// Shunt-Volt Triggered
+	private static final int ina219_config_mode_bvolt_triggered      = 	OperatingMode.INA219_CONFIG_MODE_BVOLT_TRIGGERED.getValue();				// Bus-Volt Triggered
+	private static final int ina219_config_mode_sandbvolt_triggered  = 	OperatingMode.INA219_CONFIG_MODE_SANDBVOLT_TRIGGERED.getValue();			// Shunt-Volt/Bus-Volt Triggered
+	private static final int ina219_config_mode_adcoff               =	OperatingMode.INA219_CONFIG_MODE_ADCOFF.getValue();							// Analog to Digital Converter OFF
+	private static final int ina219_config_mode_svolt_continuous     = 	OperatingMode.INA219_CONFIG_MODE_SVOLT_CONTINUOUS.getValue();				// Shunt-Volt Continuous
+	private static final int ina219_config_mode_bvolt_continuous     = 	OperatingMode.INA219_CONFIG_MODE_BVOLT_CONTINUOUS.getValue();				// Bus-Volt Continuous
+	private static final int ina219_config_mode_sandbvolt_continuous = 	OperatingMode.INA219_CONFIG_MODE_SANDBVOLT_CONTINUOUS.getValue();			// Shunt-Volt/Bus-Volt Continuous
+
+	/* Constructor */
+	public Ina219() throws IOException
+	{
+		this(DiagnosticSink.NONE);
+	}
+
+	/**
+	 * Connects to the INA219 through Pi4J, reporting the connection outcome to the provided sink
+	 * @param diagnostics Destination of the driver diagnostics
+	 */
+	public Ina219(DiagnosticSink diagnostics) throws IOException
+	{
+		this(i2cbus, address, diagnostics);
+	}
+
+	/**
+	 * Connects to an INA219 through Pi4J
+	 * @param busNumber I2C bus number (0 on Raspberry Pi Rev A, 1 on Raspberry Pi Rev B)
+	 * @param address   Address of the device on the bus (0x40 to 0x4F, depending on A0 and A1)
+	 */
+	public Ina219(int busNumber, int address) throws IOException
+	{
+		this(busNumber, address, DiagnosticSink.NONE);
+	}
+
+	/**
+	 * Connects to an INA219 through Pi4J, reporting the connection outcome to the provided sink
+	 * @param busNumber   I2C bus number (0 on Raspberry Pi Rev A, 1 on Raspberry Pi Rev B)
+	 * @param address     Address of the device on the bus (0x40 to 0x4F, depending on A0 and A1)
+	 * @param diagnostics Destination of the driver diagnostics
+	 */
+	public Ina219(int busNumber, int address, DiagnosticSink diagnostics) throws IOException
+	{
+		this.diagnostics = diagnostics;
+
+		try
+		{
+			// Connection to the I2C Device on the I2C Bus
+			this.transport = Pi4jTransport.open(busNumber, address);
+			info("Connection to device OK");
+		}
+
+		catch (IOException ioe) 
+		{
+			error("Exception during I2C initialization", ioe);
+		}
+	}
+
+	/**
+	 * Drives the INA219 through the provided transport (Pi4jTransport, SimulatedIna219 ...)
+	 * @param transport Register-level access to the INA219
+	 */
+	public Ina219(I2CTransport transport)
+	{
+		this.transport = transport;
+	}
+
+	/**
+	 * @return Address of the device on the I2C bus
+	 */
+	public int getAddress()
+	{
+		return transport.getAddress();
+	}
+
+	/**
+	 * Calibrates the sensor by filling the calibration register with default values
+	 * Calibrating the sensor with no possibility for overflow
+	 * Value (0x1000) = 4096 calibrates INA219 for maximum range (but less resolution).
+	 * The power register and current register default to 0 because the calibration register defaults to 0, yielding a zero current value until the calibration register is programmed.
+	 */
+	public void calibrate_default() throws IOException
+	{
+		info("Calibrating device using default values ...");
+
+		try
+		{
+		
+			setCalibration(ina219_calibration_default);
+
+			info("Device successfully calibrated with default values");
+
+			// show_calibration();
+
+		}
+		catch (IOException ioe) 
+		{
+			error("Exception during default sensor calibration", ioe);
+		}
+	}
+
+	/**
+	 * Set the sensor calibration register value
+	 * @param  calibration The calibration to be set (decimal value)
+	 * @throws IOException Input/Output Exception
+	 */
+	public void setCalibration(int calibration) throws IOException
+	{
+		// Buffer/Register overflow check
+		if (calibration >= 0 && calibration <= 65535)
+		{
+			try
+			{
+				writeRegister(ina219_reg_calibration, calibration);
+
+				// FS0 is a void bit
+				this.calibration = calibration & 0xFFFE;
+				updateScaling();
+				
+				// System.out.println("Calibration value : " + calibration);
+				// show_calibration();
+			}
+			catch (IOException ioe) 
+			{
+				error("Exception during sensor calibration", ioe);
+			}
+		}
+		// Overflow handling
+		else
+		{
+			error("Calibration value out of range", null);
+		}
+	}
+
+	/**
+	 * Calibrates the sensor for a shunt resistance and a maximum expected current (see Ina219Calibration)
+	 * Writes the smallest PGA range that fits into the configuration register, then the computed calibration register
+	 * @param  shuntOhms          Shunt resistance, in ohms
+	 * @param  maxExpectedCurrent Largest current to measure, in A
+	 * @return                    The calibration applied
+	 * @throws IOException        Input/Output Exception
+	 */
+	public Ina219Calibration calibrate(double shuntOhms, double maxExpectedCurrent) throws IOException
+	{
+		Ina219Calibration calibration = Ina219Calibration.compute(shuntOhms, maxExpectedCurrent);
+
+		calibrate(calibration);
+
+		return calibration;
+	}
+
+	/**
+	 * Applies a computed calibration : gain and calibration registers, written one after the other under the device lock
+	 * @param  calibration The calibration
+	 * @throws IOException Input/Output Exception
+	 */
+	public void calibrate(Ina219Calibration calibration) throws IOException
+	{
+		lock.lock();
+
+		try
+		{
+			configure(Ina219Configuration.builder(getConfiguration())
+				.gain(calibration.getGain())
+				.calibration(calibration.getCalibration())
+				.build());
+
+			this.shuntOhms = calibration.getShuntOhms();
+			updateScaling();
+
+			info("Device calibrated : " + calibration);
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return Shunt resistance the current and power are computed for, in ohms (Constants.R_SHUNT_OHM until calibrate())
+	 */
+	public double getShuntOhms()
+	{
+		return shuntOhms;
+	}
+
+	/**
+	 * Sets the shunt resistance the current and power are computed for, when the calibration register is written directly
+	 * @param shuntOhms Shunt resistance, in ohms
+	 */
+	public void setShuntOhms(double shuntOhms)
+	{
+		if (!(shuntOhms > 0))
+		{
+			throw new IllegalArgumentException("Shunt resistance out of range : " + shuntOhms);
+		}
+
+		lock.lock();
+
+		try
+		{
+			this.shuntOhms = shuntOhms;
+			updateScaling();
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Scale factors in effect, from the shadow copies of the configuration and calibration registers
+	 * Use them to decode raw registers into physical units, or into fixed-point uV, uA and uW
+	 * The shadow copies hold the power-on values until they are synced : call resyncRegisters() first on a driver that has
+	 * neither configured, calibrated nor read the device yet
+	 * @return The scale factors
+	 */
+	public Ina219Scaling getScaling()
+	{
+		return scaling;
+	}
+
+	/**
+	 * Configures the sensor by filling the configuration register with default value
+	 * For a full reset of the device (all registers to their default values), please use reset()
+	 */
+	public void configure_default() throws IOException
+	{
+		info("Configuring device with default configuration ...");
+
+		try
+		{
+			writeConfiguration(ConfigRegister.DEFAULT);
+
+			info("Device successfully configured with default configuration");
+			show_configuration();
+		}
+		catch (IOException ioe)
+		{
+			error("Exception during default sensor configuration", ioe);
+		}
+	}
+
+	/**
+	 * Configures the INA219 by filling the configuration register with provided configuration
+	 * The five settings are applied in a single configuration register write
+	 * @param busVoltageRange 		16V range or 32V range (default)
+	 * @param gain 					From gain 1 --> 40 mV range to gain 1/8 --> 320 mV range (default)
+	 * @param busADCResolution 		9 bit to 12 bit bus resolution
+	 * @param shuntADCResolution 	9 bit sample to 12 bit averaged resolution
+	 * @param operatingMode 		S-Volt and/or B-Volt triggered/continuous
+	 */
+	public void configure_custom(BusVoltageRange busVoltageRange, Gain gain, BusADCResolution busADCResolution, ShuntADCResolution shuntADCResolution, OperatingMode operatingMode) throws IOException
+	{
+		info("Configuring device with custom configuration ...");
+
+		try
+		{
+
+			configure(Ina219Configuration.builder()
+				.busVoltageRange(busVoltageRange)
+				.gain(gain)
+				.busADCResolution(busADCResolution)
+				.shuntADCResolution(shuntADCResolution)
+				.operatingMode(operatingMode)
+				.build());
+
+			info("Device successfully configurated with custom configuration");
+			show_configuration();
+
+		}
+		catch (IOException ioe)
+		{
+			error("Exception during custom sensor configuration", ioe);
+		}
+	}
+
+	/**
+	 * Applies a complete configuration : one configuration register write, plus one calibration register write
+	 * and one configuration register read-back if requested
+	 * @param  configuration The configuration to apply
+	 * @throws IOException   Input/Output Exception, or read-back mismatch
+	 */
+	public void configure(Ina219Configuration configuration) throws IOException
+	{
+		lock.lock();
+
+		try
+		{
+			writeConfiguration(configuration.getConfiguration());
+
+			if (configuration.hasCalibration())
+			{
+				writeRegister(ina219_reg_calibration, configuration.getCalibration());
+
+				// Both registers are known : no need to read them back to serve the getters
+				this.calibration  = configuration.getCalibration() & 0xFFFE;
+				this.shadowSynced = true;
+				updateScaling();
+			}
+
+			if (configuration.isVerified())
+			{
+				int written = configuration.getConfiguration().getValue();
+				int read    = readRegister(ina219_reg_config);
+
+				if (read != written)
+				{
+					shadowSynced = false;
+					throw new IOException(String.format("Configuration verification failed : wrote 0x%04X, read 0x%04X", written, read));
+				}
+			}
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Shows the INA219 configuration register in a user-friendly way
+	 */
+	public void show_configuration() throws IOException
+	{
+		if (!diagnostics.isEnabled(DiagnosticSink.Level.INFO))
+		{
+			return;
+		}
+
+		int reg_config = 0;
+
+		try 
+		{
+			reg_config = getConfigurationRegister();
+		}
+		catch (IOException ioe)
+		{
+			error("Exception during configuration showing", ioe);
+		}
+
+		showRegister("Configuration register : ", "RST \t - \t BRNG \t PG1 \t PG0 \t BADC4 \t BADC3 \t BADC2 \t BADC1 \t SADC4 \t SADC3 \t SADC2 \t SADC1 \t MODE3 \t MODE2 \t MODE1", reg_config);
+	}
+
+	/**
+	 * Shows the INA219 calibration register in a user-friendly way
+	 */
+	public void show_calibration() throws IOException
+	{
+		if (!diagnostics.isEnabled(DiagnosticSink.Level.INFO))
+		{
+			return;
+		}
+
+		int reg_calibration = 0;
+
+		try
+		{
+			reg_calibration = getCalibrationRegister();
+		}
+		catch (IOException ioe)
+		{
+			error("Exception during calibration showing", ioe);
+		}
+
+		showRegister("Calibration register : ", "FS15 \t FS14 \t FS13 \t FS12 \t FS11 \t FS10 \t FS9 \t FS8 \t FS7 \t FS6 \t FS5 \t FS4 \t FS3 \t FS2 \t FS1 \t FS0", reg_calibration);
+	}
+
+	/**
+	 * Shows the INA219 current register in a user-friendly way
+	 */
+	public void show_current_register() throws IOException
+	{
+		if (!diagnostics.isEnabled(DiagnosticSink.Level.INFO))
+		{
+			return;
+		}
+
+		int reg_current = 0;
+
+		try
+		{
+			reg_current = getCurrentRegister();
+		}
+
+		catch (IOException ioe)
+		{
+			error("Exception during current register showing", ioe);
+		}
+
+		showRegister("Current register : ", "CSIGN \t CD14 \t CD13 \t CD12 \t CD11 \t CD10 \t CD9 \t CD8 \t CD7 \t CD6 \t CD5 \t CD4 \t CD3 \t CD2 \t CD1 \t CD ", reg_current);
+	}
+
+	/**
+	 * Shows the INA219 power register in a user-friendly way
+	 */
+	public void show_power_register() throws IOException
+	{
+		if (!diagnostics.isEnabled(DiagnosticSink.Level.INFO))
+		{
+			return;
+		}
+
+		int reg_power = 0;
+
+		try
+		{
+			reg_power = getPowerRegister();
+		}
+		catch (IOException ioe)
+		{
+			error("Exception during power register showing", ioe);
+		}
+
+		showRegister("Power register : ", "PD15 \t PD14 \t PD13 \t PD12 \t PD11 \t PD10 \t PD9 \t PD8 \t PD7 \t PD6 \t PD5 \t PD4 \t PD3 \t PD2 \t PD1 \t PD0", reg_power);
+	}
+
+	/**
+	 * Shows the INA219 shunt voltage register in a user-friendly way
+	 */	
+	public void show_shunt_voltage_register() throws IOException
+	{
+		if (!diagnostics.isEnabled(DiagnosticSink.Level.INFO))
+		{
+			return;
+		}
+
+		int reg_shuntvoltage = 0;
+		int gain_setting = getGainSetting();
+		
+		String header = "";
+
+		try
+		{
+			reg_shuntvoltage = getShuntVoltageRegister();
+		}
+		catch (IOException ioe)
+		{
+			error("Exception during shunt voltage register showing", ioe);
+		}
+
+		// Adpatation to the PGA range selected
+		switch(gain_setting)
+		{
+			// PGA = 1/8
+			case 4:
+				header = "SIGN \t SD14 \t SD13 \t SD12 \t SD11 \t SD10 \t SD9 \t SD8 \t SD7 \t SD6 \t SD5 \t SD4 \t SD3 \t SD2 \t SD1 \t SD0";
+			break;
+			// PGA = 1/4
+			case 3:
+				header = "SIGN \t SIGN \t SD13 \t SD12 \t SD11 \t SD10 \t SD9 \t SD8 \t SD7 \t SD6 \t SD5 \t SD4 \t SD3 \t SD2 \t SD1 \t SD0";
+			break;
+			// PGA = 1/2
+			case 2:
+				header = "SIGN \t SIGN \t SIGN \t SD12 \t SD11 \t SD10 \t SD9 \t SD8 \t SD7 \t SD6 \t SD5 \t SD4 \t SD3 \t SD2 \t SD1 \t SD0";
+			break;
+			// PGA = 1
+			case 1:
+				header = "SIGN \t SIGN \t SIGN \t SIGN \t SD11 \t SD10 \t SD9 \t SD8 \t SD7 \t SD6 \t SD5 \t SD4 \t SD3 \t SD2 \t SD1 \t SD0";
+			break;
+			default:
+				header = "Error getting Gain setting : value out of range";
+			break;
+		}
+
+		showRegister("Shunt voltage register : ", header, reg_shuntvoltage);
+	}
+
+	/**
+	 * Shows the INA219 bus voltage register in a user-friendly way
+	 */
+	public void show_bus_voltage_register() throws IOException
+	{
+		if (!diagnostics.isEnabled(DiagnosticSink.Level.INFO))
+		{
+			return;
+		}
+
+		int reg_busvoltage = 0;
+
+		try
+		{
+			reg_busvoltage = getBusVoltageRegister();
+		}
+		catch (IOException ioe)
+		{
+			error("Exception during bus voltage register showing", ioe);
+		}
+
+		showRegister("Bus voltage register : ", "BD12 \t BD11 \t BD10 \t BD9 \t BD8 \t BD7 \t BD6 \t BD5 \t BD4 \t BD3 \t BD2 \t BD1 \t BD0 \t - \t CNVR \t OVF", reg_busvoltage);
+	}
+
+	/**
+	 * Logs a register at INFO level : its name, the bit names and one column per bit (MSB first)
+	 * @param name   Register name
+	 * @param header Bit names
+	 * @param value  Register content
+	 */
+	private void showRegister(String name, String header, int value)
+	{
+		StringBuilder bits = new StringBuilder(48);
+
+		for (int bit = 15; bit >= 0; bit--)
+		{
+			bits.append((value >>> bit) & 1).append("\t ");
+		}
+
+		DiagnosticSink sink = diagnostics;
+		sink.log(DiagnosticSink.Level.INFO, name);
+		sink.log(DiagnosticSink.Level.INFO, header);
+		sink.log(DiagnosticSink.Level.INFO, bits.toString());
+	}
+
+	/**
+	 * Shows all the INA219 registers in a user-friendly way
+	 */
+	public void show_all_registers() throws IOException
+	{
+		show_configuration();
+		show_calibration();
+		show_shunt_voltage_register();
+		show_bus_voltage_register();
+		show_current_register();
+		show_power_register();
+
+	}
+
+	/**
+	 * Reads the shunt resistor voltage (Vin+ - Vin-) in V
+	 * @return Shunt resistor voltage in V
+	 */
+	public double read_shunt_voltage() throws IOException
+	{
+		double shunt_voltage_V = 0;
+
+		try
+		{
+			// Sign extension depends on the PGA range, LSB = 10 uV
+			shunt_voltage_V = syncedScaling().shuntVoltage(readRegister(ina219_reg_shuntvoltage));
+
+			debug("Shunt voltage : ", shunt_voltage_V, " V");
+		}
+
+		catch (IOException ioe) 
+		{
+			error("Exception during shunt voltage reading", ioe);
+		}
+
+		return shunt_voltage_V;
+	}
+
+	/**
+	 * Reads the bus voltage (Vin- - GND) voltage in V
+	 * @return Bus voltage in V
+	 */
+	public double read_bus_voltage() throws IOException
+	{
+		double bus_voltage_V = 0;
+
+		try
+		{
+			// Drops the CNVR and OVF flags, LSB = 4 mV
+			bus_voltage_V = RegisterDecoder.busVoltage(readRegister(ina219_reg_busvoltage));
+
+			debug("Bus voltage : ", bus_voltage_V, " V");
+
+		}
+
+		catch (IOException ioe) 
+		{
+			error("Exception during bus voltage reading", ioe);
+		}
+
+		return bus_voltage_V;
+	}
+
+	/**
+	 * Reads the current flowing through the shunt resistor in A
+	 * Current register defaults to 0 because the calibration register defaults to 0, yielding a zero current value until the calibration register is programmed.
+	 * Call a calibration function before calling read_current(), unless the device was calibrated beforehand (its registers are read on the first call)
+	 * @return Current flowing through the shunt resistor in A
+	 */
+	public double read_current() throws IOException
+	{
+		double current = 0;
+
+		try
+		{
+			// Twos-complement counts of Current_LSB
+			current = syncedScaling().current(readRegister(ina219_reg_current));
+
+			debug("Current : ", current, " A");
+
+		}
+		catch (IOException ioe) 
+		{
+			error("Exception during current reading", ioe);
+		}
+
+		return current;
+	}
+
+	/**
+	 * Reads the power (current x bus voltage, Power_LSB = 20 x Current_LSB) in W
+	 * Power register defaults to 0 because the calibration register defaults to 0, yielding a zero power value until the calibration register is programmed.
+	 * Call a calibration function before calling read_power(), unless the device was calibrated beforehand (its registers are read on the first call)
+	 * @return Power in W
+	 */
+	public double read_power() throws IOException
+	{
+		double power = 0;
+
+		try
+		{
+			// Unsigned counts of Power_LSB
+			power = syncedScaling().power(readRegister(ina219_reg_power));
+
+			debug("Power : ", power, " W");
+
+		}
+		catch (IOException ioe)
+		{
+			error("Exception during power reading", ioe);
+		}
+
+		return power;
+	}
+
+	/**
+	 * Reads the shunt voltage, bus voltage, current and power registers into the provided sample
+	 * Allocation-free and silent : intended for high-rate sampling loops. The sample can be reused for every call.
+	 * Call a calibration function before relying on the current and power values
+	 * @param  sample      The sample to fill
+	 * @return             The filled sample
+	 * @throws IOException Input/Output Exception
+	 */
+	public Sample readInto(Sample sample) throws IOException
+	{
+		lock.lock();
+
+		try
+		{
+			sample.timestampNanos       = System.nanoTime();
+
+			sample.shuntVoltageRegister = readRegister(ina219_reg_shuntvoltage);
+			sample.busVoltageRegister   = readRegister(ina219_reg_busvoltage);
+			sample.currentRegister      = readRegister(ina219_reg_current);
+			sample.powerRegister        = readRegister(ina219_reg_power);
+
+			return decode(sample);
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Reads a new conversion into the provided sample, if one has completed since the last power register read
+	 * The bus voltage register is read first : when its CNVR bit is clear, nothing else is read and the sample is left untouched.
+	 * Otherwise the shunt voltage, current and power registers are read, the power register read clearing CNVR,
+	 * so every conversion is returned exactly once.
+	 * @param  sample      The sample to fill
+	 * @return             True if the sample was filled with a new conversion, false if the conversion is not ready
+	 * @throws IOException Input/Output Exception
+	 */
+	public boolean readIntoIfReady(Sample sample) throws IOException
+	{
+		lock.lock();
+
+		try
+		{
+			long timestampNanos = System.nanoTime();
+			int busVoltageRegister = readRegister(ina219_reg_busvoltage);
+
+			if (!RegisterDecoder.isConversionReady(busVoltageRegister))
+			{
+				return false;
+			}
+
+			sample.timestampNanos       = timestampNanos;
+			sample.busVoltageRegister   = busVoltageRegister;
+			sample.shuntVoltageRegister = readRegister(ina219_reg_shuntvoltage);
+			sample.currentRegister      = readRegister(ina219_reg_current);
+			sample.powerRegister        = readRegister(ina219_reg_power);
+
+			decode(sample);
+
+			return true;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Triggers a single conversion and reads its result once complete
+	 * The configuration register is written with the triggered mode (the write starts the conversion), the thread waits the
+	 * conversion time of the configured ADC resolutions (parkNanos, then a spin tail), and only the converted registers are read :
+	 * shunt voltage and current for SVOLT, bus voltage for BVOLT, all four for SANDBVOLT. The registers that are not converted are set to 0.
+	 * The bus voltage register is always read first to check CNVR, and polled in the unlikely case the conversion is late
+	 * (IOException after twice the conversion time).
+	 * The device lock is released during the wait : IOException if another thread changed the configuration meanwhile.
+	 * @param  triggeredMode One of the SVOLT / BVOLT / SANDBVOLT triggered modes
+	 * @param  sample        The sample to fill, timestamped at the trigger
+	 * @return               The filled sample
+	 * @throws IOException   Input/Output Exception
+	 */
+	public Sample measureOnce(OperatingMode triggeredMode, Sample sample) throws IOException
+	{
+		ConfigRegister trigger;
+		long conversionNanos;
+
+		lock.lock();
+
+		try
+		{
+			// Synced first : on a new driver the shadow copy still holds the power-on settings, not the device ones
+			trigger = getConfiguration().withOperatingMode(triggeredMode);
+
+			if (!trigger.isTriggered())
+			{
+				throw new IllegalArgumentException("Not a triggered operating mode : " + triggeredMode);
+			}
+
+			writeConfiguration(trigger);
+			sample.timestampNanos = System.nanoTime();
+
+			conversionNanos = trigger.getConversionTimeMicros() * 1000L;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+
+		// Waited without the lock : the other threads keep the device meanwhile, and a virtual thread parks instead of pinning
+		Deadlines.awaitNanoTime(sample.timestampNanos + conversionNanos);
+
+		lock.lock();
+
+		try
+		{
+			if (!trigger.equals(configuration))
+			{
+				throw new IOException("Configuration changed during the triggered conversion");
+			}
+
+			int busVoltageRegister;
+
+			while (!RegisterDecoder.isConversionReady(busVoltageRegister = readRegister(ina219_reg_busvoltage)))
+			{
+				if (System.nanoTime() - sample.timestampNanos > 2 * conversionNanos)
+				{
+					throw new IOException("Triggered conversion not ready after " + 2 * conversionNanos / 1000 + " us");
+				}
+
+				Thread.onSpinWait();
+			}
+
+			boolean shunt = triggeredMode != OperatingMode.INA219_CONFIG_MODE_BVOLT_TRIGGERED;
+			boolean bus   = triggeredMode != OperatingMode.INA219_CONFIG_MODE_SVOLT_TRIGGERED;
+
+			sample.busVoltageRegister   = bus ? busVoltageRegister : 0;
+			sample.shuntVoltageRegister = shunt ? readRegister(ina219_reg_shuntvoltage) : 0;
+			sample.currentRegister      = shunt ? readRegister(ina219_reg_current) : 0;
+			sample.powerRegister        = shunt && bus ? readRegister(ina219_reg_power) : 0;
+
+			return decode(sample);
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Starts issuing one-shot measurements in the background on a fixed-rate timeline
+	 * @param  buffer        Destination of the samples
+	 * @param  triggeredMode One of the SVOLT / BVOLT / SANDBVOLT triggered modes
+	 * @param  periodNanos   Time between two triggers, at least the conversion time
+	 * @return               The running sampler, to be stopped with stop()
+	 * @throws IOException   Input/Output Exception
+	 */
+	public Ina219Sampler startTriggeredSampling(SampleRingBuffer buffer, OperatingMode triggeredMode, long periodNanos) throws IOException
+	{
+		Ina219Sampler sampler = new Ina219Sampler(this, buffer, triggeredMode, periodNanos);
+		sampler.start();
+
+		return sampler;
+	}
+
+	/**
+	 * Decodes the raw registers of a sample with the scale factors of the current configuration and calibration
+	 * @param  sample      The sample, raw registers filled
+	 * @return             The sample
+	 * @throws IOException Input/Output Exception while syncing the shadow copies
+	 */
+	private Sample decode(Sample sample) throws IOException
+	{
+		return syncedScaling().decode(sample);
+	}
+
+	/**
+	 * Scale factors of the device registers : the shadow copies are synced first if this driver has not written nor read
+	 * them yet, so a device configured and calibrated beforehand (another driver instance, another process) decodes right
+	 * @return             The scale factors
+	 * @throws IOException Input/Output Exception
+	 */
+	private Ina219Scaling syncedScaling() throws IOException
+	{
+		if (!shadowSynced)
+		{
+			lock.lock();
+
+			try
+			{
+				if (!shadowSynced)
+				{
+					resyncRegisters();
+				}
+			}
+			finally
+			{
+				lock.unlock();
+			}
+		}
+
+		return scaling;
+	}
+
+	/**
+	 * Starts sampling the device in the background, in shunt and bus voltage continuous mode
+	 * The sampling period follows the configured ADC conversion times
+	 * @param  buffer      Destination of the samples
+	 * @return             The running sampler, to be stopped with stop()
+	 * @throws IOException Input/Output Exception while switching to continuous mode
+	 */
+	public Ina219Sampler startSampling(SampleRingBuffer buffer) throws IOException
+	{
+		return startSampling(buffer, Ina219Sampler.Mode.FIXED_RATE);
+	}
+
+	/**
+	 * Starts sampling the device in the background, in shunt and bus voltage continuous mode
+	 * @param  buffer      Destination of the samples
+	 * @param  mode        FIXED_RATE (one read per conversion time) or CONVERSION_READY (one sample per completed conversion, CNVR polling)
+	 * @return             The running sampler, to be stopped with stop()
+	 * @throws IOException Input/Output Exception while switching to continuous mode
+	 */
+	public Ina219Sampler startSampling(SampleRingBuffer buffer, Ina219Sampler.Mode mode) throws IOException
+	{
+		Ina219Sampler sampler = new Ina219Sampler(this, buffer, mode);
+		sampler.start();
+
+		return sampler;
+	}
+
+	/**
+	 * Starts sampling the device in the background and publishes the samples to the subscribers of the publisher
+	 * The sampler also fills its own ring buffer (getBuffer()), sized like the publisher queues
+	 * @param  publisher   Destination of the samples, shared with other samplers if needed (see Ina219Sampler.setSource())
+	 * @param  mode        FIXED_RATE or CONVERSION_READY
+	 * @return             The running sampler, to be stopped with stop()
+	 * @throws IOException Input/Output Exception while switching to continuous mode
+	 */
+	public Ina219Sampler startPublishing(SamplePublisher publisher, Ina219Sampler.Mode mode) throws IOException
+	{
+		Ina219Sampler sampler = new Ina219Sampler(this, new SampleRingBuffer(publisher.getBufferSize()), mode);
+		sampler.addListener(publisher);
+		sampler.start();
+
+		return sampler;
+	}
+
+	/**
+	 * Reads a 16-bit register through the transport
+	 * @param  register    Address of the register to read
+	 * @return             Unsigned register content (0..65535)
+	 * @throws IOException Input/Output Exception
+	 */
+	private int readRegister(int register) throws IOException
+	{
+		lock.lock();
+
+		try
+		{
+			int value = transport.readRegister(register);
+			busTransactions++;
+
+			return value;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Writes a 16-bit register through the transport
+	 * @param  register    Address of the register to write
+	 * @param  value       Register content (0..65535)
+	 * @throws IOException Input/Output Exception
+	 */
+	private void writeRegister(int register, int value) throws IOException
+	{
+		lock.lock();
+
+		try
+		{
+			transport.writeRegister(register, value);
+			busTransactions++;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Routes the driver diagnostics to the provided sink (DiagnosticSink.NONE to silence the driver, the default)
+	 * @param diagnostics Destination of the progress messages, register dumps, readings (DEBUG) and errors
+	 */
+	public void setDiagnosticSink(DiagnosticSink diagnostics)
+	{
+		this.diagnostics = diagnostics == null ? DiagnosticSink.NONE : diagnostics;
+	}
+
+	/**
+	 * @return Destination of the driver diagnostics
+	 */
+	public DiagnosticSink getDiagnosticSink()
+	{
+		return diagnostics;
+	}
+
+	/**
+	 * Logs a reading at DEBUG level, the message being built only if DEBUG is enabled
+	 */
+	private void debug(String label, double value, String unit)
+	{
+		DiagnosticSink sink = diagnostics;
+
+		if (sink.isEnabled(DiagnosticSink.Level.DEBUG))
+		{
+			sink.log(DiagnosticSink.Level.DEBUG, label + value + unit);
+		}
+	}
+
+	/**
+	 * Logs a progress message at INFO level
+	 */
+	private void info(String message)
+	{
+		DiagnosticSink sink = diagnostics;
+
+		if (sink.isEnabled(DiagnosticSink.Level.INFO))
+		{
+			sink.log(DiagnosticSink.Level.INFO, message);
+		}
+	}
+
+	/**
+	 * Logs an error at ERROR level
+	 * @param message What failed
+	 * @param cause   Exception at the origin of the error, null if none
+	 */
+	void error(String message, Throwable cause)
+	{
+		DiagnosticSink sink = diagnostics;
+
+		if (sink.isEnabled(DiagnosticSink.Level.ERROR))
+		{
+			sink.log(DiagnosticSink.Level.ERROR, message, cause);
+		}
+	}
+
+	/**
+	 * Gets the content of the Configuration register
+	 */
+	public int getConfigurationRegister() throws IOException
+	{
+		int reg_config = 0;
+
+		try
+		{
+			// Short = 2 bytes = 16 bits
+			reg_config = (short) readRegister(ina219_reg_config);
+
+			updateConfigurationShadow(ConfigRegister.of(reg_config));
+		}
+		catch (IOException ioe)
+		{
+			error("Exception during configuration register reading", ioe);
+		}
+
+		return reg_config;
+	}
+
+	/**
+	 * Gets the content of the Calibration register
+	 */
+	public int getCalibrationRegister() throws IOException
+	{
+		int reg_calibration = 0;
+
+		lock.lock();
+
+		try
+		{
+			// Short = 2 bytes = 16 bits
+			reg_calibration = (short) readRegister(ina219_reg_calibration);
+
+			this.calibration = reg_calibration & 0xFFFF;
+			updateScaling();
+		}
+
+		catch (IOException ioe)
+		{
+			error("Exception during calibration register reading", ioe);
+		}
+		finally
+		{
+			lock.unlock();
+		}
+
+		return reg_calibration;
+	}
+
+	/**
+	 * Gets the content of the Shunt Voltage register
+	 */
+	public int getShuntVoltageRegister() throws IOException
+	{
+		int reg_shuntvoltage = 0;
+
+		try
+		{
+			// Short = 2 bytes = 16 bits
+			reg_shuntvoltage = (short) readRegister(ina219_reg_shuntvoltage);
+		}
+
+		catch (IOException ioe)
+		{
+			error("Exception during shunt voltage register reading", ioe);
+		}
+
+		return reg_shuntvoltage;
+	}
+
+	/**
+	 * Gets the content of the Bus Voltage register
+	 */
+	public int getBusVoltageRegister() throws IOException
+	{
+		int reg_busvoltage = 0;
+
+		try
+		{
+			// Short = 2 bytes = 16 bits
+			reg_busvoltage = (short) readRegister(ina219_reg_busvoltage);
+		}
+		catch (IOException ioe)
+		{
+			error("Exception during bus voltage register reading", ioe);
+		}
+
+		return reg_busvoltage;
+	}
+
+	/**
+	 * Gets the content of the current register
+	 */
+	public int getCurrentRegister() throws IOException
+	{
+		int reg_current = 0;
+
+		try
+		{
+			// Short = 2 bytes = 16 bits
+			reg_current = (short) readRegister(ina219_reg_current);
+		}
+		catch (IOException ioe)
+		{
+			error("Exception during current register reading", ioe);
+		}
+		
+		return reg_current;
+	}
+
+	/**
+	 * Gets the content of the power register
+	 */
+	public int getPowerRegister() throws IOException
+	{
+		int reg_power = 0;
+
+		try
+		{
+			// Short = 2 bytes = 16 bits
+			reg_power = (short) readRegister(ina219_reg_power);
+		}
+		catch (IOException ioe)
+		{
+			error("Exception during power register reading", ioe);
+		}
+
+		return reg_power;
+	}
+
+	/**
+	 * Gets the configuration register from the shadow copy
+	 * The device is only read on the first call, or after resyncRegisters()
+	 * @return Configuration register
+	 */
+	public ConfigRegister getConfiguration() throws IOException
+	{
+		lock.lock();
+
+		try
+		{
+			if (shadowSynced)
+			{
+				savedTransactions++;
+			}
+			else
+			{
+				resyncRegisters();
+			}
+
+			return configuration;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Gets the calibration register from the shadow copy
+	 * The device is only read on the first call, or after resyncRegisters()
+	 * @return Calibration register
+	 */
+	public int getCalibration() throws IOException
+	{
+		lock.lock();
+
+		try
+		{
+			if (shadowSynced)
+			{
+				savedTransactions++;
+			}
+			else
+			{
+				resyncRegisters();
+			}
+
+			return calibration;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Reloads the configuration and calibration shadow copies from the device
+	 * Needed only if the device was reconfigured outside of this driver (power cycle, other process)
+	 * @throws IOException Input/Output Exception
+	 */
+	public void resyncRegisters() throws IOException
+	{
+		lock.lock();
+
+		try
+		{
+			updateConfigurationShadow(ConfigRegister.of(readRegister(ina219_reg_config)));
+			this.calibration = readRegister(ina219_reg_calibration);
+			this.shadowSynced = true;
+			updateScaling();
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return Number of I2C transactions (register reads and writes) issued since the driver was created
+	 */
+	public long getBusTransactionCount()
+	{
+		lock.lock();
+
+		try
+		{
+			return busTransactions;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return Number of register reads served from the shadow copies instead of the I2C bus
+	 */
+	public long getSavedTransactionCount()
+	{
+		lock.lock();
+
+		try
+		{
+			return savedTransactions;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Gets the Bus Voltage Range setting
+	 * @return Bus Voltage Range setting (1 = 16V, 2 = 32V), -1 on error
+	 */
+	public int getVoltageRangeSetting() throws IOException
+	{
+		return settingIndex(getConfiguration().getBusVoltageRange(), "Error reading Voltage Range setting");
+	}
+
+	/**
+	 * Gets the Gain setting
+	 * @return Gain setting (1 = Gain 1 ... 4 = Gain 1/8), -1 on error
+	 */
+	public int getGainSetting() throws IOException
+	{
+		return settingIndex(getConfiguration().getGain(), "Error reading Gain setting. PG0 and PG1 bits out of range");
+	}
+
+	/**
+	 * Gets the Bus ADC Resolution setting
+	 * @return Bus ADC Resolution Setting (1 = 9 bits ... 4 = 12 bits), -1 on error
+	 */
+	public int getBusADCResolutionSetting() throws IOException
+	{
+		return settingIndex(getConfiguration().getBusADCResolution(), "Error during Bus ADC Resolution Setting reading : BADC bits out of range");
+	}
+
+	/**
+	 * Gets the Shunt ADC Resolution setting
+	 * @return Shunt ADC Resolution setting (1 = 9 bits 1 sample ... 11 = 12 bits 128 samples), -1 on error
+	 */
+	public int getShuntADCResolutionSetting() throws IOException
+	{
+		return settingIndex(getConfiguration().getShuntADCResolution(), "Error during Shunt ADC Resolution Setting reading : SADC bits out of range");
+	}
+
+	/**
+	 * Gets the Operating Mode setting
+	 * @return Operating Mode setting (1 = Powerdown ... 8 = Shunt and Bus Voltage Continuous), -1 on error
+	 */
+	public int getOperatingModeSetting() throws IOException
+	{
+		return settingIndex(getConfiguration().getOperatingMode(), "Error during Operating Mode reading : MODE bits out of range");
+	}
+
+	/**
+	 * Sets the Bus Voltage Range to the provided mode (16V / 32V) in the configuration register
+	 * @param busVoltageRange Bus Voltage Range
+	 */
+	public void setBusVoltageRange(BusVoltageRange busVoltageRange) throws IOException
+	{
+		try
+		{
+			writeConfiguration(getConfiguration().withBusVoltageRange(busVoltageRange));
+		}
+		catch (IOException ioe)
+		{
+			error("Exception during Bus Voltage setting", ioe);
+		}
+	}
+
+	/**
+	 * Sets the Gain to the provided mode (1, 1/2, 1/4, 1/8) in the configuration register
+	 * @param gain Gain
+	 */
+	public void setGain(Gain gain) throws IOException
+	{
+		try
+		{
+			writeConfiguration(getConfiguration().withGain(gain));
+		}
+		catch (IOException ioe) 
+		{
+			error("Exception during Gain setting", ioe);
+		}
+	}
+
+	/**
+	 * Sets the Bus ADC Resolution in the configuration register
+	 * @param busADCResolution Bus ADC Resolution
+	 */
+	public void setBusADCResolution(BusADCResolution busADCResolution) throws IOException
+	{
+		try
+		{
+			writeConfiguration(getConfiguration().withBusADCResolution(busADCResolution));
+		}
+		catch (IOException ioe)
+		{
+			error("Exception during Bus ADC Resolution setting", ioe);
+		}
+	}
+
+	/**
+	 * Sets the Shunt ADC Resolution in the configuration register
+	 * @param shuntADCResolution Shunt ADC Resolution
+	 */
+	public void setShuntADCResolution(ShuntADCResolution shuntADCResolution) throws IOException
+	{
+		try
+		{
+			writeConfiguration(getConfiguration().withShuntADCResolution(shuntADCResolution));
+		}
+		catch (IOException ioe) 
+		{
+			error("Exception during Shunt ADC Resolution setting", ioe);
+		}
+	} 
+
+	/**
+	 * Sets the Operating Mode in the configuration register
+	 * @param operatingMode Operating Mode
+	 */
+	public void setOperatingMode(OperatingMode operatingMode) throws IOException
+	{
+		try
+		{
+			writeConfiguration(getConfiguration().withOperatingMode(operatingMode));
+		}
+		catch (IOException ioe) 
+		{
+			error("Exception during Operating Mode setting", ioe);
+		}
+	}
+
+	/**
+	 * Writes the configuration register and keeps the current settings in sync
+	 * @param  configuration The configuration to write
+	 * @throws IOException   Input/Output Exception
+	 */
+	private void writeConfiguration(ConfigRegister configuration) throws IOException
+	{
+		lock.lock();
+
+		try
+		{
+			writeRegister(ina219_reg_config, configuration.getValue());
+
+			updateConfigurationShadow(configuration);
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Updates the configuration shadow copy
+	 * @param configuration Configuration register content
+	 */
+	private void updateConfigurationShadow(ConfigRegister configuration)
+	{
+		lock.lock();
+
+		try
+		{
+			// RST self-clears
+			this.configuration = configuration.withReset(false);
+			updateScaling();
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Recomputes the scale factors from the shadow copies. Called with the lock held.
+	 */
+	private void updateScaling()
+	{
+		this.scaling = Ina219Scaling.of(configuration, calibration, shuntOhms);
+	}
+
+	/**
+	 * Menu index of a configuration setting : its position in the enum, the mask being first
+	 * @param  setting The setting decoded from the configuration register, null if out of range
+	 * @param  error   Message logged when the setting is out of range
+	 * @return         Setting index, -1 on error
+	 */
+	private int settingIndex(Enum<?> setting, String error)
+	{
+		if (setting == null)
+		{
+			error(error, null);
+			return -1;
+		}
+
+		return setting.ordinal();
+	}
+
+	/**
+	 * Generates a system reset that is the same as power-on reset. Resets all registers to default values.
+	 */
+	public void reset() throws IOException
+	{
+		info("Resetting device ...");
+		
+		// The write and the shadow update are one step for the other threads
+		lock.lock();
+
+		try
+		{
+			// This bit self-clears.
+			writeRegister(ina219_reg_config, ina219_config_reset);
+
+			// All registers are back to their power-on values
+			this.configuration = ConfigRegister.DEFAULT;
+			this.calibration   = 0;
+			updateScaling();
+			this.shadowSynced  = true;
+
+			/*
+			Runtime runtime = Runtime.getRuntime();
+			String[] args = { "/bin/sh", "-c", "i2cset -y 1 0x40 0x00 0x8000 w" };
+			final Process process = runtime.exec(args);
+			*/
+
+			info("Successful device reset");
+		}
+		catch (IOException ioe)
+		{
+			error("Exception during device reset", ioe);
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Converts the twos-complement decimal representation to the absolute value represented by the twos-complement
+	 * 0000 1111 1010 0000 = 4000 in binary (and twos-complement) becomes 4000
+	 * 1111 0000 0110 0000 = 61536 in binary and -4000 in twos-complement becomes 4000
+	 * @param  complement The twos-complement decimal representation to convert
+	 * @return            The absolute value of the twos-complement representated number
+	 * @deprecated        String-based and slow, use RegisterDecoder.magnitude(int) or the RegisterDecoder register decoders
+	 */
+	@Deprecated
+	public int twosComplement(int complement)
+	{
+		int uncomplemented = 0;
+
+		String complemented_binary_string = "";
+		String uncomplemented_string      = "";
+
+		// Avoiding collisions with the two ways of writing 0 in 16-bit twos-complement format (0000000000000000 and 10000000000000000) because 0 can be +0 or -0
+		if (complement < 0 || complement == 0 || complement == 1)
+		{
+			return 0;
+		}
+
+		// Formatting 16-bit twos-complement binary String
+		complemented_binary_string = String.format("%16s", Integer.toBinaryString(complement));
+		complemented_binary_string = complemented_binary_string.replace(' ', '0');
+
+		// Truncates sign bit
+		complemented_binary_string = complemented_binary_string.substring(1, complemented_binary_string.length());
+
+		// Negative number
+		if (isNegative(complement))
+		{
+
+			// Substracting one added by the twos-complement conversion
+			complement = Integer.parseInt(complemented_binary_string, 2);
+			complement--;
+
+			// Formatting 16-bit twos-complement binary String
+			complemented_binary_string = String.format("%15s", Integer.toBinaryString(complement));
+			complemented_binary_string = complemented_binary_string.replace(' ', '0');
+
+			// Complementing binary string
+			uncomplemented_string = complement(complemented_binary_string);
+
+		}
+		// Positive number
+		else
+		{
+			uncomplemented_string = complemented_binary_string;
+		}
+
+		uncomplemented = Integer.parseInt(uncomplemented_string, 2);
+
+		return uncomplemented;
+	}
+
+	/**
+	 * Tells if a twos-complement formated decimal representation of a number is a negative number by checking its sign-bit
+	 * Warning : 0 has 2 representations (0000000000000000 and 100000000000000) in twos-complement format and can be either flagged positive or negative
+	 * @param  complement The twos-complement decimal number to sign-check
+	 * @return            True if the number is negative, false if the number is positive 
+	 * @deprecated        String-based and slow, use the sign of the RegisterDecoder register decoders results
+	 */
+	@Deprecated
+	public boolean isNegative(int complement)
+	{
+		String sign = "";
+		String complemented_binary_string = "";
+
+		// Formatting 16-bit twos-complement binary String
+		complemented_binary_string = String.format("%16s", Integer.toBinaryString(complement));
+		complemented_binary_string = complemented_binary_string.replace(' ', '0');
+
+		sign = complemented_binary_string.substring(0, 1);
+
+		// Negative number
+		if (sign.equals("1"))
+		{
+			return true;
+		}
+		// Positive number
+		else if (sign.equals("0"))
+		{
+			return false;
+		}
+		else
+		{
+			return false;
+		}
+	}
+
+	/**
+	 * Complements (0 --> 1 / 1 --> 0) a String-formatted binary number
+	 * @param  toComplement The binary number to complement
+	 * @return              The complemented binary number
+	 * @deprecated          String-based and slow, use the bitwise ~ operator
+	 */
+	@Deprecated
+	public String complement(String toComplement)
+	{
+		String complemented = "";
+
+		// Complementing binary string
+		for (int i = 0; i < toComplement.length(); i++)
+		{
+
+			if (toComplement.charAt(i) == '0')
+			{
+				complemented += '1';
+			}
+
+			else if (toComplement.charAt(i) == '1')
+			{
+				complemented += '0';
+			}
+
+			else
+			{
+				error("Error in complementation conversion", null);
+			}
+
+		}
+
+		return complemented;
+	}
+}
@@ -0,0 +1,186 @@
+/**
+ * Calibration computed from the shunt resistance and the maximum expected current, as in the INA219 datasheet (8.5.1)
+ * Current_LSB is the smallest one that keeps the maximum expected current within the 15-bit current register
+ * (Max_Expected_Current / (2^15 - 1)), the calibration register is Cal = trunc(0.04096 / (Current_LSB x R_SHUNT)), and
+ * Power_LSB = 20 x Current_LSB. The LSBs returned are the ones the device actually applies with the truncated Cal
+ * (FS0 cleared), slightly larger than the ideal ones, so the maximum expected current never overflows.
+ * The gain is the smallest PGA range holding Max_Expected_Current x R_SHUNT : the best shunt voltage resolution.
+ *
+ * Ina219Calibration calibration = Ina219Calibration.compute(0.1, 2.0);
+ * ina219.calibrate(calibration);
+ *
+ * @author Alexandre Scieux
+ * @version 1.0
+ */
+
+package sensor;
+
+public final class Ina219Calibration
+{
+	/* Fixed scaling of the calibration equation : Cal = trunc(0.04096 / (Current_LSB x R_SHUNT)) */
+	public static final double CALIBRATION_SCALE = 0.04096;
+
+	/* Power_LSB = 20 x Current_LSB */
+	public static final int POWER_LSB_RATIO = 20;
+
+	/* Largest count of the current register : 15 bits plus sign */
+	private static final double CURRENT_FULL_SCALE = 32767;
+
+	/* Largest calibration, FS0 being a void bit */
+	private static final int MAX_CALIBRATION = 0xFFFE;
+
+	private static final double PGA_1_RANGE_V = 0.04;
+
+	private static final Ina219.Gain[] gains =
+	{
+		Ina219.Gain.INA219_CONFIG_GAIN_1_40MV,
+		Ina219.Gain.INA219_CONFIG_GAIN_2_80MV,
+		Ina219.Gain.INA219_CONFIG_GAIN_4_160MV,
+		Ina219.Gain.INA219_CONFIG_GAIN_8_320MV
+	};
+
+	private final double shuntOhms;
+	private final double maxExpectedCurrent;
+	private final Ina219.Gain gain;
+	private final int calibration;
+	private final double currentLsb;
+	private final double powerLsb;
+
+	private Ina219Calibration(double shuntOhms, double maxExpectedCurrent, Ina219.Gain gain, int calibration)
+	{
+		this.shuntOhms          = shuntOhms;
+		this.maxExpectedCurrent = maxExpectedCurrent;
+		this.gain               = gain;
+		this.calibration        = calibration;
+		this.currentLsb         = currentLsb(calibration, shuntOhms);
+		this.powerLsb           = POWER_LSB_RATIO * currentLsb;
+	}
+
+	/**
+	 * Computes the calibration
+	 * @param  shuntOhms                Shunt resistance, in ohms
+	 * @param  maxExpectedCurrent       Largest current to measure, in A (either direction)
+	 * @return                          The calibration
+	 * @throws IllegalArgumentException If the shunt voltage at that current exceeds the 320 mV range
+	 */
+	public static Ina219Calibration compute(double shuntOhms, double maxExpectedCurrent)
+	{
+		if (!(shuntOhms > 0) || !(maxExpectedCurrent > 0))
+		{
+			throw new IllegalArgumentException("Shunt resistance and maximum expected current must be positive");
+		}
+
+		double shuntVoltage = maxExpectedCurrent * shuntOhms;
+		Ina219.Gain gain = null;
+
+		for (Ina219.Gain candidate : gains)
+		{
+			// Tolerance for the rounding of the product (3.2 A x 0.1 ohm)
+			if (shuntVoltage <= fullScale(candidate) * (1 + 1e-9))
+			{
+				gain = candidate;
+				break;
+			}
+		}
+
+		if (gain == null)
+		{
+			throw new IllegalArgumentException(String.format("Shunt voltage out of range : %.3f V at %.3f A", shuntVoltage, maxExpectedCurrent));
+		}
+
+		// Smallest LSB, then the calibration the device can hold : a larger LSB if the shunt is too small for it
+		double minimumLsb = maxExpectedCurrent / CURRENT_FULL_SCALE;
+		double calibration = Math.floor(CALIBRATION_SCALE / (minimumLsb * shuntOhms));
+
+		if (calibration < 2)
+		{
+			throw new IllegalArgumentException("Shunt resistance and current too large for the calibration register");
+		}
+
+		return new Ina219Calibration(shuntOhms, maxExpectedCurrent, gain, (int) Math.min(calibration, MAX_CALIBRATION) & MAX_CALIBRATION);
+	}
+
+	/**
+	 * @param  calibration Calibration register content
+	 * @param  shuntOhms   Shunt resistance, in ohms
+	 * @return             Current_LSB applied by the device, in A (0 if the calibration is 0 : no current measured)
+	 */
+	public static double currentLsb(int calibration, double shuntOhms)
+	{
+		int effective = calibration & MAX_CALIBRATION;
+
+		return effective > 0 ? CALIBRATION_SCALE / (effective * shuntOhms) : 0;
+	}
+
+	/**
+	 * @param  gain PGA setting
+	 * @return      Shunt voltage range of that setting, in V (0.04 to 0.32)
+	 */
+	public static double fullScale(Ina219.Gain gain)
+	{
+		return PGA_1_RANGE_V * (1 << ConfigRegister.DEFAULT.withGain(gain).getGainBits());
+	}
+
+	/**
+	 * @return Shunt resistance, in ohms
+	 */
+	public double getShuntOhms()
+	{
+		return shuntOhms;
+	}
+
+	/**
+	 * @return Maximum expected current the calibration was computed for, in A
+	 */
+	public double getMaxExpectedCurrent()
+	{
+		return maxExpectedCurrent;
+	}
+
+	/**
+	 * @return Smallest PGA range holding the maximum expected shunt voltage
+	 */
+	public Ina219.Gain getGain()
+	{
+		return gain;
+	}
+
+	/**
+	 * @return Calibration register value
+	 */
+	public int getCalibration()
+	{
+		return calibration;
+	}
+
+	/**
+	 * @return Current_LSB, in A
+	 */
+	public double getCurrentLsb()
+	{
+		return currentLsb;
+	}
+
+	/**
+	 * @return Power_LSB, in W
+	 */
+	public double getPowerLsb()
+	{
+		return powerLsb;
+	}
+
+	/**
+	 * @return Largest current measurable before the current register or the PGA range saturates, in A
+	 */
+	public double getMaxMeasurableCurrent()
+	{
+		return Math.min(CURRENT_FULL_SCALE * currentLsb, fullScale(gain) / shuntOhms);
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("Ina219Calibration[shunt=%s ohm, max=%s A, %s, calibration=%d, currentLsb=%.3e A, powerLsb=%.3e W]",
+			shuntOhms, maxExpectedCurrent, gain, calibration, currentLsb, powerLsb);
+	}
+}
@@ -0,0 +1,158 @@
+/**
+ * Complete INA219 setup applied by Ina219.configure(Ina219Configuration)
+ * The configuration register is written in a single transaction, so the device never runs with a half-applied configuration
+ *
+ * Ina219Configuration configuration = Ina219Configuration.builder()
+ *     .gain(Ina219.Gain.INA219_CONFIG_GAIN_2_80MV)
+ *     .shuntADCResolution(Ina219.ShuntADCResolution.INA219_CONFIG_SADCRES_12BIT_8S_4260US)
+ *     .calibration(4096)
+ *     .build();
+ *
+ * @author Alexandre Scieux
+ * @version 1.0
+ */
+
+package sensor;
+
+public final class Ina219Configuration
+{
+	private final ConfigRegister configuration;
+	private final int calibration;
+	private final boolean verify;
+
+	private Ina219Configuration(Builder builder)
+	{
+		this.configuration = builder.configuration;
+		this.calibration   = builder.calibration;
+		this.verify        = builder.verify;
+	}
+
+	/**
+	 * @return A builder starting from the power-on configuration (0x399F), without calibration
+	 */
+	public static Builder builder()
+	{
+		return new Builder(ConfigRegister.DEFAULT);
+	}
+
+	/**
+	 * @param  configuration Configuration register to start from
+	 * @return               A builder starting from the provided configuration, without calibration
+	 */
+	public static Builder builder(ConfigRegister configuration)
+	{
+		return new Builder(configuration);
+	}
+
+	/**
+	 * @return Configuration register to write
+	 */
+	public ConfigRegister getConfiguration()
+	{
+		return configuration;
+	}
+
+	/**
+	 * @return True if the calibration register is written as well
+	 */
+	public boolean hasCalibration()
+	{
+		return calibration >= 0;
+	}
+
+	/**
+	 * @return Calibration register to write, -1 if none
+	 */
+	public int getCalibration()
+	{
+		return calibration;
+	}
+
+	/**
+	 * @return True if the configuration register is read back after the write
+	 */
+	public boolean isVerified()
+	{
+		return verify;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "Ina219Configuration[" + configuration + ", calibration=" + calibration + ", verify=" + verify + "]";
+	}
+
+	public static final class Builder
+	{
+		private ConfigRegister configuration;
+		private int calibration = -1;
+		private boolean verify  = false;
+
+		private Builder(ConfigRegister configuration)
+		{
+			// RST is a command, not a setting
+			this.configuration = configuration.withReset(false);
+		}
+
+		public Builder busVoltageRange(Ina219.BusVoltageRange busVoltageRange)
+		{
+			configuration = configuration.withBusVoltageRange(busVoltageRange);
+			return this;
+		}
+
+		public Builder gain(Ina219.Gain gain)
+		{
+			configuration = configuration.withGain(gain);
+			return this;
+		}
+
+		public Builder busADCResolution(Ina219.BusADCResolution busADCResolution)
+		{
+			configuration = configuration.withBusADCResolution(busADCResolution);
+			return this;
+		}
+
+		public Builder shuntADCResolution(Ina219.ShuntADCResolution shuntADCResolution)
+		{
+			configuration = configuration.withShuntADCResolution(shuntADCResolution);
+			return this;
+		}
+
+		public Builder operatingMode(Ina219.OperatingMode operatingMode)
+		{
+			configuration = configuration.withOperatingMode(operatingMode);
+			return this;
+		}
+
+		/**
+		 * @param  calibration Calibration register value (0..65535), written right after the configuration register
+		 * @return             This builder
+		 */
+		public Builder calibration(int calibration)
+		{
+			// Buffer/Register overflow check
+			if (calibration < 0 || calibration > 65535)
+			{
+				throw new IllegalArgumentException("Calibration value out of range : " + calibration);
+			}
+
+			this.calibration = calibration;
+			return this;
+		}
+
+		/**
+		 * @param  verify True to read the configuration register back and fail if it does not match
+		 * @return        This builder
+		 */
+		public Builder verify(boolean verify)
+		{
+			this.verify = verify;
+			return this;
+		}
+
+		public Ina219Configuration build()
+		{
+			return new Ina219Configuration(this);
+		}
+	}
+}
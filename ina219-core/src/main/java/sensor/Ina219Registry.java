@@ -0,0 +1,390 @@
+/**
+ * Registry of INA219 devices spread over several I2C buses and addresses (0x40 to 0x4F on each bus)
+ * Devices are polled with one worker thread per bus : all buses are read in parallel, the devices of a bus one after the other.
+ * Each poll round fills a Snapshot holding one sample per device, in registration order, aligned on the round start time.
+ * The samples read successfully are then handed to the listeners (a SamplePublisher for instance), tagged with the device index.
+ *
+ * @author Alexandre Scieux
+ * @version 1.0
+ */
+
+package sensor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Phaser;
+
+public class Ina219Registry implements AutoCloseable
+{
+	private final List<Ina219> devices = new ArrayList<>();
+	private final List<Integer> busNumbers = new ArrayList<>();
+
+	/* Copy-on-write, read by the polling thread after each round */
+	private volatile SampleListener[] listeners = new SampleListener[0];
+
+	/* Created on the first poll : one worker per bus */
+	private List<BusWorker> workers;
+	private Phaser rounds;
+	private volatile boolean closed;
+
+	/* Snapshot being filled by the current round */
+	private volatile Snapshot current;
+
+	/**
+	 * One sample per registered device, taken in the same poll round
+	 */
+	public static final class Snapshot
+	{
+		private long timestampNanos;
+		private final Sample[] samples;
+		private final IOException[] errors;
+
+		private Snapshot(int size)
+		{
+			this.samples = new Sample[size];
+			this.errors  = new IOException[size];
+
+			for (int i = 0; i < size; i++)
+			{
+				samples[i] = new Sample();
+			}
+		}
+
+		/**
+		 * @return Start time of the poll round (System.nanoTime), shared by all the samples
+		 */
+		public long getTimestampNanos()
+		{
+			return timestampNanos;
+		}
+
+		/**
+		 * @return Number of devices
+		 */
+		public int size()
+		{
+			return samples.length;
+		}
+
+		/**
+		 * @param  device Device index, in registration order
+		 * @return        The sample of the device. Its own timestamp is the actual read time.
+		 */
+		public Sample getSample(int device)
+		{
+			return samples[device];
+		}
+
+		/**
+		 * @param  device Device index, in registration order
+		 * @return        True if the device was read successfully in this round
+		 */
+		public boolean isValid(int device)
+		{
+			return errors[device] == null;
+		}
+
+		/**
+		 * @param  device Device index, in registration order
+		 * @return        The read failure of the device in this round, null if none. An unexpected exception of the driver comes wrapped as its cause.
+		 */
+		public IOException getError(int device)
+		{
+			return errors[device];
+		}
+
+		/**
+		 * @return Spread between the first and the last device read of the round, in ns
+		 */
+		public long getSkewNanos()
+		{
+			long first = Long.MAX_VALUE;
+			long last  = Long.MIN_VALUE;
+
+			for (int i = 0; i < samples.length; i++)
+			{
+				if (errors[i] == null)
+				{
+					first = Math.min(first, samples[i].timestampNanos);
+					last  = Math.max(last, samples[i].timestampNanos);
+				}
+			}
+
+			return first <= last ? last - first : 0;
+		}
+	}
+
+	/**
+	 * Polling thread of one bus
+	 */
+	private final class BusWorker implements Runnable
+	{
+		/* Indexes of the devices of the bus, read in this order */
+		private final int[] indexes;
+
+		private BusWorker(int[] indexes)
+		{
+			this.indexes = indexes;
+		}
+
+		@Override
+		public void run()
+		{
+			while (true)
+			{
+				// Round start
+				rounds.arriveAndAwaitAdvance();
+
+				if (closed)
+				{
+					rounds.arriveAndDeregister();
+					return;
+				}
+
+				try
+				{
+					Snapshot snapshot = current;
+
+					for (int index : indexes)
+					{
+						try
+						{
+							devices.get(index).readInto(snapshot.samples[index]);
+							snapshot.samples[index].source = index;
+							snapshot.errors[index] = null;
+						}
+						catch (IOException ioe)
+						{
+							snapshot.errors[index] = ioe;
+						}
+						catch (RuntimeException re)
+						{
+							// A failing device must not stop the bus : recorded like an I/O error
+							snapshot.errors[index] = new IOException("Unexpected failure reading device " + index, re);
+						}
+					}
+				}
+				finally
+				{
+					// Round end, even if the round failed : the polling thread and the other buses never wait forever
+					rounds.arriveAndAwaitAdvance();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Connects to an INA219 through Pi4J and registers it
+	 * @param  busNumber   I2C bus number
+	 * @param  address     Address of the device on the bus
+	 * @return             Index of the device in the snapshots
+	 * @throws IOException Input/Output Exception, or unsupported bus number
+	 */
+	public int open(int busNumber, int address) throws IOException
+	{
+		return register(busNumber, new Ina219(Pi4jTransport.open(busNumber, address)));
+	}
+
+	/**
+	 * Registers a device. All the devices must be registered before the first poll.
+	 * @param  busNumber Bus of the device : devices sharing a bus number are read by the same worker
+	 * @param  ina219    The device
+	 * @return           Index of the device in the snapshots
+	 * @throws IllegalStateException If the registry already polled, or the address is already used on this bus
+	 */
+	public synchronized int register(int busNumber, Ina219 ina219)
+	{
+		if (workers != null || closed)
+		{
+			throw new IllegalStateException("Devices must be registered before the first poll");
+		}
+
+		for (int i = 0; i < devices.size(); i++)
+		{
+			if (busNumbers.get(i) == busNumber && devices.get(i).getAddress() == ina219.getAddress())
+			{
+				throw new IllegalStateException(String.format("Address 0x%02X already registered on bus %d", ina219.getAddress(), busNumber));
+			}
+		}
+
+		devices.add(ina219);
+		busNumbers.add(busNumber);
+
+		return devices.size() - 1;
+	}
+
+	/**
+	 * @return Number of registered devices
+	 */
+	public synchronized int size()
+	{
+		return devices.size();
+	}
+
+	/**
+	 * @param  device Device index, in registration order
+	 * @return        The device
+	 */
+	public synchronized Ina219 getDevice(int device)
+	{
+		return devices.get(device);
+	}
+
+	/**
+	 * @param  device Device index, in registration order
+	 * @return        Bus number of the device
+	 */
+	public synchronized int getBusNumber(int device)
+	{
+		return busNumbers.get(device);
+	}
+
+	/**
+	 * Adds a listener receiving every sample read successfully, on the thread calling poll(), after the round
+	 * Sample.getSource() is the device index. The listener must not block.
+	 * @param listener The listener
+	 */
+	public synchronized void addListener(SampleListener listener)
+	{
+		SampleListener[] current = listeners;
+		SampleListener[] updated = Arrays.copyOf(current, current.length + 1);
+		updated[current.length] = listener;
+
+		listeners = updated;
+	}
+
+	/**
+	 * @param listener The listener to remove
+	 */
+	public synchronized void removeListener(SampleListener listener)
+	{
+		SampleListener[] current = listeners;
+
+		for (int i = 0; i < current.length; i++)
+		{
+			if (current[i] == listener)
+			{
+				SampleListener[] updated = new SampleListener[current.length - 1];
+				System.arraycopy(current, 0, updated, 0, i);
+				System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+
+				listeners = updated;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * @return A snapshot sized for the registered devices, to be reused with pollInto()
+	 */
+	public synchronized Snapshot newSnapshot()
+	{
+		return new Snapshot(devices.size());
+	}
+
+	/**
+	 * Reads every registered device once, all buses in parallel
+	 * @return A new snapshot
+	 */
+	public Snapshot poll()
+	{
+		return pollInto(newSnapshot());
+	}
+
+	/**
+	 * Reads every registered device once, all buses in parallel, into a reusable snapshot
+	 * @param  snapshot Snapshot from newSnapshot()
+	 * @return          The filled snapshot
+	 */
+	public synchronized Snapshot pollInto(Snapshot snapshot)
+	{
+		if (closed)
+		{
+			throw new IllegalStateException("Registry closed");
+		}
+
+		if (snapshot.size() != devices.size())
+		{
+			throw new IllegalArgumentException("Snapshot sized for " + snapshot.size() + " devices, " + devices.size() + " registered");
+		}
+
+		if (workers == null)
+		{
+			startWorkers();
+		}
+
+		current = snapshot;
+		snapshot.timestampNanos = System.nanoTime();
+
+		// Releases the workers, then waits for all of them to finish the round
+		rounds.arriveAndAwaitAdvance();
+		rounds.arriveAndAwaitAdvance();
+
+		current = null;
+
+		for (SampleListener listener : listeners)
+		{
+			for (int i = 0; i < snapshot.size(); i++)
+			{
+				if (snapshot.errors[i] == null)
+				{
+					listener.onSample(snapshot.samples[i]);
+				}
+			}
+		}
+
+		return snapshot;
+	}
+
+	/**
+	 * Stops the bus workers
+	 */
+	@Override
+	public synchronized void close()
+	{
+		if (closed)
+		{
+			return;
+		}
+
+		closed = true;
+
+		if (workers != null)
+		{
+			// Last round start : the workers see closed and deregister
+			rounds.arriveAndDeregister();
+		}
+	}
+
+	/**
+	 * Groups the devices by bus and starts one worker per bus
+	 */
+	private void startWorkers()
+	{
+		Map<Integer, List<Integer>> buses = new TreeMap<>();
+
+		for (int i = 0; i < devices.size(); i++)
+		{
+			buses.computeIfAbsent(busNumbers.get(i), bus -> new ArrayList<>()).add(i);
+		}
+
+		workers = new ArrayList<>(buses.size());
+		rounds  = new Phaser(1 + buses.size());
+
+		for (Map.Entry<Integer, List<Integer>> bus : buses.entrySet())
+		{
+			int[] indexes = bus.getValue().stream().mapToInt(Integer::intValue).toArray();
+			BusWorker worker = new BusWorker(indexes);
+
+			Thread thread = new Thread(worker, "ina219-bus-" + bus.getKey());
+			thread.setDaemon(true);
+			thread.start();
+
+			workers.add(worker);
+		}
+	}
+}
@@ -0,0 +1,580 @@
+/**
+ * Background sampler : reads the INA219 on a dedicated thread, in shunt and bus voltage continuous mode,
+ * and publishes timestamped samples into a SampleRingBuffer
+ * FIXED_RATE reads once per conversion time of the configured ADC resolutions.
+ * CONVERSION_READY polls the CNVR bit and publishes each completed conversion exactly once : the thread parks
+ * until shortly before the expected end of the conversion, then polls the bus voltage register only.
+ * TRIGGERED leaves continuous mode aside and issues Ina219.measureOnce() one-shots on a fixed-rate timeline.
+ *
+ * @author Alexandre Scieux
+ * @version 1.0
+ */
+
+package sensor;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.LockSupport;
+
+public class Ina219Sampler
+{
+	/**
+	 * Sampling strategies
+	 */
+	public enum Mode
+	{
+		FIXED_RATE,
+		CONVERSION_READY,
+		TRIGGERED
+	}
+
+	/* Longest lead time spent polling CNVR before the expected end of a conversion */
+	private static final long MAX_SPIN_WINDOW_NANOS = 200_000;
+
+	/* Shortest delay between two CNVR polls */
+	private static final long MIN_POLL_INTERVAL_NANOS = 20_000;
+
+	private final Ina219 ina219;
+	private final SampleRingBuffer buffer;
+	private final Mode mode;
+	private final Ina219.OperatingMode triggeredMode;
+
+	private ThreadFactory threadFactory = SamplerThreads.platform("ina219-sampler-");
+	private volatile int source;
+
+	/* Copy-on-write : the sampling thread reads the array once per sample, without locking */
+	private volatile SampleListener[] listeners = new SampleListener[0];
+
+	private volatile Thread thread;
+	private volatile boolean running;
+
+	/* Sampling thread only : true on a virtual thread, which must release its carrier instead of spinning */
+	private boolean yielding;
+	private volatile long periodNanos;
+
+	/* Counters, written by the sampling thread only */
+	private volatile long sampleCount;
+	private volatile long overrunCount;
+	private volatile long errorCount;
+	private volatile long listenerErrorCount;
+	private volatile long pollCount;
+	private volatile long wastedPollCount;
+	private volatile IOException lastError;
+
+	/**
+	 * Fixed-rate sampler
+	 * @param ina219 The driver to sample
+	 * @param buffer Destination of the samples
+	 */
+	public Ina219Sampler(Ina219 ina219, SampleRingBuffer buffer)
+	{
+		this(ina219, buffer, Mode.FIXED_RATE);
+	}
+
+	/**
+	 * @param ina219 The driver to sample
+	 * @param buffer Destination of the samples
+	 * @param mode   Sampling strategy
+	 */
+	public Ina219Sampler(Ina219 ina219, SampleRingBuffer buffer, Mode mode)
+	{
+		if (mode == Mode.TRIGGERED)
+		{
+			throw new IllegalArgumentException("Triggered sampling needs a triggered operating mode and a period");
+		}
+
+		this.ina219        = ina219;
+		this.buffer        = buffer;
+		this.mode          = mode;
+		this.triggeredMode = null;
+	}
+
+	/**
+	 * Triggered sampler : one Ina219.measureOnce() one-shot per period
+	 * @param ina219        The driver to sample
+	 * @param buffer        Destination of the samples
+	 * @param triggeredMode One of the SVOLT / BVOLT / SANDBVOLT triggered modes
+	 * @param periodNanos   Time between two triggers, at least the conversion time
+	 */
+	public Ina219Sampler(Ina219 ina219, SampleRingBuffer buffer, Ina219.OperatingMode triggeredMode, long periodNanos)
+	{
+		this.ina219        = ina219;
+		this.buffer        = buffer;
+		this.mode          = Mode.TRIGGERED;
+		this.triggeredMode = triggeredMode;
+		this.periodNanos   = periodNanos;
+	}
+
+	/**
+	 * Switches the device to shunt and bus voltage continuous mode (except in TRIGGERED mode) and starts the sampling thread
+	 * @throws IOException           Input/Output Exception while configuring the device
+	 * @throws IllegalStateException    If the sampler is already running
+	 * @throws IllegalArgumentException In TRIGGERED mode, if the mode is not triggered or the period shorter than the conversion time
+	 */
+	public synchronized void start() throws IOException
+	{
+		if (running)
+		{
+			throw new IllegalStateException("Sampler already running");
+		}
+
+		Runnable loop;
+
+		if (mode == Mode.TRIGGERED)
+		{
+			ConfigRegister configuration = ina219.getConfiguration().withOperatingMode(triggeredMode);
+
+			if (!configuration.isTriggered())
+			{
+				throw new IllegalArgumentException("Not a triggered operating mode : " + triggeredMode);
+			}
+
+			if (periodNanos < configuration.getConversionTimeMicros() * 1000L)
+			{
+				throw new IllegalArgumentException("Period shorter than the conversion time (" + configuration.getConversionTimeMicros() + " us)");
+			}
+
+			loop = this::runTriggered;
+		}
+		else
+		{
+			ConfigRegister configuration = ina219.getConfiguration().withOperatingMode(Ina219.OperatingMode.INA219_CONFIG_MODE_SANDBVOLT_CONTINUOUS);
+
+			ina219.configure(Ina219Configuration.builder(configuration).build());
+
+			// Shunt conversion + bus conversion : one complete cycle of the ADC
+			periodNanos = configuration.getConversionTimeMicros() * 1000L;
+
+			loop = mode == Mode.CONVERSION_READY ? this::runConversionReady : this::runFixedRate;
+		}
+
+		running = true;
+
+		thread = threadFactory.newThread(loop);
+		thread.start();
+	}
+
+	/**
+	 * Selects the thread running the sampling loop, before start()
+	 * The default is a daemon platform thread. SamplerThreads.virtual() runs the loop on a virtual thread (Java 21+) :
+	 * pair it with an I2CBusLock or I2CBusScheduler per bus when many devices share a bus.
+	 * @param  threadFactory Factory of the sampling thread
+	 * @throws IllegalStateException If the sampler is running
+	 */
+	public synchronized void setThreadFactory(ThreadFactory threadFactory)
+	{
+		if (running)
+		{
+			throw new IllegalStateException("Sampler already running");
+		}
+
+		this.threadFactory = threadFactory;
+	}
+
+	/**
+	 * Tags the samples of this sampler (Sample.getSource()), to tell devices apart when several samplers
+	 * feed the same listener or SamplePublisher
+	 * @param source Identifier of the device, 0 by default
+	 */
+	public void setSource(int source)
+	{
+		this.source = source;
+	}
+
+	/**
+	 * @return Identifier copied into the samples of this sampler
+	 */
+	public int getSource()
+	{
+		return source;
+	}
+
+	/**
+	 * Adds a listener called on the sampling thread after each sample is published into the buffer
+	 * Can be called while sampling. The listener must not block (SamplePublisher queues and hands over to an executor).
+	 * @param listener The listener
+	 */
+	public synchronized void addListener(SampleListener listener)
+	{
+		SampleListener[] current = listeners;
+		SampleListener[] updated = Arrays.copyOf(current, current.length + 1);
+		updated[current.length] = listener;
+
+		listeners = updated;
+	}
+
+	/**
+	 * @param listener The listener to remove
+	 */
+	public synchronized void removeListener(SampleListener listener)
+	{
+		SampleListener[] current = listeners;
+
+		for (int i = 0; i < current.length; i++)
+		{
+			if (current[i] == listener)
+			{
+				SampleListener[] updated = new SampleListener[current.length - 1];
+				System.arraycopy(current, 0, updated, 0, i);
+				System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+
+				listeners = updated;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Stops the sampling thread and waits for it to exit. The device is left in continuous mode.
+	 */
+	public synchronized void stop()
+	{
+		Thread sampler = thread;
+
+		if (!running || sampler == null)
+		{
+			return;
+		}
+
+		running = false;
+		LockSupport.unpark(sampler);
+
+		try
+		{
+			sampler.join();
+		}
+		catch (InterruptedException ie)
+		{
+			Thread.currentThread().interrupt();
+		}
+
+		thread = null;
+	}
+
+	/**
+	 * @return True while the sampling thread runs
+	 */
+	public boolean isRunning()
+	{
+		return running;
+	}
+
+	/**
+	 * @return Sampling strategy
+	 */
+	public Mode getMode()
+	{
+		return mode;
+	}
+
+	/**
+	 * @return Sampling period in ns (FIXED_RATE, TRIGGERED) or expected conversion time (CONVERSION_READY)
+	 */
+	public long getPeriodNanos()
+	{
+		return periodNanos;
+	}
+
+	/**
+	 * @return The buffer the samples are published to
+	 */
+	public SampleRingBuffer getBuffer()
+	{
+		return buffer;
+	}
+
+	/**
+	 * @return Number of samples published
+	 */
+	public long getSampleCount()
+	{
+		return sampleCount;
+	}
+
+	/**
+	 * @return Number of periods missed because a read took longer than the period
+	 */
+	public long getOverrunCount()
+	{
+		return overrunCount;
+	}
+
+	/**
+	 * @return Number of failed reads
+	 */
+	public long getErrorCount()
+	{
+		return errorCount;
+	}
+
+	/**
+	 * @return Number of listener calls that threw, the sample being handed to the next listeners anyway
+	 */
+	public long getListenerErrorCount()
+	{
+		return listenerErrorCount;
+	}
+
+	/**
+	 * @return Number of CNVR polls (bus voltage register reads) issued in CONVERSION_READY mode
+	 */
+	public long getPollCount()
+	{
+		return pollCount;
+	}
+
+	/**
+	 * @return Number of CNVR polls that found no new conversion
+	 */
+	public long getWastedPollCount()
+	{
+		return wastedPollCount;
+	}
+
+	/**
+	 * @return Last read failure, null if none
+	 */
+	public IOException getLastError()
+	{
+		return lastError;
+	}
+
+	/**
+	 * Sampling loop : fixed-rate schedule, one read per period
+	 */
+	private void runFixedRate()
+	{
+		yielding = SamplerThreads.isVirtual(Thread.currentThread());
+
+		final Sample sample = new Sample();
+		final long period = periodNanos;
+		long deadline = System.nanoTime();
+
+		while (running)
+		{
+			try
+			{
+				ina219.readInto(sample);
+				emit(sample);
+			}
+			catch (IOException ioe)
+			{
+				errorCount++;
+				lastError = ioe;
+				ina219.error("Exception during background sampling", ioe);
+			}
+
+			deadline += period;
+			long now = System.nanoTime();
+
+			if (deadline - now <= 0)
+			{
+				overrunCount++;
+
+				// More than a period late : restart the schedule instead of reading in a burst
+				if (now - deadline > period)
+				{
+					deadline = now;
+				}
+
+				// A virtual thread would otherwise keep its carrier from the other samplers
+				pause();
+				continue;
+			}
+
+			parkUntil(deadline);
+		}
+	}
+
+	/**
+	 * Sampling loop : fixed-rate schedule, one triggered conversion per period
+	 * The trigger instants are held with a park + spin wait, so the latency of each measurement is the conversion time
+	 */
+	private void runTriggered()
+	{
+		yielding = SamplerThreads.isVirtual(Thread.currentThread());
+
+		final Sample sample = new Sample();
+		final long period = periodNanos;
+		long deadline = System.nanoTime();
+
+		while (running)
+		{
+			try
+			{
+				ina219.measureOnce(triggeredMode, sample);
+				emit(sample);
+			}
+			catch (IOException ioe)
+			{
+				errorCount++;
+				lastError = ioe;
+				ina219.error("Exception during background sampling", ioe);
+			}
+
+			deadline += period;
+			long now = System.nanoTime();
+
+			if (deadline - now <= 0)
+			{
+				overrunCount++;
+
+				// More than a period late : restart the schedule instead of triggering in a burst
+				if (now - deadline > period)
+				{
+					deadline = now;
+				}
+
+				pause();
+				continue;
+			}
+
+			parkUntil(deadline - Deadlines.SPIN_TAIL_NANOS);
+			spinUntil(deadline);
+		}
+	}
+
+	/**
+	 * Sampling loop : one sample per completed conversion
+	 * Parks until a lead time before the expected end of the conversion, then polls CNVR every poll interval.
+	 * The lead adapts to the park latency : it grows when the first poll already finds the conversion (woke up late),
+	 * and shrinks when several polls are wasted (woke up early).
+	 */
+	private void runConversionReady()
+	{
+		yielding = SamplerThreads.isVirtual(Thread.currentThread());
+
+		final Sample sample = new Sample();
+		final long conversion = periodNanos;
+		final long maxLead = Math.min(conversion / 4, MAX_SPIN_WINDOW_NANOS);
+		final long pollInterval = Math.max(conversion / 32, MIN_POLL_INTERVAL_NANOS);
+
+		long lead = maxLead;
+
+		// Nothing is known about the conversion in progress : start polling right away
+		long expected = System.nanoTime();
+
+		while (running)
+		{
+			parkUntil(expected - lead);
+
+			boolean ready = false;
+			int wasted = 0;
+
+			while (running && !ready)
+			{
+				long poll = System.nanoTime();
+
+				try
+				{
+					pollCount++;
+					ready = ina219.readIntoIfReady(sample);
+				}
+				catch (IOException ioe)
+				{
+					errorCount++;
+					lastError = ioe;
+					ina219.error("Exception during background sampling", ioe);
+
+					spinUntil(poll + pollInterval);
+					continue;
+				}
+
+				if (ready)
+				{
+					emit(sample);
+
+					// The conversion completed at most one poll interval ago, the next one completes one conversion time later
+					expected = sample.timestampNanos + conversion;
+				}
+				else
+				{
+					wasted++;
+					wastedPollCount++;
+					spinUntil(poll + pollInterval);
+				}
+			}
+
+			if (wasted == 0)
+			{
+				lead = Math.min(lead + pollInterval, maxLead);
+			}
+			else if (wasted > 1)
+			{
+				lead = Math.max(lead - pollInterval / 2, 0);
+			}
+		}
+	}
+
+	/**
+	 * Publishes a sample into the buffer, then hands it to the listeners
+	 * A failing listener is reported to the driver diagnostics and counted : it neither stops the sampling thread nor
+	 * keeps the sample from the other listeners.
+	 */
+	private void emit(Sample sample)
+	{
+		sample.source = source;
+		buffer.publish(sample);
+		sampleCount++;
+
+		for (SampleListener listener : listeners)
+		{
+			try
+			{
+				listener.onSample(sample);
+			}
+			catch (RuntimeException re)
+			{
+				listenerErrorCount++;
+				ina219.error("Exception in a sample listener", re);
+			}
+		}
+	}
+
+	/**
+	 * Parks the sampling thread until the deadline, or until stopped
+	 */
+	private void parkUntil(long deadline)
+	{
+		long now;
+
+		// parkNanos may return early (unpark, spurious wake-up)
+		while (running && deadline - (now = System.nanoTime()) > 0)
+		{
+			LockSupport.parkNanos(this, deadline - now);
+		}
+	}
+
+	/**
+	 * Busy-waits until the deadline : intervals shorter than the parkNanos granularity
+	 * A virtual thread pauses instead, letting the other virtual threads of its carrier run
+	 */
+	private void spinUntil(long deadline)
+	{
+		while (running && deadline - System.nanoTime() > 0)
+		{
+			if (yielding)
+			{
+				pause();
+			}
+			else
+			{
+				Thread.onSpinWait();
+			}
+		}
+	}
+
+	/**
+	 * Releases the carrier of a virtual sampling thread, does nothing on a platform thread
+	 * A minimal timed park rather than Thread.yield() : the wake-up goes through the scheduler queue,
+	 * so a busy sampler cannot keep being rescheduled ahead of the others.
+	 */
+	private void pause()
+	{
+		if (yielding)
+		{
+			LockSupport.parkNanos(this, 1);
+		}
+	}
+}
@@ -0,0 +1,236 @@
+/**
+ * Scale factors from the raw measurement registers to physical units, precomputed for a configuration, a calibration
+ * register and a shunt resistance
+ * Shunt voltage : 10 uV per count, the PGA setting giving the sign extension. Bus voltage : 4 mV per count.
+ * Current : Current_LSB = 0.04096 / (Cal x R_SHUNT) per count. Power : Power_LSB = 20 x Current_LSB per count.
+ * Decoding a register is then a shift/mask and one multiply. The fixed-point variants return long uV, uA and uW,
+ * from multipliers in Q20 precomputed the same way : no floating point on the decoding path.
+ * Immutable : Ina219 swaps its instance whenever the configuration, the calibration or the shunt resistance change.
+ *
+ * @author Alexandre Scieux
+ * @version 1.0
+ */
+
+package sensor;
+
+public final class Ina219Scaling
+{
+	/* Fractional bits of the fixed-point multipliers : up to 2^26 uA (or uW) per count without overflow */
+	private static final int FIXED_SHIFT  = 20;
+	private static final long FIXED_HALF  = 1L << (FIXED_SHIFT - 1);
+	private static final double MICRO     = 1e6;
+
+	private final ConfigRegister configuration;
+	private final int calibration;
+	private final double shuntOhms;
+	private final int pga;
+
+	/* Units per count */
+	private final double shuntVoltageScale;
+	private final double busVoltageScale;
+	private final double currentScale;
+	private final double powerScale;
+
+	/* Micro-units per count, Q20 */
+	private final long shuntVoltageMicroScale;
+	private final long busVoltageMicroScale;
+	private final long currentMicroScale;
+	private final long powerMicroScale;
+
+	private Ina219Scaling(ConfigRegister configuration, int calibration, double shuntOhms)
+	{
+		this.configuration = configuration;
+		this.calibration   = calibration & 0xFFFE;
+		this.shuntOhms     = shuntOhms;
+		this.pga           = configuration.getGainBits();
+
+		this.shuntVoltageScale = RegisterDecoder.SHUNT_VOLTAGE_LSB_V;
+		this.busVoltageScale   = RegisterDecoder.BUS_VOLTAGE_LSB_V;
+		this.currentScale      = Ina219Calibration.currentLsb(calibration, shuntOhms);
+		this.powerScale        = Ina219Calibration.POWER_LSB_RATIO * currentScale;
+
+		this.shuntVoltageMicroScale = fixed(shuntVoltageScale);
+		this.busVoltageMicroScale   = fixed(busVoltageScale);
+		this.currentMicroScale      = fixed(currentScale);
+		this.powerMicroScale        = fixed(powerScale);
+	}
+
+	/**
+	 * @param  configuration Configuration register the conversions are made with
+	 * @param  calibration   Calibration register (0 : no current nor power)
+	 * @param  shuntOhms     Shunt resistance, in ohms
+	 * @return               The scale factors
+	 */
+	public static Ina219Scaling of(ConfigRegister configuration, int calibration, double shuntOhms)
+	{
+		if (!(shuntOhms > 0))
+		{
+			throw new IllegalArgumentException("Shunt resistance out of range : " + shuntOhms);
+		}
+
+		return new Ina219Scaling(configuration, calibration, shuntOhms);
+	}
+
+	/**
+	 * Decodes the raw registers of a sample into volts, amps and watts
+	 * @param  sample The sample, raw registers filled
+	 * @return        The sample
+	 */
+	public Sample decode(Sample sample)
+	{
+		sample.shuntVoltage = shuntVoltage(sample.shuntVoltageRegister);
+		sample.busVoltage   = busVoltage(sample.busVoltageRegister);
+		sample.current      = current(sample.currentRegister);
+		sample.power        = power(sample.powerRegister);
+
+		return sample;
+	}
+
+	/**
+	 * @param  register Raw shunt voltage register content
+	 * @return          Shunt voltage in V
+	 */
+	public double shuntVoltage(int register)
+	{
+		return RegisterDecoder.shuntVoltageCounts(register, pga) * shuntVoltageScale;
+	}
+
+	/**
+	 * @param  register Raw bus voltage register content
+	 * @return          Bus voltage in V
+	 */
+	public double busVoltage(int register)
+	{
+		return RegisterDecoder.busVoltageCounts(register) * busVoltageScale;
+	}
+
+	/**
+	 * @param  register Raw current register content
+	 * @return          Current in A
+	 */
+	public double current(int register)
+	{
+		return RegisterDecoder.currentCounts(register) * currentScale;
+	}
+
+	/**
+	 * @param  register Raw power register content
+	 * @return          Power in W
+	 */
+	public double power(int register)
+	{
+		return RegisterDecoder.powerCounts(register) * powerScale;
+	}
+
+	/**
+	 * @param  register Raw shunt voltage register content
+	 * @return          Shunt voltage in uV
+	 */
+	public long shuntVoltageMicros(int register)
+	{
+		return scale(RegisterDecoder.shuntVoltageCounts(register, pga), shuntVoltageMicroScale);
+	}
+
+	/**
+	 * @param  register Raw bus voltage register content
+	 * @return          Bus voltage in uV
+	 */
+	public long busVoltageMicros(int register)
+	{
+		return scale(RegisterDecoder.busVoltageCounts(register), busVoltageMicroScale);
+	}
+
+	/**
+	 * @param  register Raw current register content
+	 * @return          Current in uA, rounded
+	 */
+	public long currentMicros(int register)
+	{
+		return scale(RegisterDecoder.currentCounts(register), currentMicroScale);
+	}
+
+	/**
+	 * @param  register Raw power register content
+	 * @return          Power in uW, rounded
+	 */
+	public long powerMicros(int register)
+	{
+		return scale(RegisterDecoder.powerCounts(register), powerMicroScale);
+	}
+
+	/**
+	 * @return Configuration register the scale factors are computed for
+	 */
+	public ConfigRegister getConfiguration()
+	{
+		return configuration;
+	}
+
+	/**
+	 * @return Calibration register the scale factors are computed for (FS0 cleared)
+	 */
+	public int getCalibration()
+	{
+		return calibration;
+	}
+
+	/**
+	 * @return Shunt resistance, in ohms
+	 */
+	public double getShuntOhms()
+	{
+		return shuntOhms;
+	}
+
+	/**
+	 * @return Shunt voltage per count, in V
+	 */
+	public double getShuntVoltageScale()
+	{
+		return shuntVoltageScale;
+	}
+
+	/**
+	 * @return Bus voltage per count, in V
+	 */
+	public double getBusVoltageScale()
+	{
+		return busVoltageScale;
+	}
+
+	/**
+	 * @return Current per count (Current_LSB), in A
+	 */
+	public double getCurrentScale()
+	{
+		return currentScale;
+	}
+
+	/**
+	 * @return Power per count (Power_LSB), in W
+	 */
+	public double getPowerScale()
+	{
+		return powerScale;
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("Ina219Scaling[%s, calibration=%d, shunt=%s ohm, current=%.3e A, power=%.3e W]",
+			configuration, calibration, shuntOhms, currentScale, powerScale);
+	}
+
+	private static long fixed(double scale)
+	{
+		return Math.round(scale * MICRO * (1L << FIXED_SHIFT));
+	}
+
+	/**
+	 * @return counts x multiplier, rounded to the nearest integer
+	 */
+	private static long scale(int counts, long multiplier)
+	{
+		return (counts * multiplier + FIXED_HALF) >> FIXED_SHIFT;
+	}
+}
@@ -0,0 +1,99 @@
+/**
+ * Largest-Triangle-Three-Buckets downsampling (Steinarsson, 2013) : picks the points of a series that keep its visual shape
+ * The first and last points are kept. The points in between are split into threshold - 2 buckets, and each bucket keeps the point
+ * forming the largest triangle with the point kept in the previous bucket and the average of the next bucket.
+ * Linear in the number of points, allocation-free.
+ *
+ * @author Alexandre Scieux
+ * @version 1.0
+ */
+
+package sensor;
+
+public final class Lttb
+{
+	private Lttb()
+	{
+	}
+
+	/**
+	 * Selects the points to draw
+	 * @param  x         Abscissas (timestamps), increasing
+	 * @param  y         Values
+	 * @param  length    Number of points of the series (x and y may be longer)
+	 * @param  threshold Number of points wanted, at least 3 to downsample
+	 * @param  selected  Receives the indexes of the selected points, in order (at least min(length, threshold) long)
+	 * @return           Number of selected points : length if it is not above threshold (all points), threshold otherwise
+	 */
+	public static int downsample(long[] x, double[] y, int length, int threshold, int[] selected)
+	{
+		if (threshold >= length || threshold < 3)
+		{
+			int count = Math.min(length, Math.max(threshold, 0));
+
+			// Nothing to drop, or too few points for the triangles : evenly spaced points
+			for (int i = 0; i < count; i++)
+			{
+				selected[i] = threshold >= length ? i : (int) ((long) i * (length - 1) / Math.max(count - 1, 1));
+			}
+
+			return count;
+		}
+
+		double every = (double) (length - 2) / (threshold - 2);
+		int a = 0;
+		int count = 0;
+
+		selected[count++] = 0;
+
+		for (int bucket = 0; bucket < threshold - 2; bucket++)
+		{
+			// Average of the next bucket (the last point for the last bucket)
+			int nextStart = (int) ((bucket + 1) * every) + 1;
+			int nextEnd   = Math.min((int) ((bucket + 2) * every) + 1, length);
+
+			if (nextStart >= nextEnd)
+			{
+				nextStart = length - 1;
+				nextEnd   = length;
+			}
+
+			double averageX = 0;
+			double averageY = 0;
+
+			for (int i = nextStart; i < nextEnd; i++)
+			{
+				averageX += x[i] - x[a];
+				averageY += y[i];
+			}
+
+			averageX /= nextEnd - nextStart;
+			averageY /= nextEnd - nextStart;
+
+			// Point of this bucket with the largest triangle, abscissas relative to the previous point to keep the precision
+			int start = (int) (bucket * every) + 1;
+			int end   = (int) ((bucket + 1) * every) + 1;
+
+			double maxArea = -1;
+			int kept = start;
+
+			for (int i = start; i < end; i++)
+			{
+				double area = Math.abs((x[i] - x[a]) * (averageY - y[a]) - averageX * (y[i] - y[a]));
+
+				if (area > maxArea)
+				{
+					maxArea = area;
+					kept = i;
+				}
+			}
+
+			selected[count++] = kept;
+			a = kept;
+		}
+
+		selected[count++] = length - 1;
+
+		return count;
+	}
+}
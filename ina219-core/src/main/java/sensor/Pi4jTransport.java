@@ -0,0 +1,93 @@
+/**
+ * I2CTransport on top of a Pi4J I2CDevice
+ * The only class of the driver depending on Pi4J (http://pi4j.com/)
+ *
+ * @author Alexandre Scieux
+ * @version 1.0
+ */
+
+package sensor;
+
+import com.pi4j.io.i2c.I2CBus;
+import com.pi4j.io.i2c.I2CDevice;
+import com.pi4j.io.i2c.I2CFactory;
+
+import java.io.IOException;
+
+public class Pi4jTransport implements I2CTransport
+{
+	private final I2CDevice device;
+	private final int address;
+
+	/* Preallocated transfer buffers, reused by every register read / write */
+	private final byte[] readBuffer  = new byte[2];
+	private final byte[] writeBuffer = new byte[2];
+
+	/**
+	 * @param device  The Pi4J device
+	 * @param address Address of the device on the I2C bus
+	 */
+	public Pi4jTransport(I2CDevice device, int address)
+	{
+		this.device  = device;
+		this.address = address;
+	}
+
+	/**
+	 * Connects to a device on an already opened I2C bus
+	 * @param  bus         The I2C bus
+	 * @param  address     Address of the device on the bus
+	 * @return             The transport
+	 * @throws IOException Input/Output Exception
+	 */
+	public static Pi4jTransport open(I2CBus bus, int address) throws IOException
+	{
+		return new Pi4jTransport(bus.getDevice(address), address);
+	}
+
+	/**
+	 * Opens an I2C bus of the Raspberry Pi and connects to a device on it
+	 * @param  busNumber   I2C bus number (0 on Raspberry Pi Rev A, 1 on Raspberry Pi Rev B)
+	 * @param  address     Address of the device on the bus. Run i2cdetect -y 1 to see the address.
+	 * @return             The transport
+	 * @throws IOException Input/Output Exception, or unsupported bus number
+	 */
+	public static Pi4jTransport open(int busNumber, int address) throws IOException
+	{
+		try
+		{
+			return open(I2CFactory.getInstance(busNumber), address);
+		}
+		catch (I2CFactory.UnsupportedBusNumberException ubne)
+		{
+			throw new IOException("Unsupported I2C bus number : " + busNumber, ubne);
+		}
+	}
+
+	@Override
+	public int getAddress()
+	{
+		return address;
+	}
+
+	@Override
+	public synchronized int readRegister(int register) throws IOException
+	{
+		// int read(int address, byte[] buffer, int offset, int size) throws IOException
+		// Reading 2 bytes (16 bits) from the register, MSB first
+		device.read(register, readBuffer, 0, 2);
+
+		return ((readBuffer[0] & 0xFF) << 8) | (readBuffer[1] & 0xFF);
+	}
+
+	@Override
+	public synchronized void writeRegister(int register, int value) throws IOException
+	{
+		// void write(int address, byte[] buffer, int offset, int size) throws IOException
+		// Writing 2 bytes (16 bits) to the register, MSB first
+		writeBuffer[0] = (byte) (value >>> 8);
+		writeBuffer[1] = (byte) value;
+
+		device.write(register, writeBuffer, 0, 2);
+	}
+}
@@ -0,0 +1,342 @@
+/**
+ * Fixed-memory, mergeable quantile sketch (DDSketch) : p50, p99, p99.9 of a distribution with a bounded relative error
+ * Each value v is counted in the logarithmic bucket ceil(log_gamma(|v|)), gamma = (1 + a) / (1 - a) : any quantile is then
+ * returned within a relative error a of the exact one. Positive and negative values have their own buckets, values below
+ * the minimum magnitude count as 0, values above the maximum magnitude in the last bucket (min and max stay exact).
+ * The buckets are allocated once : adding a value is O(1) without allocation, and merging two sketches with the same
+ * parameters (devices, windows) adds their buckets, O(buckets) whatever the number of samples.
+ * Not thread-safe : fed by one thread (see SampleQuantiles), read once handed over.
+ *
+ * @author Alexandre Scieux
+ * @version 1.0
+ */
+
+package sensor;
+
+import java.util.Arrays;
+
+public final class QuantileSketch
+{
+	/* Default relative error : 1 % */
+	public static final double DEFAULT_RELATIVE_ACCURACY = 0.01;
+
+	/* Default magnitudes : 1e-6 to 1e4 (V, A, W), about 2300 buckets, 18 KB */
+	public static final double DEFAULT_MIN_VALUE = 1e-6;
+	public static final double DEFAULT_MAX_VALUE = 1e4;
+
+	private final double relativeAccuracy;
+	private final double minValue;
+	private final double maxValue;
+	private final double gamma;
+	private final double logGamma;
+	private final int minIndex;
+
+	private final long[] positive;
+	private final long[] negative;
+	private long zero;
+
+	private long count;
+	private double sum;
+	private double min = Double.POSITIVE_INFINITY;
+	private double max = Double.NEGATIVE_INFINITY;
+
+	/**
+	 * Sketch with the default accuracy and magnitudes
+	 */
+	public QuantileSketch()
+	{
+		this(DEFAULT_RELATIVE_ACCURACY, DEFAULT_MIN_VALUE, DEFAULT_MAX_VALUE);
+	}
+
+	/**
+	 * @param relativeAccuracy Relative error of the quantiles, in ]0, 1[
+	 * @param minValue         Smallest magnitude distinguished from 0
+	 * @param maxValue         Largest magnitude with its own bucket
+	 */
+	public QuantileSketch(double relativeAccuracy, double minValue, double maxValue)
+	{
+		if (!(relativeAccuracy > 0 && relativeAccuracy < 1) || !(minValue > 0) || !(maxValue > minValue))
+		{
+			throw new IllegalArgumentException("Sketch parameters out of range");
+		}
+
+		this.relativeAccuracy = relativeAccuracy;
+		this.minValue         = minValue;
+		this.maxValue         = maxValue;
+		this.gamma            = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+		this.logGamma         = Math.log(gamma);
+		this.minIndex         = index(minValue);
+
+		long buckets = (long) index(maxValue) - minIndex + 1;
+
+		if (buckets > (1 << 24))
+		{
+			throw new IllegalArgumentException("Too many buckets : " + buckets);
+		}
+
+		this.positive = new long[(int) buckets];
+		this.negative = new long[(int) buckets];
+	}
+
+	/**
+	 * @return An empty sketch with the same parameters, mergeable with this one
+	 */
+	public QuantileSketch newEmpty()
+	{
+		return new QuantileSketch(relativeAccuracy, minValue, maxValue);
+	}
+
+	/**
+	 * Counts a value
+	 * @param value The value (NaN ignored)
+	 */
+	public void add(double value)
+	{
+		if (Double.isNaN(value))
+		{
+			return;
+		}
+
+		double magnitude = Math.abs(value);
+
+		if (magnitude < minValue)
+		{
+			zero++;
+		}
+		else if (value > 0)
+		{
+			positive[slot(magnitude)]++;
+		}
+		else
+		{
+			negative[slot(magnitude)]++;
+		}
+
+		count++;
+		sum += value;
+		min = Math.min(min, value);
+		max = Math.max(max, value);
+	}
+
+	/**
+	 * Adds the values counted by another sketch
+	 * @param  other                    A sketch with the same parameters
+	 * @throws IllegalArgumentException If the parameters differ
+	 */
+	public void merge(QuantileSketch other)
+	{
+		if (!isMergeableWith(other))
+		{
+			throw new IllegalArgumentException("Sketches with different parameters");
+		}
+
+		for (int i = 0; i < positive.length; i++)
+		{
+			positive[i] += other.positive[i];
+			negative[i] += other.negative[i];
+		}
+
+		zero  += other.zero;
+		count += other.count;
+		sum   += other.sum;
+		min    = Math.min(min, other.min);
+		max    = Math.max(max, other.max);
+	}
+
+	/**
+	 * @param  other Another sketch
+	 * @return       True if both have the same accuracy and magnitudes
+	 */
+	public boolean isMergeableWith(QuantileSketch other)
+	{
+		return relativeAccuracy == other.relativeAccuracy && minValue == other.minValue && maxValue == other.maxValue;
+	}
+
+	/**
+	 * Copies another sketch with the same parameters
+	 * @param other The sketch to copy
+	 */
+	public void copyFrom(QuantileSketch other)
+	{
+		clear();
+		merge(other);
+	}
+
+	/**
+	 * Forgets every value
+	 */
+	public void clear()
+	{
+		Arrays.fill(positive, 0);
+		Arrays.fill(negative, 0);
+
+		zero  = 0;
+		count = 0;
+		sum   = 0;
+		min   = Double.POSITIVE_INFINITY;
+		max   = Double.NEGATIVE_INFINITY;
+	}
+
+	/**
+	 * @param  quantile Quantile, in [0, 1]
+	 * @return          The value at that quantile, within the relative accuracy, NaN if the sketch is empty
+	 */
+	public double getQuantile(double quantile)
+	{
+		if (!(quantile >= 0 && quantile <= 1))
+		{
+			throw new IllegalArgumentException("Quantile out of range : " + quantile);
+		}
+
+		if (count == 0)
+		{
+			return Double.NaN;
+		}
+
+		// Rank of the value, from the most negative value
+		long rank = (long) (quantile * (count - 1));
+		long seen = 0;
+		double value = 0;
+		boolean found = false;
+
+		for (int i = negative.length - 1; i >= 0 && !found; i--)
+		{
+			seen += negative[i];
+
+			if (seen > rank)
+			{
+				value = -value(i);
+				found = true;
+			}
+		}
+
+		if (!found)
+		{
+			seen += zero;
+			found = seen > rank;
+		}
+
+		for (int i = 0; i < positive.length && !found; i++)
+		{
+			seen += positive[i];
+
+			if (seen > rank)
+			{
+				value = value(i);
+				found = true;
+			}
+		}
+
+		// The buckets at the edges are wider than the exact extremes
+		return Math.max(min, Math.min(max, value));
+	}
+
+	/**
+	 * @return Median
+	 */
+	public double getP50()
+	{
+		return getQuantile(0.5);
+	}
+
+	/**
+	 * @return 99th percentile
+	 */
+	public double getP99()
+	{
+		return getQuantile(0.99);
+	}
+
+	/**
+	 * @return 99.9th percentile
+	 */
+	public double getP999()
+	{
+		return getQuantile(0.999);
+	}
+
+	/**
+	 * @return Smallest value, exact (+Infinity if empty)
+	 */
+	public double getMin()
+	{
+		return min;
+	}
+
+	/**
+	 * @return Largest value, exact (-Infinity if empty)
+	 */
+	public double getMax()
+	{
+		return max;
+	}
+
+	/**
+	 * @return Mean of the values (NaN if empty)
+	 */
+	public double getMean()
+	{
+		return count > 0 ? sum / count : Double.NaN;
+	}
+
+	/**
+	 * @return Number of values counted
+	 */
+	public long getCount()
+	{
+		return count;
+	}
+
+	/**
+	 * @return Relative error of the quantiles
+	 */
+	public double getRelativeAccuracy()
+	{
+		return relativeAccuracy;
+	}
+
+	/**
+	 * @return Smallest magnitude distinguished from 0
+	 */
+	public double getMinValue()
+	{
+		return minValue;
+	}
+
+	/**
+	 * @return Largest magnitude with its own bucket
+	 */
+	public double getMaxValue()
+	{
+		return maxValue;
+	}
+
+	/**
+	 * @return Number of buckets per sign
+	 */
+	public int getBucketCount()
+	{
+		return positive.length;
+	}
+
+	private int index(double magnitude)
+	{
+		return (int) Math.ceil(Math.log(magnitude) / logGamma);
+	}
+
+	/**
+	 * @return Bucket of a magnitude, the last one above the maximum
+	 */
+	private int slot(double magnitude)
+	{
+		return Math.min(index(magnitude) - minIndex, positive.length - 1);
+	}
+
+	/**
+	 * @return Value representing a bucket : within the relative accuracy of any magnitude in ]gamma^(i-1), gamma^i]
+	 */
+	private double value(int slot)
+	{
+		return 2 * Math.pow(gamma, slot + minIndex) / (gamma + 1);
+	}
+}
@@ -0,0 +1,131 @@
+/**
+ * Shift/mask decoders for the INA219 measurement registers
+ * Every method works on the raw unsigned 16-bit register content (0..65535) and allocates nothing
+ *
+ * @author Alexandre Scieux
+ * @version 1.0
+ */
+
+package sensor;
+
+public final class RegisterDecoder
+{
+	/* Shunt voltage LSB : 10 uV, whatever the PGA setting */
+	public static final double SHUNT_VOLTAGE_LSB_V = 0.00001;
+
+	/* Bus voltage LSB : 4 mV, whatever the bus voltage range */
+	public static final double BUS_VOLTAGE_LSB_V   = 0.004;
+
+	/* Bus voltage register flags */
+	public static final int BUS_VOLTAGE_CNVR       = 0x0002;						// Conversion Ready. Set when a conversion completes, cleared by reading the power register or writing the configuration register
+	public static final int BUS_VOLTAGE_OVF        = 0x0001;						// Math Overflow. Set when the power or current calculations are out of range
+
+	private static final int gain_mask             = Ina219.Gain.INA219_CONFIG_GAIN_MASK.getValue();
+	private static final int gain_shift            = Integer.numberOfTrailingZeros(gain_mask);
+
+	private RegisterDecoder()
+	{
+	}
+
+	/**
+	 * Sign-extends the shunt voltage register according to the PGA setting
+	 * At PGA = 1 the sign occupies bits 15..12 (13-bit value), at PGA = 1/8 only bit 15 (16-bit value)
+	 * @param  register Raw shunt voltage register content
+	 * @param  gain     PGA setting the conversion was made with
+	 * @return          Signed shunt voltage in LSB (10 uV) counts
+	 */
+	public static int shuntVoltageCounts(int register, Ina219.Gain gain)
+	{
+		return shuntVoltageCounts(register, (gain.getValue() & gain_mask) >>> gain_shift);
+	}
+
+	/**
+	 * Sign-extends the shunt voltage register according to the PG1..PG0 configuration bits
+	 * @param  register Raw shunt voltage register content
+	 * @param  pga      PG1..PG0 bits (0 = PGA 1 ... 3 = PGA 1/8)
+	 * @return          Signed shunt voltage in LSB (10 uV) counts
+	 */
+	public static int shuntVoltageCounts(int register, int pga)
+	{
+		// 13 significant bits at PGA = 1, one more per PGA step
+		int shift = 19 - (pga & 0x3);
+
+		return (register << shift) >> shift;
+	}
+
+	/**
+	 * @param  register Raw shunt voltage register content
+	 * @param  gain     PGA setting the conversion was made with
+	 * @return          Shunt voltage in V
+	 */
+	public static double shuntVoltage(int register, Ina219.Gain gain)
+	{
+		return shuntVoltageCounts(register, gain) * SHUNT_VOLTAGE_LSB_V;
+	}
+
+	/**
+	 * Drops the CNVR and OVF flags (bits 2..0) of the bus voltage register
+	 * @param  register Raw bus voltage register content
+	 * @return          Bus voltage in LSB (4 mV) counts
+	 */
+	public static int busVoltageCounts(int register)
+	{
+		return (register & 0xFFFF) >>> 3;
+	}
+
+	/**
+	 * @param  register Raw bus voltage register content
+	 * @return          Bus voltage in V
+	 */
+	public static double busVoltage(int register)
+	{
+		return busVoltageCounts(register) * BUS_VOLTAGE_LSB_V;
+	}
+
+	/**
+	 * @param  register Raw bus voltage register content
+	 * @return          True if the CNVR (Conversion Ready) bit is set
+	 */
+	public static boolean isConversionReady(int register)
+	{
+		return (register & BUS_VOLTAGE_CNVR) != 0;
+	}
+
+	/**
+	 * @param  register Raw bus voltage register content
+	 * @return          True if the OVF (Math Overflow) bit is set
+	 */
+	public static boolean isOverflow(int register)
+	{
+		return (register & BUS_VOLTAGE_OVF) != 0;
+	}
+
+	/**
+	 * @param  register Raw current register content (twos-complement)
+	 * @return          Signed current in Current_LSB counts
+	 */
+	public static int currentCounts(int register)
+	{
+		return (short) register;
+	}
+
+	/**
+	 * @param  register Raw power register content (unsigned)
+	 * @return          Power in Power_LSB counts
+	 */
+	public static int powerCounts(int register)
+	{
+		return register & 0xFFFF;
+	}
+
+	/**
+	 * Absolute value of a 16-bit twos-complement number
+	 * Bitwise counterpart of Ina219.twosComplement(int)
+	 * @param  register Raw 16-bit register content
+	 * @return          Absolute value of the represented number (0..32768)
+	 */
+	public static int magnitude(int register)
+	{
+		return Math.abs((int) (short) register);
+	}
+}
@@ -0,0 +1,128 @@
+/**
+ * Mutable holder for one INA219 measurement, filled in place by Ina219.readInto(Sample)
+ * Reusing the same instance for every read keeps the sampling path free of allocations
+ *
+ * @author Alexandre Scieux
+ * @version 1.0
+ */
+
+package sensor;
+
+public final class Sample
+{
+	/* Acquisition time (System.nanoTime) */
+	long timestampNanos;
+
+	/* Producing device : Ina219Sampler.setSource() value, or device index in an Ina219Registry */
+	int source;
+
+	/* Raw 16-bit register contents, as read from the device */
+	int shuntVoltageRegister;
+	int busVoltageRegister;
+	int currentRegister;
+	int powerRegister;
+
+	/* Decoded values */
+	double shuntVoltage;
+	double busVoltage;
+	double current;
+	double power;
+
+	/**
+	 * Copies the content of another sample into this one
+	 * @param other The sample to copy
+	 */
+	public void copyFrom(Sample other)
+	{
+		this.timestampNanos       = other.timestampNanos;
+		this.source               = other.source;
+		this.shuntVoltageRegister = other.shuntVoltageRegister;
+		this.busVoltageRegister   = other.busVoltageRegister;
+		this.currentRegister      = other.currentRegister;
+		this.powerRegister        = other.powerRegister;
+		this.shuntVoltage         = other.shuntVoltage;
+		this.busVoltage           = other.busVoltage;
+		this.current              = other.current;
+		this.power                = other.power;
+	}
+
+	/**
+	 * @return Acquisition time of the sample (System.nanoTime)
+	 */
+	public long getTimestampNanos()
+	{
+		return timestampNanos;
+	}
+
+	/**
+	 * @return Producing device : the source set on the Ina219Sampler, or the device index in an Ina219Registry (0 by default)
+	 */
+	public int getSource()
+	{
+		return source;
+	}
+
+	/**
+	 * @return Raw content of the shunt voltage register (0..65535)
+	 */
+	public int getShuntVoltageRegister()
+	{
+		return shuntVoltageRegister;
+	}
+
+	/**
+	 * @return Raw content of the bus voltage register (0..65535)
+	 */
+	public int getBusVoltageRegister()
+	{
+		return busVoltageRegister;
+	}
+
+	/**
+	 * @return Raw content of the current register (0..65535)
+	 */
+	public int getCurrentRegister()
+	{
+		return currentRegister;
+	}
+
+	/**
+	 * @return Raw content of the power register (0..65535)
+	 */
+	public int getPowerRegister()
+	{
+		return powerRegister;
+	}
+
+	/**
+	 * @return Shunt resistor voltage in V
+	 */
+	public double getShuntVoltage()
+	{
+		return shuntVoltage;
+	}
+
+	/**
+	 * @return Bus voltage in V
+	 */
+	public double getBusVoltage()
+	{
+		return busVoltage;
+	}
+
+	/**
+	 * @return Current flowing through the shunt resistor in A
+	 */
+	public double getCurrent()
+	{
+		return current;
+	}
+
+	/**
+	 * @return Power in W
+	 */
+	public double getPower()
+	{
+		return power;
+	}
+}
@@ -0,0 +1,38 @@
+/**
+ * Decoded quantities of a sample, for the statistics computed per quantity
+ *
+ * @author Alexandre Scieux
+ * @version 1.0
+ */
+
+package sensor;
+
+public enum SampleChannel
+{
+	SHUNT_VOLTAGE,
+	BUS_VOLTAGE,
+	CURRENT,
+	POWER;
+
+	/* values() allocates a new array on every call */
+	static final SampleChannel[] ALL = values();
+
+	/**
+	 * @param  sample A decoded sample
+	 * @return        The value of this quantity in the sample (V, A or W)
+	 */
+	public double get(Sample sample)
+	{
+		switch (this)
+		{
+			case SHUNT_VOLTAGE:
+				return sample.shuntVoltage;
+			case BUS_VOLTAGE:
+				return sample.busVoltage;
+			case CURRENT:
+				return sample.current;
+			default:
+				return sample.power;
+		}
+	}
+}
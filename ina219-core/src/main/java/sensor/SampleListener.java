@@ -0,0 +1,19 @@
+/**
+ * Receives every sample published by an Ina219Sampler or read by an Ina219Registry poll round
+ * Called on the producing thread (sampling thread, thread calling poll()) : implementations must return quickly
+ * and never block, or the sampling schedule slips. The sample is reused after the call : copy what must be kept.
+ *
+ * @author Alexandre Scieux
+ * @version 1.0
+ */
+
+package sensor;
+
+@FunctionalInterface
+public interface SampleListener
+{
+	/**
+	 * @param sample The new sample, only valid during the call
+	 */
+	void onSample(Sample sample);
+}
@@ -0,0 +1,535 @@
+/**
+ * java.util.concurrent.Flow publisher of samples, fed as a SampleListener by Ina219Sampler or Ina219Registry
+ * Every subscriber owns a bounded queue of preallocated samples. The producing thread only copies the sample into each queue,
+ * under a lock held for that copy alone, and never waits for a subscriber : when a queue is full, the overflow strategy drops samples.
+ * Samples are delivered on the executor, as much as the subscriber requested, one by one (subscribe) or in batches (batches()).
+ * Several producers can feed the same publisher, Sample.getSource() telling the devices apart.
+ *
+ * @author Alexandre Scieux
+ * @version 1.0
+ */
+
+package sensor;
+
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class SamplePublisher implements Flow.Publisher<Sample>, SampleListener, AutoCloseable
+{
+	/**
+	 * What happens to a new sample when the queue of a subscriber is full
+	 */
+	public enum OverflowStrategy
+	{
+		/* The oldest queued sample is discarded */
+		DROP_OLDEST,
+
+		/* The new sample is discarded */
+		DROP_NEWEST,
+
+		/* Queue of one sample, always replaced by the newest : the subscriber only sees the latest value */
+		LATEST_ONLY
+	}
+
+	private final int bufferSize;
+	private final OverflowStrategy overflow;
+	private final Executor executor;
+
+	private final CopyOnWriteArrayList<Delivery<?>> deliveries = new CopyOnWriteArrayList<>();
+	private final AtomicLong droppedCount = new AtomicLong();
+	private volatile boolean closed;
+
+	/**
+	 * Publisher with a queue of Flow.defaultBufferSize() samples per subscriber, DROP_OLDEST, delivering on the default executor
+	 */
+	public SamplePublisher()
+	{
+		this(Flow.defaultBufferSize(), OverflowStrategy.DROP_OLDEST);
+	}
+
+	/**
+	 * Publisher delivering on the common pool, or on one thread per delivery when the common pool has a single worker
+	 * (as SubmissionPublisher does) : a subscriber that keeps requesting would otherwise hold that worker from the others
+	 * @param bufferSize Number of samples queued per subscriber (ignored with LATEST_ONLY)
+	 * @param overflow   Strategy applied when a queue is full
+	 */
+	public SamplePublisher(int bufferSize, OverflowStrategy overflow)
+	{
+		this(bufferSize, overflow, ForkJoinPool.getCommonPoolParallelism() > 1 ? ForkJoinPool.commonPool() : SamplePublisher::startDaemon);
+	}
+
+	/**
+	 * @param bufferSize Number of samples queued per subscriber (ignored with LATEST_ONLY)
+	 * @param overflow   Strategy applied when a queue is full
+	 * @param executor   Executor running the deliveries to the subscribers
+	 */
+	public SamplePublisher(int bufferSize, OverflowStrategy overflow, Executor executor)
+	{
+		if (bufferSize < 1)
+		{
+			throw new IllegalArgumentException("Buffer size out of range : " + bufferSize);
+		}
+
+		this.bufferSize = overflow == OverflowStrategy.LATEST_ONLY ? 1 : bufferSize;
+		this.overflow   = Objects.requireNonNull(overflow);
+		this.executor   = Objects.requireNonNull(executor);
+	}
+
+	/**
+	 * Subscribes to the samples one by one : each onNext() receives a new Sample, owned by the subscriber
+	 * @param subscriber The subscriber
+	 */
+	@Override
+	public void subscribe(Flow.Subscriber<? super Sample> subscriber)
+	{
+		attach(new SingleDelivery(subscriber));
+	}
+
+	/**
+	 * View of this publisher delivering the queued samples in batches : each onNext() receives a new array of 1 to maxBatchSize
+	 * samples, oldest first, and counts as one item of the demand
+	 * @param  maxBatchSize Largest batch
+	 * @return              Publisher sharing the queues settings, the executor and the producers of this one
+	 */
+	public Flow.Publisher<Sample[]> batches(int maxBatchSize)
+	{
+		if (maxBatchSize < 1)
+		{
+			throw new IllegalArgumentException("Batch size out of range : " + maxBatchSize);
+		}
+
+		return subscriber -> attach(new BatchDelivery(subscriber, maxBatchSize));
+	}
+
+	/**
+	 * Queues the sample for every subscriber. Never blocks on a subscriber.
+	 * @param sample The sample, copied
+	 */
+	@Override
+	public void onSample(Sample sample)
+	{
+		if (closed)
+		{
+			return;
+		}
+
+		for (Delivery<?> delivery : deliveries)
+		{
+			delivery.offer(sample);
+		}
+	}
+
+	/**
+	 * Completes every subscriber once its queue is delivered. Later samples are ignored.
+	 */
+	@Override
+	public void close()
+	{
+		closed = true;
+
+		for (Delivery<?> delivery : deliveries)
+		{
+			delivery.terminate(null);
+		}
+	}
+
+	/**
+	 * Signals the error to every subscriber right away, dropping the queued samples. Later samples are ignored.
+	 * @param error The failure
+	 */
+	public void closeExceptionally(Throwable error)
+	{
+		closed = true;
+
+		for (Delivery<?> delivery : deliveries)
+		{
+			delivery.terminate(Objects.requireNonNull(error));
+		}
+	}
+
+	/**
+	 * @return True once close() or closeExceptionally() was called
+	 */
+	public boolean isClosed()
+	{
+		return closed;
+	}
+
+	/**
+	 * @return Number of active subscribers
+	 */
+	public int getSubscriberCount()
+	{
+		return deliveries.size();
+	}
+
+	/**
+	 * @return Number of samples dropped by the overflow strategy, all subscribers together
+	 */
+	public long getDroppedCount()
+	{
+		return droppedCount.get();
+	}
+
+	/**
+	 * @return Number of samples queued per subscriber
+	 */
+	public int getBufferSize()
+	{
+		return bufferSize;
+	}
+
+	/**
+	 * @return Strategy applied when a queue is full
+	 */
+	public OverflowStrategy getOverflowStrategy()
+	{
+		return overflow;
+	}
+
+	/**
+	 * Runs a delivery on a new daemon thread
+	 */
+	private static void startDaemon(Runnable delivery)
+	{
+		Thread thread = new Thread(delivery, "ina219-publisher");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Registers a subscription and hands it to its subscriber
+	 */
+	private void attach(Delivery<?> delivery)
+	{
+		for (Delivery<?> other : deliveries)
+		{
+			if (other.subscriber == delivery.subscriber)
+			{
+				delivery.cancelled = true;
+				delivery.subscriber.onSubscribe(delivery);
+				delivery.subscriber.onError(new IllegalStateException("Already subscribed"));
+				return;
+			}
+		}
+
+		deliveries.add(delivery);
+		delivery.subscriber.onSubscribe(delivery);
+
+		// close() may have run before the subscription was added
+		if (closed)
+		{
+			delivery.terminate(null);
+		}
+	}
+
+	/**
+	 * Subscription : queue of one subscriber, drained on the executor while there is demand
+	 * At most one drain task runs at a time (work-in-progress counter), so onNext() calls are never concurrent.
+	 * @param <T> Type of the delivered items
+	 */
+	private abstract class Delivery<T> implements Flow.Subscription, Runnable
+	{
+		final Flow.Subscriber<? super T> subscriber;
+
+		/* Circular queue of preallocated samples, guarded by lock */
+		private final ReentrantLock lock = new ReentrantLock();
+		private final Sample[] queue;
+		private int head;
+		private int count;
+
+		private final AtomicLong demand = new AtomicLong();
+		private final AtomicInteger pending = new AtomicInteger();
+
+		volatile boolean cancelled;
+
+		/* Set by terminate() : completion once the queue is empty, or the error (written before done) */
+		private volatile boolean done;
+		private Throwable error;
+
+		Delivery(Flow.Subscriber<? super T> subscriber)
+		{
+			this.subscriber = Objects.requireNonNull(subscriber);
+			this.queue      = new Sample[bufferSize];
+
+			for (int i = 0; i < queue.length; i++)
+			{
+				queue[i] = new Sample();
+			}
+		}
+
+		/**
+		 * Next item for the subscriber, taken from the queue
+		 * @return The item, null if the queue is empty
+		 */
+		abstract T poll();
+
+		/**
+		 * Queues a copy of the sample, applying the overflow strategy. Called by the producer.
+		 */
+		void offer(Sample sample)
+		{
+			if (cancelled || done)
+			{
+				return;
+			}
+
+			lock.lock();
+
+			try
+			{
+				if (count == queue.length)
+				{
+					droppedCount.incrementAndGet();
+
+					if (overflow == OverflowStrategy.DROP_NEWEST)
+					{
+						return;
+					}
+
+					head = head + 1 == queue.length ? 0 : head + 1;
+					count--;
+				}
+
+				int tail = head + count;
+				queue[tail < queue.length ? tail : tail - queue.length].copyFrom(sample);
+				count++;
+			}
+			finally
+			{
+				lock.unlock();
+			}
+
+			// Without demand, the next request() schedules the delivery
+			if (demand.get() > 0)
+			{
+				schedule();
+			}
+		}
+
+		/**
+		 * Moves up to max samples from the queue into new samples
+		 * @return The samples, null if the queue is empty
+		 */
+		Sample[] take(int max)
+		{
+			lock.lock();
+
+			try
+			{
+				int n = Math.min(count, max);
+
+				if (n == 0)
+				{
+					return null;
+				}
+
+				Sample[] samples = new Sample[n];
+
+				for (int i = 0; i < n; i++)
+				{
+					samples[i] = new Sample();
+					samples[i].copyFrom(queue[head]);
+
+					head = head + 1 == queue.length ? 0 : head + 1;
+				}
+
+				count -= n;
+
+				return samples;
+			}
+			finally
+			{
+				lock.unlock();
+			}
+		}
+
+		private boolean isEmpty()
+		{
+			lock.lock();
+
+			try
+			{
+				return count == 0;
+			}
+			finally
+			{
+				lock.unlock();
+			}
+		}
+
+		@Override
+		public void request(long n)
+		{
+			if (n <= 0)
+			{
+				terminate(new IllegalArgumentException("Non-positive request : " + n));
+				return;
+			}
+
+			long current;
+
+			do
+			{
+				current = demand.get();
+
+				if (current == Long.MAX_VALUE)
+				{
+					break;
+				}
+			}
+			while (!demand.compareAndSet(current, current + n < 0 ? Long.MAX_VALUE : current + n));
+
+			schedule();
+		}
+
+		@Override
+		public void cancel()
+		{
+			cancelled = true;
+			deliveries.remove(this);
+		}
+
+		/**
+		 * Completes (error null) or fails the subscription
+		 */
+		void terminate(Throwable error)
+		{
+			if (done)
+			{
+				return;
+			}
+
+			this.error = error;
+			done = true;
+
+			schedule();
+		}
+
+		/**
+		 * Starts a drain task, unless one is running : it will then loop once more
+		 */
+		private void schedule()
+		{
+			if (pending.getAndIncrement() == 0)
+			{
+				try
+				{
+					executor.execute(this);
+				}
+				catch (RejectedExecutionException ree)
+				{
+					cancel();
+					subscriber.onError(ree);
+				}
+			}
+		}
+
+		/**
+		 * Drain task : delivers while there is demand, then the terminal signal
+		 */
+		@Override
+		public void run()
+		{
+			int missed = 1;
+
+			do
+			{
+				while (!cancelled)
+				{
+					if (done && error != null)
+					{
+						cancel();
+						subscriber.onError(error);
+						break;
+					}
+
+					long requested = demand.get();
+
+					if (requested == 0)
+					{
+						break;
+					}
+
+					T item = poll();
+
+					if (item == null)
+					{
+						break;
+					}
+
+					if (requested != Long.MAX_VALUE)
+					{
+						demand.decrementAndGet();
+					}
+
+					try
+					{
+						subscriber.onNext(item);
+					}
+					catch (Throwable t)
+					{
+						cancel();
+						subscriber.onError(t);
+					}
+				}
+
+				// Completion does not need demand
+				if (!cancelled && done && error == null && isEmpty())
+				{
+					cancel();
+					subscriber.onComplete();
+				}
+
+				missed = pending.addAndGet(-missed);
+			}
+			while (missed != 0);
+		}
+	}
+
+	/**
+	 * One sample per item
+	 */
+	private final class SingleDelivery extends Delivery<Sample>
+	{
+		SingleDelivery(Flow.Subscriber<? super Sample> subscriber)
+		{
+			super(subscriber);
+		}
+
+		@Override
+		Sample poll()
+		{
+			Sample[] samples = take(1);
+
+			return samples == null ? null : samples[0];
+		}
+	}
+
+	/**
+	 * Up to maxBatchSize samples per item
+	 */
+	private final class BatchDelivery extends Delivery<Sample[]>
+	{
+		private final int maxBatchSize;
+
+		BatchDelivery(Flow.Subscriber<? super Sample[]> subscriber, int maxBatchSize)
+		{
+			super(subscriber);
+			this.maxBatchSize = maxBatchSize;
+		}
+
+		@Override
+		Sample[] poll()
+		{
+			return take(maxBatchSize);
+		}
+	}
+}
@@ -0,0 +1,214 @@
+/**
+ * Quantiles of one quantity (current, power...) per device and per time window, for sizing fuses and power supplies
+ * Fed as a SampleListener on the sampling thread, by an Ina219Sampler or an Ina219Registry (one sketch per Sample.getSource()).
+ * Windows are aligned on multiples of their duration (System.nanoTime scale), so the windows of several instances
+ * line up and their sketches can be merged. When a window ends, its sketches are published as a Window, readable from any
+ * thread, and new sketches are allocated for the next one : one allocation per device and per window, none per sample.
+ *
+ * @author Alexandre Scieux
+ * @version 1.0
+ */
+
+package sensor;
+
+import java.util.Arrays;
+
+public final class SampleQuantiles implements SampleListener
+{
+	private final SampleChannel channel;
+	private final long windowNanos;
+	private final QuantileSketch template;
+
+	/* Sampling thread only */
+	private QuantileSketch[] sketches = new QuantileSketch[0];
+	private long windowStart;
+	private boolean started;
+
+	/* Last completed window, published by the sampling thread */
+	private volatile Window last;
+	private volatile long windowCount;
+
+	/**
+	 * Sketches of a completed window, one per device. Not modified once published : merge them into a sketch of your own.
+	 */
+	public static final class Window
+	{
+		private final long startNanos;
+		private final long endNanos;
+		private final QuantileSketch[] sketches;
+
+		private Window(long startNanos, long endNanos, QuantileSketch[] sketches)
+		{
+			this.startNanos = startNanos;
+			this.endNanos   = endNanos;
+			this.sketches   = sketches;
+		}
+
+		/**
+		 * @return Start of the window (System.nanoTime scale)
+		 */
+		public long getStartNanos()
+		{
+			return startNanos;
+		}
+
+		/**
+		 * @return End of the window, excluded
+		 */
+		public long getEndNanos()
+		{
+			return endNanos;
+		}
+
+		/**
+		 * @return Number of sources (highest Sample.getSource() + 1)
+		 */
+		public int getSourceCount()
+		{
+			return sketches.length;
+		}
+
+		/**
+		 * @param  source A device index (Sample.getSource())
+		 * @return        Sketch of that device over the window, null if it sent no sample
+		 */
+		public QuantileSketch getSketch(int source)
+		{
+			return source >= 0 && source < sketches.length ? sketches[source] : null;
+		}
+
+		/**
+		 * Adds every device of the window to a sketch : fleet-wide quantiles, or accumulation over several windows
+		 * @param  target A sketch with the same parameters
+		 * @return        The target
+		 */
+		public QuantileSketch mergeInto(QuantileSketch target)
+		{
+			for (QuantileSketch sketch : sketches)
+			{
+				if (sketch != null)
+				{
+					target.merge(sketch);
+				}
+			}
+
+			return target;
+		}
+	}
+
+	/**
+	 * @param channel     The quantity
+	 * @param windowNanos Window duration
+	 */
+	public SampleQuantiles(SampleChannel channel, long windowNanos)
+	{
+		this(channel, windowNanos, new QuantileSketch());
+	}
+
+	/**
+	 * @param channel     The quantity
+	 * @param windowNanos Window duration
+	 * @param template    Sketch giving the accuracy and magnitudes of the sketches (not modified)
+	 */
+	public SampleQuantiles(SampleChannel channel, long windowNanos, QuantileSketch template)
+	{
+		if (windowNanos <= 0)
+		{
+			throw new IllegalArgumentException("Window duration out of range : " + windowNanos);
+		}
+
+		this.channel     = channel;
+		this.windowNanos = windowNanos;
+		this.template    = template.newEmpty();
+	}
+
+	/**
+	 * Counts the sample in the sketch of its device, publishing the window first if it is over. Sampling thread only.
+	 * @param sample A decoded sample
+	 */
+	@Override
+	public void onSample(Sample sample)
+	{
+		long start = Math.floorDiv(sample.timestampNanos, windowNanos) * windowNanos;
+
+		if (!started)
+		{
+			started = true;
+			windowStart = start;
+		}
+		else if (start != windowStart)
+		{
+			// Windows without samples are skipped
+			publish();
+			windowStart = start;
+		}
+
+		int source = Math.max(sample.source, 0);
+
+		if (source >= sketches.length)
+		{
+			sketches = Arrays.copyOf(sketches, source + 1);
+		}
+
+		QuantileSketch sketch = sketches[source];
+
+		if (sketch == null)
+		{
+			sketch = template.newEmpty();
+			sketches[source] = sketch;
+		}
+
+		sketch.add(channel.get(sample));
+	}
+
+	/**
+	 * @return The last completed window, null before the first one
+	 */
+	public Window getLastWindow()
+	{
+		return last;
+	}
+
+	/**
+	 * @return Number of windows completed
+	 */
+	public long getWindowCount()
+	{
+		return windowCount;
+	}
+
+	/**
+	 * @return The quantity
+	 */
+	public SampleChannel getChannel()
+	{
+		return channel;
+	}
+
+	/**
+	 * @return Window duration, in ns
+	 */
+	public long getWindowNanos()
+	{
+		return windowNanos;
+	}
+
+	/**
+	 * @return An empty sketch mergeable with the published ones
+	 */
+	public QuantileSketch newSketch()
+	{
+		return template.newEmpty();
+	}
+
+	/**
+	 * Hands the sketches over to a Window : the sampling thread never touches them again
+	 */
+	private void publish()
+	{
+		last = new Window(windowStart, windowStart + windowNanos, sketches);
+		windowCount++;
+
+		sketches = new QuantileSketch[sketches.length];
+	}
+}
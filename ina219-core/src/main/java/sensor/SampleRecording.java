@@ -0,0 +1,355 @@
+/**
+ * Reader of a binary sample recording written by SampleRecordingWriter
+ * The file is memory-mapped as is, in 64 MB windows mapped on first access : opening a multi-gigabyte capture reads only
+ * the header, and the records are paged in as they are accessed. Samples are decoded with the registers and shunt resistance stored in the header.
+ * Several threads can read the same recording.
+ *
+ * Format (little-endian), version 1 :
+ *   header, HEADER_BYTES bytes :
+ *     0  magic "INA219RC"        8 bytes
+ *     8  format version          u16
+ *     10 header size             u16
+ *     12 record size             u16
+ *     14 device address          u16
+ *     16 configuration register  u16
+ *     18 calibration register    u16
+ *     20 reserved                4 bytes
+ *     24 sample count            i64, written when the writer flushes or closes
+ *     32 start time, wall clock  i64, ms since the epoch
+ *     40 start time, nanoTime    i64, System.nanoTime at the same instant
+ *     48 shunt resistance        f64, ohms (0 in older files : Ina219.Constants.R_SHUNT_OHM)
+ *     56 reserved                8 bytes
+ *   records, RECORD_BYTES bytes each :
+ *     0  timestamp               i64, System.nanoTime
+ *     8  shunt voltage register  u16
+ *     10 bus voltage register    u16
+ *     12 current register        u16
+ *     14 power register          u16
+ *
+ * @author Alexandre Scieux
+ * @version 1.0
+ */
+
+package sensor;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public final class SampleRecording implements AutoCloseable
+{
+	/* "INA219RC", read as a little-endian long */
+	public static final long MAGIC          = ByteBuffer.wrap("INA219RC".getBytes(StandardCharsets.US_ASCII)).order(ByteOrder.LITTLE_ENDIAN).getLong();
+	public static final int FORMAT_VERSION  = 1;
+	public static final int HEADER_BYTES    = 64;
+	public static final int RECORD_BYTES    = 16;
+
+	/* Header field offsets */
+	static final int MAGIC_OFFSET           = 0;
+	static final int VERSION_OFFSET         = 8;
+	static final int HEADER_SIZE_OFFSET     = 10;
+	static final int RECORD_SIZE_OFFSET     = 12;
+	static final int ADDRESS_OFFSET         = 14;
+	static final int CONFIGURATION_OFFSET   = 16;
+	static final int CALIBRATION_OFFSET     = 18;
+	static final int SAMPLE_COUNT_OFFSET    = 24;
+	static final int START_EPOCH_OFFSET     = 32;
+	static final int START_NANOS_OFFSET     = 40;
+	static final int SHUNT_OHMS_OFFSET      = 48;
+
+	/* Record field offsets */
+	static final int TIMESTAMP_OFFSET       = 0;
+	static final int SHUNT_VOLTAGE_OFFSET   = 8;
+	static final int BUS_VOLTAGE_OFFSET     = 10;
+	static final int CURRENT_OFFSET         = 12;
+	static final int POWER_OFFSET           = 14;
+
+	/* Records per mapped window : 64 MB, as the writer */
+	private static final int WINDOW_SHIFT   = 22;
+	private static final int WINDOW_MASK    = (1 << WINDOW_SHIFT) - 1;
+
+	private final FileChannel channel;
+	private final int headerSize;
+	private final int recordSize;
+	private final int address;
+	private final ConfigRegister configuration;
+	private final int calibration;
+	private final Ina219Scaling scaling;
+	private final long sampleCount;
+	private final long startEpochMillis;
+	private final long startNanoTime;
+
+	/* Mapped on first access, shared by the reading threads */
+	private AtomicReferenceArray<MappedByteBuffer> windows;
+
+	private SampleRecording(FileChannel channel) throws IOException
+	{
+		this.channel = channel;
+
+		if (channel.size() < HEADER_BYTES)
+		{
+			throw new IOException("Not a sample recording : " + channel.size() + " bytes");
+		}
+
+		MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+		header.order(ByteOrder.LITTLE_ENDIAN);
+
+		if (header.getLong(MAGIC_OFFSET) != MAGIC)
+		{
+			throw new IOException("Not a sample recording : bad magic number");
+		}
+
+		int version = header.getShort(VERSION_OFFSET) & 0xFFFF;
+
+		if (version != FORMAT_VERSION)
+		{
+			throw new IOException("Unsupported sample recording version " + version);
+		}
+
+		this.headerSize       = header.getShort(HEADER_SIZE_OFFSET) & 0xFFFF;
+		this.recordSize       = header.getShort(RECORD_SIZE_OFFSET) & 0xFFFF;
+		this.address          = header.getShort(ADDRESS_OFFSET) & 0xFFFF;
+		this.configuration    = ConfigRegister.of(header.getShort(CONFIGURATION_OFFSET) & 0xFFFF);
+		this.calibration      = header.getShort(CALIBRATION_OFFSET) & 0xFFFF;
+		double shuntOhms      = header.getDouble(SHUNT_OHMS_OFFSET);
+		this.scaling          = Ina219Scaling.of(configuration, calibration, shuntOhms > 0 ? shuntOhms : Ina219.Constants.R_SHUNT_OHM.getValue());
+		this.startEpochMillis = header.getLong(START_EPOCH_OFFSET);
+		this.startNanoTime    = header.getLong(START_NANOS_OFFSET);
+
+		long count = header.getLong(SAMPLE_COUNT_OFFSET);
+
+		if (headerSize < HEADER_BYTES || recordSize != RECORD_BYTES || count < 0)
+		{
+			throw new IOException("Corrupted sample recording header");
+		}
+
+		// A writer that did not close leaves the count of its last flush, never more than the file holds
+		long stored = Math.max(0, (channel.size() - headerSize) / recordSize);
+		this.sampleCount = Math.min(count, stored);
+
+		this.windows = new AtomicReferenceArray<>((int) ((sampleCount + WINDOW_MASK) >>> WINDOW_SHIFT));
+	}
+
+	/**
+	 * Maps a recording
+	 * @param  path        The recording file
+	 * @return             The recording, to be closed
+	 * @throws IOException Input/Output Exception, or not a supported recording
+	 */
+	public static SampleRecording open(Path path) throws IOException
+	{
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+
+		try
+		{
+			return new SampleRecording(channel);
+		}
+		catch (IOException | RuntimeException e)
+		{
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * @return Address of the recorded device
+	 */
+	public int getAddress()
+	{
+		return address;
+	}
+
+	/**
+	 * @return Configuration register of the device during the capture
+	 */
+	public ConfigRegister getConfiguration()
+	{
+		return configuration;
+	}
+
+	/**
+	 * @return Calibration register of the device during the capture
+	 */
+	public int getCalibration()
+	{
+		return calibration;
+	}
+
+	/**
+	 * @return Scale factors the samples are decoded with
+	 */
+	public Ina219Scaling getScaling()
+	{
+		return scaling;
+	}
+
+	/**
+	 * @return Number of samples in the recording
+	 */
+	public long size()
+	{
+		return sampleCount;
+	}
+
+	/**
+	 * @return Wall-clock time of the start of the recording, in ms since the epoch
+	 */
+	public long getStartEpochMillis()
+	{
+		return startEpochMillis;
+	}
+
+	/**
+	 * @return System.nanoTime at getStartEpochMillis() : timestamp - getStartNanoTime() is the time since the start
+	 */
+	public long getStartNanoTime()
+	{
+		return startNanoTime;
+	}
+
+	/**
+	 * @param  index Sample index
+	 * @return       Acquisition time (System.nanoTime of the recording machine)
+	 */
+	public long getTimestampNanos(long index)
+	{
+		return window(index).getLong(offset(index) + TIMESTAMP_OFFSET);
+	}
+
+	/**
+	 * @param  index Sample index
+	 * @return       Raw shunt voltage register (0..65535)
+	 */
+	public int getShuntVoltageRegister(long index)
+	{
+		return window(index).getShort(offset(index) + SHUNT_VOLTAGE_OFFSET) & 0xFFFF;
+	}
+
+	/**
+	 * @param  index Sample index
+	 * @return       Raw bus voltage register (0..65535)
+	 */
+	public int getBusVoltageRegister(long index)
+	{
+		return window(index).getShort(offset(index) + BUS_VOLTAGE_OFFSET) & 0xFFFF;
+	}
+
+	/**
+	 * @param  index Sample index
+	 * @return       Raw current register (0..65535)
+	 */
+	public int getCurrentRegister(long index)
+	{
+		return window(index).getShort(offset(index) + CURRENT_OFFSET) & 0xFFFF;
+	}
+
+	/**
+	 * @param  index Sample index
+	 * @return       Raw power register (0..65535)
+	 */
+	public int getPowerRegister(long index)
+	{
+		return window(index).getShort(offset(index) + POWER_OFFSET) & 0xFFFF;
+	}
+
+	/**
+	 * Reads a sample : timestamp, raw registers and values decoded with the recorded scale factors
+	 * @param  index  Sample index
+	 * @param  sample The sample to fill
+	 * @return        The filled sample
+	 */
+	public Sample readInto(long index, Sample sample)
+	{
+		MappedByteBuffer window = window(index);
+		int offset = offset(index);
+
+		sample.timestampNanos       = window.getLong(offset + TIMESTAMP_OFFSET);
+		sample.shuntVoltageRegister = window.getShort(offset + SHUNT_VOLTAGE_OFFSET) & 0xFFFF;
+		sample.busVoltageRegister   = window.getShort(offset + BUS_VOLTAGE_OFFSET) & 0xFFFF;
+		sample.currentRegister      = window.getShort(offset + CURRENT_OFFSET) & 0xFFFF;
+		sample.powerRegister        = window.getShort(offset + POWER_OFFSET) & 0xFFFF;
+
+		return scaling.decode(sample);
+	}
+
+	/**
+	 * Reads the samples from index from (included) to index to (excluded) into the same reusable sample, handing each one to the visitor
+	 * @param from    First sample index
+	 * @param to      End of the range, at most size()
+	 * @param sample  The sample to fill
+	 * @param visitor Called once per sample, in order
+	 */
+	public void forEach(long from, long to, Sample sample, SampleListener visitor)
+	{
+		if (from < 0 || from > to || to > sampleCount)
+		{
+			throw new IndexOutOfBoundsException("Range [" + from + ", " + to + ") out of [0, " + sampleCount + ")");
+		}
+
+		for (long index = from; index < to; index++)
+		{
+			visitor.onSample(readInto(index, sample));
+		}
+	}
+
+	/**
+	 * Closes the file. The mappings are released once garbage collected.
+	 * @throws IOException Input/Output Exception
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		windows = new AtomicReferenceArray<>(0);
+		channel.close();
+	}
+
+	private MappedByteBuffer window(long index)
+	{
+		if (index < 0 || index >= sampleCount)
+		{
+			throw new IndexOutOfBoundsException("Sample index " + index + " out of [0, " + sampleCount + ")");
+		}
+
+		AtomicReferenceArray<MappedByteBuffer> mapped = windows;
+		int i = (int) (index >>> WINDOW_SHIFT);
+		MappedByteBuffer window = mapped.get(i);
+
+		return window != null ? window : map(mapped, i);
+	}
+
+	/**
+	 * Maps a window on its first access. Threads racing on the same window keep the first mapping.
+	 * @throws UncheckedIOException If the window cannot be mapped (file closed, I/O error)
+	 */
+	private MappedByteBuffer map(AtomicReferenceArray<MappedByteBuffer> mapped, int i)
+	{
+		long first = (long) i << WINDOW_SHIFT;
+		long records = Math.min(sampleCount - first, 1L << WINDOW_SHIFT);
+		MappedByteBuffer window;
+
+		try
+		{
+			window = channel.map(FileChannel.MapMode.READ_ONLY, headerSize + first * recordSize, records * recordSize);
+		}
+		catch (IOException ioe)
+		{
+			throw new UncheckedIOException("Cannot map sample recording window " + i, ioe);
+		}
+
+		window.order(ByteOrder.LITTLE_ENDIAN);
+
+		return mapped.compareAndSet(i, null, window) ? window : mapped.get(i);
+	}
+
+	private int offset(long index)
+	{
+		return ((int) index & WINDOW_MASK) * recordSize;
+	}
+}
@@ -0,0 +1,250 @@
+/**
+ * Writes a binary sample recording (format described in SampleRecording) through a memory-mapped file
+ * Records are copied into 64 MB mapped windows, the file growing one window at a time : appending a sample is a few
+ * memory stores, the kernel writing the pages back in the background. close() stores the sample count in the header
+ * and trims the file to the last record. One writer thread only.
+ *
+ * @author Alexandre Scieux
+ * @version 1.0
+ */
+
+package sensor;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public final class SampleRecordingWriter implements SampleListener, AutoCloseable
+{
+	/* Records per mapped window : 64 MB */
+	private static final int WINDOW_RECORDS = 1 << 22;
+
+	private final FileChannel channel;
+	private final MappedByteBuffer header;
+
+	private MappedByteBuffer window;
+	private int windowPosition;
+	private long windowStart;
+
+	/* Writer thread only */
+	private long sampleCount;
+	private volatile long droppedCount;
+	private volatile IOException lastError;
+	private boolean closed;
+
+	private SampleRecordingWriter(FileChannel channel, int address, ConfigRegister configuration, int calibration, double shuntOhms) throws IOException
+	{
+		this.channel = channel;
+		this.header  = channel.map(FileChannel.MapMode.READ_WRITE, 0, SampleRecording.HEADER_BYTES);
+		this.header.order(ByteOrder.LITTLE_ENDIAN);
+
+		long startEpochMillis = System.currentTimeMillis();
+		long startNanoTime    = System.nanoTime();
+
+		header.putLong(SampleRecording.MAGIC_OFFSET, SampleRecording.MAGIC);
+		header.putShort(SampleRecording.VERSION_OFFSET, (short) SampleRecording.FORMAT_VERSION);
+		header.putShort(SampleRecording.HEADER_SIZE_OFFSET, (short) SampleRecording.HEADER_BYTES);
+		header.putShort(SampleRecording.RECORD_SIZE_OFFSET, (short) SampleRecording.RECORD_BYTES);
+		header.putShort(SampleRecording.ADDRESS_OFFSET, (short) address);
+		header.putShort(SampleRecording.CONFIGURATION_OFFSET, (short) configuration.getValue());
+		header.putShort(SampleRecording.CALIBRATION_OFFSET, (short) calibration);
+		header.putDouble(SampleRecording.SHUNT_OHMS_OFFSET, shuntOhms);
+		header.putLong(SampleRecording.SAMPLE_COUNT_OFFSET, 0);
+		header.putLong(SampleRecording.START_EPOCH_OFFSET, startEpochMillis);
+		header.putLong(SampleRecording.START_NANOS_OFFSET, startNanoTime);
+
+		mapWindow(0);
+	}
+
+	/**
+	 * Creates a recording, replacing any existing file
+	 * @param  path          The recording file
+	 * @param  address       Address of the recorded device
+	 * @param  configuration Configuration register of the device during the capture
+	 * @param  calibration   Calibration register of the device during the capture
+	 * @return               The writer, to be closed
+	 * @throws IOException   Input/Output Exception
+	 */
+	public static SampleRecordingWriter create(Path path, int address, ConfigRegister configuration, int calibration) throws IOException
+	{
+		return create(path, address, configuration, calibration, Ina219.Constants.R_SHUNT_OHM.getValue());
+	}
+
+	/**
+	 * Creates a recording, replacing any existing file
+	 * @param  path          The recording file
+	 * @param  address       Address of the recorded device
+	 * @param  configuration Configuration register of the device during the capture
+	 * @param  calibration   Calibration register of the device during the capture
+	 * @param  shuntOhms     Shunt resistance of the device, in ohms
+	 * @return               The writer, to be closed
+	 * @throws IOException   Input/Output Exception
+	 */
+	public static SampleRecordingWriter create(Path path, int address, ConfigRegister configuration, int calibration, double shuntOhms) throws IOException
+	{
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+		try
+		{
+			return new SampleRecordingWriter(channel, address, configuration, calibration, shuntOhms);
+		}
+		catch (IOException | RuntimeException e)
+		{
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Creates a recording of a device, with its current configuration, calibration and shunt resistance
+	 * @param  path        The recording file
+	 * @param  ina219      The recorded device
+	 * @return             The writer, to be closed
+	 * @throws IOException Input/Output Exception
+	 */
+	public static SampleRecordingWriter create(Path path, Ina219 ina219) throws IOException
+	{
+		return create(path, ina219.getAddress(), ina219.getConfiguration(), ina219.getCalibration(), ina219.getShuntOhms());
+	}
+
+	/**
+	 * Appends the timestamp and raw registers of a sample
+	 * @param  sample      The sample
+	 * @throws IOException Input/Output Exception while growing the file
+	 */
+	public void append(Sample sample) throws IOException
+	{
+		append(sample.timestampNanos, sample.shuntVoltageRegister, sample.busVoltageRegister, sample.currentRegister, sample.powerRegister);
+	}
+
+	/**
+	 * Appends a sample from its raw registers
+	 * @param  timestampNanos       Acquisition time (System.nanoTime)
+	 * @param  shuntVoltageRegister Raw shunt voltage register
+	 * @param  busVoltageRegister   Raw bus voltage register
+	 * @param  currentRegister      Raw current register
+	 * @param  powerRegister        Raw power register
+	 * @throws IOException          Input/Output Exception while growing the file
+	 */
+	public void append(long timestampNanos, int shuntVoltageRegister, int busVoltageRegister, int currentRegister, int powerRegister) throws IOException
+	{
+		if (closed)
+		{
+			throw new IOException("Recording closed");
+		}
+
+		if (windowPosition == WINDOW_RECORDS)
+		{
+			mapWindow(windowStart + WINDOW_RECORDS);
+		}
+
+		int offset = windowPosition * SampleRecording.RECORD_BYTES;
+
+		window.putLong(offset + SampleRecording.TIMESTAMP_OFFSET, timestampNanos);
+		window.putShort(offset + SampleRecording.SHUNT_VOLTAGE_OFFSET, (short) shuntVoltageRegister);
+		window.putShort(offset + SampleRecording.BUS_VOLTAGE_OFFSET, (short) busVoltageRegister);
+		window.putShort(offset + SampleRecording.CURRENT_OFFSET, (short) currentRegister);
+		window.putShort(offset + SampleRecording.POWER_OFFSET, (short) powerRegister);
+
+		windowPosition++;
+		sampleCount++;
+	}
+
+	/**
+	 * Appends the sample, as a listener of Ina219Sampler or Ina219Registry
+	 * A sample that cannot be written is dropped and the failure kept in getLastError()
+	 * @param sample The sample
+	 */
+	@Override
+	public void onSample(Sample sample)
+	{
+		try
+		{
+			append(sample);
+		}
+		catch (IOException ioe)
+		{
+			droppedCount++;
+			lastError = ioe;
+		}
+	}
+
+	/**
+	 * Stores the sample count in the header and forces the file content to the storage device
+	 * A reader opening the file sees the samples appended up to the last flush
+	 * @throws IOException Input/Output Exception
+	 */
+	public void flush() throws IOException
+	{
+		header.putLong(SampleRecording.SAMPLE_COUNT_OFFSET, sampleCount);
+
+		window.force();
+		header.force();
+	}
+
+	/**
+	 * @return Number of samples appended
+	 */
+	public long size()
+	{
+		return sampleCount;
+	}
+
+	/**
+	 * @return Number of samples dropped by onSample() because of a write failure
+	 */
+	public long getDroppedCount()
+	{
+		return droppedCount;
+	}
+
+	/**
+	 * @return Last write failure of onSample(), null if none
+	 */
+	public IOException getLastError()
+	{
+		return lastError;
+	}
+
+	/**
+	 * Stores the sample count, trims the file after the last record and closes it
+	 * @throws IOException Input/Output Exception
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		if (closed)
+		{
+			return;
+		}
+
+		closed = true;
+
+		try
+		{
+			header.putLong(SampleRecording.SAMPLE_COUNT_OFFSET, sampleCount);
+			window = null;
+
+			channel.truncate(SampleRecording.HEADER_BYTES + sampleCount * SampleRecording.RECORD_BYTES);
+		}
+		finally
+		{
+			channel.close();
+		}
+	}
+
+	/**
+	 * Maps the window starting at the given record, growing the file
+	 */
+	private void mapWindow(long firstRecord) throws IOException
+	{
+		window = channel.map(FileChannel.MapMode.READ_WRITE, SampleRecording.HEADER_BYTES + firstRecord * SampleRecording.RECORD_BYTES, (long) WINDOW_RECORDS * SampleRecording.RECORD_BYTES);
+		window.order(ByteOrder.LITTLE_ENDIAN);
+
+		windowStart    = firstRecord;
+		windowPosition = 0;
+	}
+}
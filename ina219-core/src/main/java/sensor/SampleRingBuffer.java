@@ -0,0 +1,232 @@
+/**
+ * Preallocated single-producer / multi-consumer ring buffer of samples, stored as primitive arrays
+ * The producer (Ina219Sampler) never waits : when the buffer is full, the oldest samples are overwritten.
+ * Each consumer owns a Cursor and drains batches without locks or allocation. A consumer that falls more than
+ * one capacity behind is lapped : the overwritten samples are skipped and counted in Cursor.getLost().
+ *
+ * @author Alexandre Scieux
+ * @version 1.0
+ */
+
+package sensor;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+
+public final class SampleRingBuffer
+{
+	private final int capacity;
+	private final int mask;
+
+	/* One array per sample field, indexed by sequence & mask */
+	private final long[] timestampNanos;
+	private final int[] source;
+	private final int[] shuntVoltageRegister;
+	private final int[] busVoltageRegister;
+	private final int[] currentRegister;
+	private final int[] powerRegister;
+	private final double[] shuntVoltage;
+	private final double[] busVoltage;
+	private final double[] current;
+	private final double[] power;
+
+	/* Sequence of the last published sample, -1 when empty. Written by the producer only, with release semantics */
+	private final AtomicLong published = new AtomicLong(-1);
+
+	/* Sequence of the sample being written (the last published one between two publications), -1 when empty. Written by the producer only */
+	private final AtomicLong writing = new AtomicLong(-1);
+
+	/* Sequence of the next sample to publish, producer thread only */
+	private long next = 0;
+
+	/**
+	 * Read position of one consumer
+	 */
+	public static final class Cursor
+	{
+		private long next;
+		private long lost;
+
+		private Cursor(long next)
+		{
+			this.next = next;
+		}
+
+		/**
+		 * @return Sequence of the next sample this consumer will read
+		 */
+		public long getPosition()
+		{
+			return next;
+		}
+
+		/**
+		 * @return Number of samples overwritten before this consumer could read them
+		 */
+		public long getLost()
+		{
+			return lost;
+		}
+	}
+
+	/**
+	 * @param capacity Number of slots, rounded up to the next power of two (at least 2). The slot being written
+	 *                 by the producer is never read, so consumers see at most capacity - 1 samples at once.
+	 */
+	public SampleRingBuffer(int capacity)
+	{
+		if (capacity < 1 || capacity > (1 << 30))
+		{
+			throw new IllegalArgumentException("Ring buffer capacity out of range : " + capacity);
+		}
+
+		int size = 2;
+
+		while (size < capacity)
+		{
+			size <<= 1;
+		}
+
+		this.capacity = size;
+		this.mask     = size - 1;
+
+		this.timestampNanos       = new long[this.capacity];
+		this.source               = new int[this.capacity];
+		this.shuntVoltageRegister = new int[this.capacity];
+		this.busVoltageRegister   = new int[this.capacity];
+		this.currentRegister      = new int[this.capacity];
+		this.powerRegister        = new int[this.capacity];
+		this.shuntVoltage         = new double[this.capacity];
+		this.busVoltage           = new double[this.capacity];
+		this.current              = new double[this.capacity];
+		this.power                = new double[this.capacity];
+	}
+
+	/**
+	 * @return Number of slots
+	 */
+	public int getCapacity()
+	{
+		return capacity;
+	}
+
+	/**
+	 * @return Number of samples published since the buffer was created
+	 */
+	public long getPublishedCount()
+	{
+		return published.get() + 1;
+	}
+
+	/**
+	 * Creates a consumer cursor positioned after the last published sample
+	 * @return The cursor, to be used by a single consumer thread
+	 */
+	public Cursor newCursor()
+	{
+		return new Cursor(published.get() + 1);
+	}
+
+	/**
+	 * Creates a consumer cursor positioned on the oldest sample still in the buffer
+	 * @return The cursor, to be used by a single consumer thread
+	 */
+	public Cursor newCursorFromOldest()
+	{
+		long last = published.get();
+
+		return new Cursor(Math.max(0, oldestReadable(last)));
+	}
+
+	/**
+	 * Publishes a sample, overwriting the oldest one when the buffer is full
+	 * Must only be called by the producer thread
+	 * @param sample The sample to copy into the buffer
+	 */
+	public void publish(Sample sample)
+	{
+		long sequence = next++;
+		int index = (int) sequence & mask;
+
+		// The slot is claimed before it is overwritten : a consumer copying the previous sample of that slot sees the claim
+		writing.lazySet(sequence);
+		VarHandle.storeStoreFence();
+
+		timestampNanos[index]       = sample.timestampNanos;
+		source[index]               = sample.source;
+		shuntVoltageRegister[index] = sample.shuntVoltageRegister;
+		busVoltageRegister[index]   = sample.busVoltageRegister;
+		currentRegister[index]      = sample.currentRegister;
+		powerRegister[index]        = sample.powerRegister;
+		shuntVoltage[index]         = sample.shuntVoltage;
+		busVoltage[index]           = sample.busVoltage;
+		current[index]              = sample.current;
+		power[index]                = sample.power;
+
+		// Release : the slot content is visible to any consumer that sees the new sequence
+		published.lazySet(sequence);
+	}
+
+	/**
+	 * Copies the samples published since the last call into the provided batch, oldest first
+	 * @param  cursor The consumer cursor, advanced past the copied samples
+	 * @param  batch  Preallocated samples to fill
+	 * @return        Number of samples copied (0 if nothing new)
+	 */
+	public int drain(Cursor cursor, Sample[] batch)
+	{
+		long last = published.get();
+		int count = 0;
+
+		while (count < batch.length && cursor.next <= last)
+		{
+			// Lapped : skip what the producer already overwrote
+			long oldest = oldestReadable(last);
+
+			if (cursor.next < oldest)
+			{
+				cursor.lost += oldest - cursor.next;
+				cursor.next = oldest;
+			}
+
+			int index = (int) cursor.next & mask;
+			Sample sample = batch[count];
+
+			sample.timestampNanos       = timestampNanos[index];
+			sample.source               = source[index];
+			sample.shuntVoltageRegister = shuntVoltageRegister[index];
+			sample.busVoltageRegister   = busVoltageRegister[index];
+			sample.currentRegister      = currentRegister[index];
+			sample.powerRegister        = powerRegister[index];
+			sample.shuntVoltage         = shuntVoltage[index];
+			sample.busVoltage           = busVoltage[index];
+			sample.current              = current[index];
+			sample.power                = power[index];
+
+			// The copy is valid only if the producer did not claim the slot meanwhile
+			VarHandle.loadLoadFence();
+
+			if (cursor.next <= writing.get() - capacity)
+			{
+				last = published.get();
+				continue;
+			}
+
+			cursor.next++;
+			count++;
+		}
+
+		return count;
+	}
+
+	/**
+	 * Oldest sequence that can be read safely : the slot of the sequence before it may be being overwritten
+	 * by the producer, which writes sequence last + 1 before publishing it
+	 * @param  last Last published sequence
+	 * @return      Oldest readable sequence
+	 */
+	private long oldestReadable(long last)
+	{
+		return last - capacity + 2;
+	}
+}
@@ -0,0 +1,449 @@
+/**
+ * Streaming rollup of the samples into cascaded min / max / mean / count buckets, for dashboards over long periods
+ * Fed as a SampleListener on the sampling thread. Level 0 aggregates the samples into buckets of the finest resolution,
+ * each closed bucket is merged into the open bucket of the next level, and so on : the raw samples are never stored,
+ * and a bucket of any level costs one merge per finer bucket. Buckets are aligned on multiples of their resolution
+ * (System.nanoTime scale), and periods without samples produce no bucket.
+ * Each level keeps its last closed buckets in a fixed-size ring of primitive arrays. Readers on any thread read them without locks :
+ * a bucket overwritten while being read is detected and skipped, as in SampleRingBuffer. The open buckets are not visible.
+ * downsample() answers a range query from the coarsest level that still has enough points, then reduces it with LTTB :
+ * a year at 1 h resolution is 8760 buckets, whatever the sample rate.
+ *
+ * @author Alexandre Scieux
+ * @version 1.0
+ */
+
+package sensor;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public final class SampleRollup implements SampleListener
+{
+	private static final int CHANNELS = SampleChannel.ALL.length;
+
+	private final Level[] levels;
+
+	/**
+	 * Content of one bucket, reusable
+	 */
+	public static final class Bucket
+	{
+		private long startNanos;
+		private long count;
+		private final double[] min = new double[CHANNELS];
+		private final double[] max = new double[CHANNELS];
+		private final double[] sum = new double[CHANNELS];
+
+		/**
+		 * @return Start of the bucket (System.nanoTime scale), a multiple of the resolution
+		 */
+		public long getStartNanos()
+		{
+			return startNanos;
+		}
+
+		/**
+		 * @return Number of samples aggregated in the bucket
+		 */
+		public long getCount()
+		{
+			return count;
+		}
+
+		/**
+		 * @param  channel The quantity
+		 * @return         Smallest value in the bucket
+		 */
+		public double getMin(SampleChannel channel)
+		{
+			return min[channel.ordinal()];
+		}
+
+		/**
+		 * @param  channel The quantity
+		 * @return         Largest value in the bucket
+		 */
+		public double getMax(SampleChannel channel)
+		{
+			return max[channel.ordinal()];
+		}
+
+		/**
+		 * @param  channel The quantity
+		 * @return         Mean of the bucket
+		 */
+		public double getMean(SampleChannel channel)
+		{
+			return count > 0 ? sum[channel.ordinal()] / count : 0;
+		}
+
+		private void clear(long startNanos)
+		{
+			this.startNanos = startNanos;
+			this.count      = 0;
+
+			for (int c = 0; c < CHANNELS; c++)
+			{
+				min[c] = Double.POSITIVE_INFINITY;
+				max[c] = Double.NEGATIVE_INFINITY;
+				sum[c] = 0;
+			}
+		}
+
+		private void add(Sample sample)
+		{
+			count++;
+
+			for (int c = 0; c < CHANNELS; c++)
+			{
+				double value = SampleChannel.ALL[c].get(sample);
+
+				min[c] = Math.min(min[c], value);
+				max[c] = Math.max(max[c], value);
+				sum[c] += value;
+			}
+		}
+
+		private void merge(Bucket other)
+		{
+			count += other.count;
+
+			for (int c = 0; c < CHANNELS; c++)
+			{
+				min[c] = Math.min(min[c], other.min[c]);
+				max[c] = Math.max(max[c], other.max[c]);
+				sum[c] += other.sum[c];
+			}
+		}
+	}
+
+	/**
+	 * Closed buckets of one resolution
+	 */
+	public static final class Level
+	{
+		private final long resolutionNanos;
+		private final int capacity;
+
+		/* Closed buckets, indexed by sequence % capacity */
+		private final long[] startNanos;
+		private final long[] count;
+		private final double[] min;
+		private final double[] max;
+		private final double[] sum;
+
+		/* Number of closed buckets, written by the sampling thread only with release semantics */
+		private final AtomicLong published = new AtomicLong();
+
+		/* Sequence of the bucket being closed (the last closed one between two closings), -1 when none. Written by the sampling thread only */
+		private final AtomicLong writing = new AtomicLong(-1);
+
+		/* Sampling thread only */
+		private final Bucket open = new Bucket();
+		private boolean opened;
+
+		private Level(long resolutionNanos, int capacity)
+		{
+			this.resolutionNanos = resolutionNanos;
+			this.capacity        = capacity;
+
+			this.startNanos = new long[capacity];
+			this.count      = new long[capacity];
+			this.min        = new double[capacity * CHANNELS];
+			this.max        = new double[capacity * CHANNELS];
+			this.sum        = new double[capacity * CHANNELS];
+		}
+
+		/**
+		 * @return Duration of a bucket, in ns
+		 */
+		public long getResolutionNanos()
+		{
+			return resolutionNanos;
+		}
+
+		/**
+		 * @return Number of closed buckets kept
+		 */
+		public int getCapacity()
+		{
+			return capacity;
+		}
+
+		/**
+		 * @return Sequence of the next bucket to close : the readable buckets are the sequences from getOldest() to this one, excluded
+		 */
+		public long getEnd()
+		{
+			return published.get();
+		}
+
+		/**
+		 * @return Sequence of the oldest bucket that can be read
+		 */
+		public long getOldest()
+		{
+			return Math.max(0, published.get() - capacity + 1);
+		}
+
+		/**
+		 * Reads a closed bucket
+		 * @param  sequence Bucket sequence, from getOldest() to getEnd() excluded
+		 * @param  bucket   The bucket to fill
+		 * @return          False if the bucket is not closed yet, or was overwritten (bucket content undefined)
+		 */
+		public boolean read(long sequence, Bucket bucket)
+		{
+			if (sequence < 0 || sequence >= published.get())
+			{
+				return false;
+			}
+
+			int slot = (int) (sequence % capacity);
+
+			bucket.startNanos = startNanos[slot];
+			bucket.count      = count[slot];
+			System.arraycopy(min, slot * CHANNELS, bucket.min, 0, CHANNELS);
+			System.arraycopy(max, slot * CHANNELS, bucket.max, 0, CHANNELS);
+			System.arraycopy(sum, slot * CHANNELS, bucket.sum, 0, CHANNELS);
+
+			// The copy is valid only if the sampling thread did not claim the slot meanwhile
+			VarHandle.loadLoadFence();
+
+			return sequence > writing.get() - capacity;
+		}
+
+		/**
+		 * @param  nanos A time (System.nanoTime scale)
+		 * @return       Sequence of the first readable bucket ending after that time, getEnd() if none
+		 */
+		public long search(long nanos)
+		{
+			long low  = getOldest();
+			long high = published.get();
+
+			while (low < high)
+			{
+				long middle = (low + high) >>> 1;
+
+				if (startNanos[(int) (middle % capacity)] + resolutionNanos <= nanos)
+				{
+					low = middle + 1;
+				}
+				else
+				{
+					high = middle;
+				}
+			}
+
+			return low;
+		}
+
+		/**
+		 * @param  nanos A time (System.nanoTime scale)
+		 * @return       Start of the bucket holding that time
+		 */
+		private long align(long nanos)
+		{
+			return Math.floorDiv(nanos, resolutionNanos) * resolutionNanos;
+		}
+
+		/**
+		 * Copies the open bucket into the ring and publishes it
+		 */
+		private void close()
+		{
+			long sequence = published.get();
+			int slot = (int) (sequence % capacity);
+
+			// The slot is claimed before it is overwritten : a reader copying the previous bucket of that slot sees the claim
+			writing.lazySet(sequence);
+			VarHandle.storeStoreFence();
+
+			startNanos[slot] = open.startNanos;
+			count[slot]      = open.count;
+			System.arraycopy(open.min, 0, min, slot * CHANNELS, CHANNELS);
+			System.arraycopy(open.max, 0, max, slot * CHANNELS, CHANNELS);
+			System.arraycopy(open.sum, 0, sum, slot * CHANNELS, CHANNELS);
+
+			// Release : the bucket is visible to any reader that sees the new count
+			published.lazySet(sequence + 1);
+		}
+	}
+
+	/**
+	 * @param resolutionsNanos Bucket durations, finest first, each a multiple of the previous one
+	 * @param capacities       Number of closed buckets kept per level
+	 */
+	public SampleRollup(long[] resolutionsNanos, int[] capacities)
+	{
+		if (resolutionsNanos.length == 0 || resolutionsNanos.length != capacities.length)
+		{
+			throw new IllegalArgumentException("One capacity per resolution expected");
+		}
+
+		levels = new Level[resolutionsNanos.length];
+
+		for (int i = 0; i < levels.length; i++)
+		{
+			if (resolutionsNanos[i] <= 0 || capacities[i] < 2 || (i > 0 && resolutionsNanos[i] % resolutionsNanos[i - 1] != 0))
+			{
+				throw new IllegalArgumentException("Level " + i + " : resolution must be a multiple of the previous one, capacity at least 2");
+			}
+
+			levels[i] = new Level(resolutionsNanos[i], capacities[i]);
+		}
+	}
+
+	/**
+	 * Dashboard rollup : 1 s buckets over a day, 1 min buckets over 30 days, 1 h buckets over a year (about 15 MB)
+	 * @return The rollup
+	 */
+	public static SampleRollup dashboard()
+	{
+		return new SampleRollup(
+			new long[] { TimeUnit.SECONDS.toNanos(1), TimeUnit.MINUTES.toNanos(1), TimeUnit.HOURS.toNanos(1) },
+			new int[] { 86_400, 43_200, 8_784 });
+	}
+
+	/**
+	 * Aggregates a sample. Sampling thread only.
+	 * @param sample A decoded sample
+	 */
+	@Override
+	public void onSample(Sample sample)
+	{
+		advance(0, sample.timestampNanos);
+		levels[0].open.add(sample);
+	}
+
+	/**
+	 * @return Number of levels
+	 */
+	public int getLevelCount()
+	{
+		return levels.length;
+	}
+
+	/**
+	 * @param  level Level index, 0 being the finest
+	 * @return       The level
+	 */
+	public Level getLevel(int level)
+	{
+		return levels[level];
+	}
+
+	/**
+	 * Finest level able to answer a range query : it still holds the start of the range, and covers it with at most maxBuckets
+	 * buckets. Falls back on the coarsest level.
+	 * @param  fromNanos  Start of the range
+	 * @param  toNanos    End of the range
+	 * @param  maxBuckets Largest number of buckets worth reading
+	 * @return            Index of the level
+	 */
+	public int selectLevel(long fromNanos, long toNanos, int maxBuckets)
+	{
+		for (int i = 0; i < levels.length; i++)
+		{
+			Level level = levels[i];
+			long oldest = level.getOldest();
+
+			boolean covers  = level.getEnd() == 0 || oldest == 0 || level.startNanos[(int) (oldest % level.capacity)] <= fromNanos;
+			boolean compact = (toNanos - fromNanos) / level.resolutionNanos <= maxBuckets;
+
+			if (covers && compact)
+			{
+				return i;
+			}
+		}
+
+		return levels.length - 1;
+	}
+
+	/**
+	 * Downsamples the means of a channel over a time range for display : the buckets of the selected level are reduced
+	 * with LTTB, so the cost depends on the number of buckets, never on the number of samples
+	 * @param  channel    The quantity
+	 * @param  fromNanos  Start of the range (System.nanoTime scale)
+	 * @param  toNanos    End of the range
+	 * @param  points     Number of points wanted
+	 * @param  maxBuckets Number of buckets above which a coarser level is used (see selectLevel())
+	 * @param  times      Receives the bucket start times (at least points long)
+	 * @param  values     Receives the bucket means (at least points long)
+	 * @return            Number of points written
+	 */
+	public int downsample(SampleChannel channel, long fromNanos, long toNanos, int points, int maxBuckets, long[] times, double[] values)
+	{
+		Level level = levels[selectLevel(fromNanos, toNanos, maxBuckets)];
+
+		long first = level.search(fromNanos);
+		long end   = level.getEnd();
+		int size   = (int) Math.max(0, Math.min(end - first, level.capacity));
+
+		long[] x = new long[size];
+		double[] y = new double[size];
+		Bucket bucket = new Bucket();
+		int length = 0;
+
+		for (long sequence = first; sequence < first + size; sequence++)
+		{
+			if (!level.read(sequence, bucket))
+			{
+				// Overwritten while reading : the range moved on, skip
+				continue;
+			}
+
+			if (bucket.startNanos >= toNanos)
+			{
+				break;
+			}
+
+			x[length] = bucket.startNanos;
+			y[length] = bucket.getMean(channel);
+			length++;
+		}
+
+		int[] selected = new int[Math.min(length, points)];
+		int count = Lttb.downsample(x, y, length, points, selected);
+
+		for (int i = 0; i < count; i++)
+		{
+			times[i]  = x[selected[i]];
+			values[i] = y[selected[i]];
+		}
+
+		return count;
+	}
+
+	/**
+	 * Moves a level to the bucket holding the given time : the open bucket, if it is over, is published and merged into
+	 * the next level, which may close its own bucket first
+	 */
+	private void advance(int index, long nanos)
+	{
+		Level level = levels[index];
+		long start = level.align(nanos);
+
+		if (level.opened && start == level.open.startNanos)
+		{
+			return;
+		}
+
+		if (level.opened)
+		{
+			level.close();
+
+			if (index + 1 < levels.length)
+			{
+				advance(index + 1, level.open.startNanos);
+				levels[index + 1].open.merge(level.open);
+			}
+		}
+
+		level.opened = true;
+		level.open.clear(start);
+	}
+}
@@ -0,0 +1,619 @@
+/**
+ * Rolling statistics of the shunt voltage, bus voltage, current and power : min, max, mean, variance and RMS over a window
+ * Fed as a SampleListener on the sampling thread (Ina219Sampler.addListener), incrementally and without allocation.
+ * The window is tumbling (consecutive, non-overlapping windows : the statistics of the last completed one are published)
+ * or sliding (the last n samples or the last duration, updated on every sample), in samples or in time.
+ * Any thread reads the published statistics in O(1), without locks : a version counter (odd while the sampling thread
+ * publishes) lets readers detect and retry a copy that raced with an update.
+ * Sliding windows keep the values of the window to remove them : mean and variance are updated with Welford's add/remove
+ * steps, min and max with monotonic queues.
+ *
+ * @author Alexandre Scieux
+ * @version 1.0
+ */
+
+package sensor;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+
+public final class SampleStatistics implements SampleListener
+{
+	private static final int CHANNELS = SampleChannel.ALL.length;
+
+	/* Published values, per channel */
+	private static final int MIN      = 0;
+	private static final int MAX      = 1;
+	private static final int MEAN     = 2;
+	private static final int VARIANCE = 3;
+	private static final int RMS      = 4;
+	private static final int VALUES   = 5;
+
+	private final boolean sliding;
+	private final long windowNanos;
+	private final int windowSamples;
+
+	/* Accumulators, sampling thread only */
+	private final Moments[] moments = new Moments[CHANNELS];
+
+	/* Sliding windows : timestamps and values of the samples in the window, indexed by sequence & mask */
+	private final int mask;
+	private final long[] timestamps;
+	private long head;
+	private long tail;
+
+	/* Tumbling windows : start of the current window */
+	private long windowStart;
+	private boolean started;
+
+	/* Published statistics, guarded by version */
+	private final AtomicLong version = new AtomicLong();
+	private final double[] published = new double[CHANNELS * VALUES];
+	private long publishedCount;
+	private long publishedStart;
+	private long publishedEnd;
+	private long publishedWindows;
+
+	/**
+	 * Consistent copy of the published statistics, reusable
+	 */
+	public static final class Snapshot
+	{
+		private final double[] values = new double[CHANNELS * VALUES];
+		private long count;
+		private long startNanos;
+		private long endNanos;
+
+		/**
+		 * @return Number of samples in the window, 0 before the first window
+		 */
+		public long getCount()
+		{
+			return count;
+		}
+
+		/**
+		 * @return Start of the window : timestamp of its first sample, or window start for tumbling time windows
+		 */
+		public long getStartNanos()
+		{
+			return startNanos;
+		}
+
+		/**
+		 * @return End of the window : timestamp of its last sample, or window end for tumbling time windows
+		 */
+		public long getEndNanos()
+		{
+			return endNanos;
+		}
+
+		/**
+		 * @param  channel The quantity
+		 * @return         Smallest value over the window
+		 */
+		public double getMin(SampleChannel channel)
+		{
+			return values[channel.ordinal() * VALUES + MIN];
+		}
+
+		/**
+		 * @param  channel The quantity
+		 * @return         Largest value over the window
+		 */
+		public double getMax(SampleChannel channel)
+		{
+			return values[channel.ordinal() * VALUES + MAX];
+		}
+
+		/**
+		 * @param  channel The quantity
+		 * @return         Mean over the window
+		 */
+		public double getMean(SampleChannel channel)
+		{
+			return values[channel.ordinal() * VALUES + MEAN];
+		}
+
+		/**
+		 * @param  channel The quantity
+		 * @return         Population variance over the window
+		 */
+		public double getVariance(SampleChannel channel)
+		{
+			return values[channel.ordinal() * VALUES + VARIANCE];
+		}
+
+		/**
+		 * @param  channel The quantity
+		 * @return         Population standard deviation over the window
+		 */
+		public double getStandardDeviation(SampleChannel channel)
+		{
+			return Math.sqrt(getVariance(channel));
+		}
+
+		/**
+		 * @param  channel The quantity
+		 * @return         Root mean square over the window
+		 */
+		public double getRms(SampleChannel channel)
+		{
+			return values[channel.ordinal() * VALUES + RMS];
+		}
+	}
+
+	/**
+	 * Running moments and extremes of one channel
+	 */
+	private static final class Moments
+	{
+		/* Tumbling : extremes of the window. Sliding : values of the window and monotonic queues of their sequences */
+		double min;
+		double max;
+		final double[] values;
+		final long[] minQueue;
+		final long[] maxQueue;
+		long minHead;
+		long minTail;
+		long maxHead;
+		long maxTail;
+
+		/* Welford */
+		long count;
+		double mean;
+		double m2;
+
+		Moments(int capacity)
+		{
+			this.values   = new double[capacity];
+			this.minQueue = new long[capacity];
+			this.maxQueue = new long[capacity];
+
+			clear();
+		}
+
+		void clear()
+		{
+			count = 0;
+			mean  = 0;
+			m2    = 0;
+			min   = Double.POSITIVE_INFINITY;
+			max   = Double.NEGATIVE_INFINITY;
+
+			minHead = minTail = maxHead = maxTail = 0;
+		}
+
+		void add(double x)
+		{
+			count++;
+
+			double delta = x - mean;
+			mean += delta / count;
+			m2 += delta * (x - mean);
+
+			min = Math.min(min, x);
+			max = Math.max(max, x);
+		}
+
+		/**
+		 * Sliding window : adds the value of a sequence, keeping the queues monotonic
+		 */
+		void push(long sequence, double x, int mask)
+		{
+			add(x);
+			values[(int) sequence & mask] = x;
+
+			while (minTail > minHead && values[(int) minQueue[(int) (minTail - 1) & mask] & mask] >= x)
+			{
+				minTail--;
+			}
+
+			minQueue[(int) minTail++ & mask] = sequence;
+
+			while (maxTail > maxHead && values[(int) maxQueue[(int) (maxTail - 1) & mask] & mask] <= x)
+			{
+				maxTail--;
+			}
+
+			maxQueue[(int) maxTail++ & mask] = sequence;
+
+			min = values[(int) minQueue[(int) minHead & mask] & mask];
+			max = values[(int) maxQueue[(int) maxHead & mask] & mask];
+		}
+
+		/**
+		 * Sliding window : removes the oldest sequence of the window
+		 */
+		void pop(long sequence, int mask)
+		{
+			double x = values[(int) sequence & mask];
+
+			count--;
+
+			if (count == 0)
+			{
+				clear();
+				return;
+			}
+
+			double delta = x - mean;
+			mean -= delta / count;
+			m2 = Math.max(0, m2 - delta * (x - mean));
+
+			if (minQueue[(int) minHead & mask] == sequence)
+			{
+				minHead++;
+			}
+
+			if (maxQueue[(int) maxHead & mask] == sequence)
+			{
+				maxHead++;
+			}
+
+			min = values[(int) minQueue[(int) minHead & mask] & mask];
+			max = values[(int) maxQueue[(int) maxHead & mask] & mask];
+		}
+	}
+
+	private SampleStatistics(boolean sliding, long windowNanos, int windowSamples, int capacity)
+	{
+		if (windowSamples < 1 || windowNanos < 0 || capacity < 1 || capacity > (1 << 30))
+		{
+			throw new IllegalArgumentException("Statistics window out of range");
+		}
+
+		this.sliding       = sliding;
+		this.windowNanos   = windowNanos;
+		this.windowSamples = windowSamples;
+
+		int size = 1;
+
+		while (size < capacity)
+		{
+			size <<= 1;
+		}
+
+		this.mask       = size - 1;
+		this.timestamps = sliding ? new long[size] : null;
+
+		for (int c = 0; c < CHANNELS; c++)
+		{
+			moments[c] = new Moments(sliding ? size : 0);
+		}
+	}
+
+	/**
+	 * @param  samples Samples per window
+	 * @return         Statistics over consecutive windows of that many samples
+	 */
+	public static SampleStatistics tumblingSamples(int samples)
+	{
+		return new SampleStatistics(false, 0, samples, 1);
+	}
+
+	/**
+	 * @param  nanos Window duration, windows aligned on the first sample
+	 * @return       Statistics over consecutive windows of that duration
+	 */
+	public static SampleStatistics tumblingNanos(long nanos)
+	{
+		if (nanos <= 0)
+		{
+			throw new IllegalArgumentException("Window duration out of range : " + nanos);
+		}
+
+		return new SampleStatistics(false, nanos, Integer.MAX_VALUE, 1);
+	}
+
+	/**
+	 * @param  samples Samples per window
+	 * @return         Statistics over the last samples, updated on every sample
+	 */
+	public static SampleStatistics slidingSamples(int samples)
+	{
+		return new SampleStatistics(true, 0, samples, samples);
+	}
+
+	/**
+	 * @param  nanos      Window duration
+	 * @param  maxSamples Largest number of samples kept in the window (preallocated) : at higher rates, the oldest samples leave early
+	 * @return            Statistics over the samples of the last duration, updated on every sample
+	 */
+	public static SampleStatistics slidingNanos(long nanos, int maxSamples)
+	{
+		if (nanos <= 0)
+		{
+			throw new IllegalArgumentException("Window duration out of range : " + nanos);
+		}
+
+		return new SampleStatistics(true, nanos, maxSamples, maxSamples);
+	}
+
+	/**
+	 * Adds a sample to the window. Sampling thread only.
+	 * @param sample A decoded sample
+	 */
+	@Override
+	public void onSample(Sample sample)
+	{
+		if (sliding)
+		{
+			slide(sample);
+		}
+		else
+		{
+			tumble(sample);
+		}
+	}
+
+	/**
+	 * @return True for a sliding window, false for a tumbling one
+	 */
+	public boolean isSliding()
+	{
+		return sliding;
+	}
+
+	/**
+	 * @return Number of published windows (one per sample when sliding)
+	 */
+	public long getWindowCount()
+	{
+		long v;
+		long windows;
+
+		do
+		{
+			v = awaitStable();
+			windows = publishedWindows;
+			VarHandle.loadLoadFence();
+		}
+		while (version.get() != v);
+
+		return windows;
+	}
+
+	/**
+	 * @return Number of samples in the published window
+	 */
+	public long getCount()
+	{
+		long v;
+		long count;
+
+		do
+		{
+			v = awaitStable();
+			count = publishedCount;
+			VarHandle.loadLoadFence();
+		}
+		while (version.get() != v);
+
+		return count;
+	}
+
+	/**
+	 * @param  channel The quantity
+	 * @return         Smallest value over the window
+	 */
+	public double getMin(SampleChannel channel)
+	{
+		return read(channel.ordinal() * VALUES + MIN);
+	}
+
+	/**
+	 * @param  channel The quantity
+	 * @return         Largest value over the window
+	 */
+	public double getMax(SampleChannel channel)
+	{
+		return read(channel.ordinal() * VALUES + MAX);
+	}
+
+	/**
+	 * @param  channel The quantity
+	 * @return         Mean over the window
+	 */
+	public double getMean(SampleChannel channel)
+	{
+		return read(channel.ordinal() * VALUES + MEAN);
+	}
+
+	/**
+	 * @param  channel The quantity
+	 * @return         Population variance over the published window
+	 */
+	public double getVariance(SampleChannel channel)
+	{
+		return read(channel.ordinal() * VALUES + VARIANCE);
+	}
+
+	/**
+	 * @param  channel The quantity
+	 * @return         Root mean square over the window
+	 */
+	public double getRms(SampleChannel channel)
+	{
+		return read(channel.ordinal() * VALUES + RMS);
+	}
+
+	/**
+	 * Copies all the published statistics at once, consistently
+	 * @param  snapshot The snapshot to fill
+	 * @return          The filled snapshot
+	 */
+	public Snapshot snapshot(Snapshot snapshot)
+	{
+		long v;
+
+		do
+		{
+			v = awaitStable();
+
+			System.arraycopy(published, 0, snapshot.values, 0, published.length);
+			snapshot.count      = publishedCount;
+			snapshot.startNanos = publishedStart;
+			snapshot.endNanos   = publishedEnd;
+
+			VarHandle.loadLoadFence();
+		}
+		while (version.get() != v);
+
+		return snapshot;
+	}
+
+	/**
+	 * Sliding window : adds the sample, then evicts what fell out of the window
+	 */
+	private void slide(Sample sample)
+	{
+		long now = sample.timestampNanos;
+
+		// Room for the new sample
+		if (tail - head == mask + 1 || tail - head == windowSamples)
+		{
+			evict();
+		}
+
+		timestamps[(int) tail & mask] = now;
+
+		for (int c = 0; c < CHANNELS; c++)
+		{
+			moments[c].push(tail, SampleChannel.ALL[c].get(sample), mask);
+		}
+
+		tail++;
+
+		if (windowNanos > 0)
+		{
+			while (now - timestamps[(int) head & mask] >= windowNanos)
+			{
+				evict();
+			}
+		}
+
+		publish(timestamps[(int) head & mask], now);
+	}
+
+	private void evict()
+	{
+		for (int c = 0; c < CHANNELS; c++)
+		{
+			moments[c].pop(head, mask);
+		}
+
+		head++;
+	}
+
+	/**
+	 * Tumbling window : publishes and restarts the window when the sample falls outside of it
+	 */
+	private void tumble(Sample sample)
+	{
+		long now = sample.timestampNanos;
+
+		if (!started)
+		{
+			started = true;
+			windowStart = now;
+		}
+		else if (windowNanos > 0 && now - windowStart >= windowNanos)
+		{
+			long end = windowStart + windowNanos;
+
+			if (moments[0].count > 0)
+			{
+				publish(windowStart, end);
+			}
+
+			clearTumbling();
+
+			// Windows without samples are skipped
+			windowStart += (now - windowStart) / windowNanos * windowNanos;
+		}
+
+		for (int c = 0; c < CHANNELS; c++)
+		{
+			moments[c].add(SampleChannel.ALL[c].get(sample));
+		}
+
+		if (windowNanos == 0 && moments[0].count == windowSamples)
+		{
+			publish(windowStart, now);
+			clearTumbling();
+			started = false;
+		}
+	}
+
+	private void clearTumbling()
+	{
+		for (int c = 0; c < CHANNELS; c++)
+		{
+			moments[c].clear();
+		}
+	}
+
+	/**
+	 * Publishes the accumulators : odd version while the values are written
+	 */
+	private void publish(long start, long end)
+	{
+		long v = version.get();
+
+		version.lazySet(v + 1);
+		VarHandle.storeStoreFence();
+
+		for (int c = 0; c < CHANNELS; c++)
+		{
+			Moments m = moments[c];
+			int base = c * VALUES;
+			double variance = m.count > 0 ? m.m2 / m.count : 0;
+
+			published[base + MIN]      = m.min;
+			published[base + MAX]      = m.max;
+			published[base + MEAN]     = m.mean;
+			published[base + VARIANCE] = variance;
+			published[base + RMS]      = Math.sqrt(m.mean * m.mean + variance);
+		}
+
+		publishedCount = moments[0].count;
+		publishedStart = start;
+		publishedEnd   = end;
+		publishedWindows++;
+
+		// Release : the values are visible to any reader that sees the even version
+		version.lazySet(v + 2);
+	}
+
+	/**
+	 * @return The version, once no publication is in progress
+	 */
+	private long awaitStable()
+	{
+		long v;
+
+		while (((v = version.get()) & 1) != 0)
+		{
+			Thread.onSpinWait();
+		}
+
+		return v;
+	}
+
+	private double read(int index)
+	{
+		long v;
+		double value;
+
+		do
+		{
+			v = awaitStable();
+			value = published[index];
+			VarHandle.loadLoadFence();
+		}
+		while (version.get() != v);
+
+		return value;
+	}
+}
@@ -0,0 +1,459 @@
+/**
+ * Append-only time series of INA219 samples stored off-heap, for long captures (a day at 1 kHz is 86.4 million samples)
+ * Only the raw registers are kept : 16 bytes per sample (64-bit timestamp, four 16-bit registers), in chunks of direct memory,
+ * each chunk laid out as one column per field. The heap only holds the chunk table, so a capture costs no GC work.
+ * Values are decoded when read, with the scale factors in effect when the sample was appended (setCapture()) :
+ * configuration and calibration registers, and shunt resistance.
+ * One writer thread appends (directly or as a SampleListener of Ina219Sampler). Readers can run concurrently and see
+ * every sample below size(). setCapture() can be called from any thread : the writer applies it from its next sample. Direct memory is bounded by -XX:MaxDirectMemorySize (the heap size by default).
+ *
+ * @author Alexandre Scieux
+ * @version 1.0
+ */
+
+package sensor;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+public final class SampleTimeSeries implements SampleListener
+{
+	/* Bytes per sample : timestamp + 4 registers */
+	public static final int SAMPLE_BYTES = Long.BYTES + 4 * Short.BYTES;
+
+	/* Samples per chunk, 1 MB chunks */
+	private static final int CHUNK_SHIFT = 16;
+	private static final int CHUNK_SIZE  = 1 << CHUNK_SHIFT;
+	private static final int CHUNK_MASK  = CHUNK_SIZE - 1;
+
+	/* Column offsets within a chunk */
+	private static final int TIMESTAMP_OFFSET     = 0;
+	private static final int SHUNT_VOLTAGE_OFFSET = TIMESTAMP_OFFSET + Long.BYTES * CHUNK_SIZE;
+	private static final int BUS_VOLTAGE_OFFSET   = SHUNT_VOLTAGE_OFFSET + Short.BYTES * CHUNK_SIZE;
+	private static final int CURRENT_OFFSET       = BUS_VOLTAGE_OFFSET + Short.BYTES * CHUNK_SIZE;
+	private static final int POWER_OFFSET         = CURRENT_OFFSET + Short.BYTES * CHUNK_SIZE;
+
+	private final long capacity;
+
+	/* Allocated by the writer as it reaches them, published by the size update */
+	private final ByteBuffer[] chunks;
+
+	/* Number of readable samples, written by the writer only with release semantics */
+	private final AtomicLong size = new AtomicLong();
+
+	/* Writer only */
+	private long next;
+	private volatile long droppedCount;
+
+	/* Copy-on-write : capture settings and the index of their first sample */
+	private volatile Captures captures;
+
+	/* Scale factors handed over by setCapture(), applied by the writer on its next sample. Null when none. */
+	private final AtomicReference<Ina219Scaling> pendingScaling = new AtomicReference<>();
+
+	/**
+	 * Capture settings in effect from a given sample index on
+	 */
+	private static final class Captures
+	{
+		final long[] starts;
+		final Ina219Scaling[] scalings;
+
+		Captures(long[] starts, Ina219Scaling[] scalings)
+		{
+			this.starts   = starts;
+			this.scalings = scalings;
+		}
+
+		/**
+		 * @return Index of the capture settings the sample was appended with
+		 */
+		int find(long index)
+		{
+			int found = Arrays.binarySearch(starts, index);
+
+			// Several settings may start at the same index : the last one applies
+			if (found >= 0)
+			{
+				while (found + 1 < starts.length && starts[found + 1] == index)
+				{
+					found++;
+				}
+
+				return found;
+			}
+
+			return -found - 2;
+		}
+	}
+
+	/**
+	 * Time series decoded with the power-on configuration and the default calibration of the driver
+	 * (INA219_CALIBRATION_DEFAULT, not the power-on 0) until setCapture() is called
+	 * @param capacity Largest number of samples
+	 */
+	public SampleTimeSeries(long capacity)
+	{
+		this(capacity, ConfigRegister.DEFAULT, Ina219.Registers.INA219_CALIBRATION_DEFAULT.getValue());
+	}
+
+	/**
+	 * @param capacity      Largest number of samples
+	 * @param configuration Configuration register of the device at the start of the capture
+	 * @param calibration   Calibration register of the device at the start of the capture
+	 */
+	public SampleTimeSeries(long capacity, ConfigRegister configuration, int calibration)
+	{
+		this(capacity, Ina219Scaling.of(configuration, calibration, Ina219.Constants.R_SHUNT_OHM.getValue()));
+	}
+
+	/**
+	 * @param capacity Largest number of samples
+	 * @param scaling  Scale factors of the device at the start of the capture (Ina219.getScaling())
+	 */
+	public SampleTimeSeries(long capacity, Ina219Scaling scaling)
+	{
+		if (capacity < 1 || (capacity + CHUNK_MASK) >>> CHUNK_SHIFT > Integer.MAX_VALUE)
+		{
+			throw new IllegalArgumentException("Time series capacity out of range : " + capacity);
+		}
+
+		this.capacity = capacity;
+		this.chunks   = new ByteBuffer[(int) ((capacity + CHUNK_MASK) >>> CHUNK_SHIFT)];
+		this.captures = new Captures(new long[] { 0 }, new Ina219Scaling[] { scaling });
+	}
+
+	/**
+	 * Records a change of configuration or calibration : the samples appended from now on are decoded with these registers
+	 * and the current shunt resistance. Any thread.
+	 * @param configuration Configuration register of the device
+	 * @param calibration   Calibration register of the device
+	 */
+	public void setCapture(ConfigRegister configuration, int calibration)
+	{
+		setCapture(Ina219Scaling.of(configuration, calibration, latestScaling().getShuntOhms()));
+	}
+
+	/**
+	 * Records a change of scale factors : the samples appended from now on are decoded with them. Any thread : when the
+	 * writer is another thread (the sampler thread of a listener), the samples it appends after this call use them.
+	 * @param scaling Scale factors of the device (Ina219.getScaling())
+	 */
+	public void setCapture(Ina219Scaling scaling)
+	{
+		pendingScaling.set(scaling);
+	}
+
+	/**
+	 * Appends the timestamp and raw registers of a sample. Writer thread only.
+	 * @param  sample The sample
+	 * @return        False if the time series is full (the sample is dropped)
+	 */
+	public boolean append(Sample sample)
+	{
+		return append(sample.timestampNanos, sample.shuntVoltageRegister, sample.busVoltageRegister, sample.currentRegister, sample.powerRegister);
+	}
+
+	/**
+	 * Appends a sample from its raw registers. Writer thread only.
+	 * @param  timestampNanos       Acquisition time (System.nanoTime)
+	 * @param  shuntVoltageRegister Raw shunt voltage register
+	 * @param  busVoltageRegister   Raw bus voltage register
+	 * @param  currentRegister      Raw current register
+	 * @param  powerRegister        Raw power register
+	 * @return                      False if the time series is full (the sample is dropped)
+	 */
+	public boolean append(long timestampNanos, int shuntVoltageRegister, int busVoltageRegister, int currentRegister, int powerRegister)
+	{
+		applyPendingScaling();
+
+		long index = next;
+
+		if (index == capacity)
+		{
+			droppedCount++;
+			return false;
+		}
+
+		int chunkIndex = (int) (index >>> CHUNK_SHIFT);
+		ByteBuffer chunk = chunks[chunkIndex];
+
+		if (chunk == null)
+		{
+			chunk = ByteBuffer.allocateDirect(SAMPLE_BYTES * CHUNK_SIZE).order(ByteOrder.nativeOrder());
+			chunks[chunkIndex] = chunk;
+		}
+
+		int slot = (int) index & CHUNK_MASK;
+
+		chunk.putLong(TIMESTAMP_OFFSET + slot * Long.BYTES, timestampNanos);
+		chunk.putShort(SHUNT_VOLTAGE_OFFSET + slot * Short.BYTES, (short) shuntVoltageRegister);
+		chunk.putShort(BUS_VOLTAGE_OFFSET + slot * Short.BYTES, (short) busVoltageRegister);
+		chunk.putShort(CURRENT_OFFSET + slot * Short.BYTES, (short) currentRegister);
+		chunk.putShort(POWER_OFFSET + slot * Short.BYTES, (short) powerRegister);
+
+		next = index + 1;
+
+		// Release : the sample (and its chunk) is visible to any reader that sees the new size
+		size.lazySet(next);
+
+		return true;
+	}
+
+	/**
+	 * Appends the sample, as a listener of Ina219Sampler or Ina219Registry. Full time series drop the samples.
+	 * @param sample The sample
+	 */
+	@Override
+	public void onSample(Sample sample)
+	{
+		append(sample);
+	}
+
+	/**
+	 * @return Number of samples stored
+	 */
+	public long size()
+	{
+		return size.get();
+	}
+
+	/**
+	 * @return Largest number of samples
+	 */
+	public long getCapacity()
+	{
+		return capacity;
+	}
+
+	/**
+	 * @return Number of samples dropped because the time series was full
+	 */
+	public long getDroppedCount()
+	{
+		return droppedCount;
+	}
+
+	/**
+	 * @return Off-heap memory allocated, in bytes
+	 */
+	public long getAllocatedBytes()
+	{
+		return ((size.get() + CHUNK_MASK) >>> CHUNK_SHIFT) * (long) SAMPLE_BYTES * CHUNK_SIZE;
+	}
+
+	/**
+	 * @param  index Sample index
+	 * @return       Acquisition time (System.nanoTime)
+	 */
+	public long getTimestampNanos(long index)
+	{
+		return chunk(index).getLong(TIMESTAMP_OFFSET + slot(index) * Long.BYTES);
+	}
+
+	/**
+	 * @param  index Sample index
+	 * @return       Raw shunt voltage register (0..65535)
+	 */
+	public int getShuntVoltageRegister(long index)
+	{
+		return chunk(index).getShort(SHUNT_VOLTAGE_OFFSET + slot(index) * Short.BYTES) & 0xFFFF;
+	}
+
+	/**
+	 * @param  index Sample index
+	 * @return       Raw bus voltage register (0..65535)
+	 */
+	public int getBusVoltageRegister(long index)
+	{
+		return chunk(index).getShort(BUS_VOLTAGE_OFFSET + slot(index) * Short.BYTES) & 0xFFFF;
+	}
+
+	/**
+	 * @param  index Sample index
+	 * @return       Raw current register (0..65535)
+	 */
+	public int getCurrentRegister(long index)
+	{
+		return chunk(index).getShort(CURRENT_OFFSET + slot(index) * Short.BYTES) & 0xFFFF;
+	}
+
+	/**
+	 * @param  index Sample index
+	 * @return       Raw power register (0..65535)
+	 */
+	public int getPowerRegister(long index)
+	{
+		return chunk(index).getShort(POWER_OFFSET + slot(index) * Short.BYTES) & 0xFFFF;
+	}
+
+	/**
+	 * @param  index Sample index
+	 * @return       Configuration register in effect when the sample was appended
+	 */
+	public ConfigRegister getConfiguration(long index)
+	{
+		return getScaling(index).getConfiguration();
+	}
+
+	/**
+	 * @param  index Sample index
+	 * @return       Calibration register in effect when the sample was appended
+	 */
+	public int getCalibration(long index)
+	{
+		return getScaling(index).getCalibration();
+	}
+
+	/**
+	 * @param  index Sample index
+	 * @return       Scale factors in effect when the sample was appended
+	 */
+	public Ina219Scaling getScaling(long index)
+	{
+		Captures current = captures;
+
+		return current.scalings[current.find(index)];
+	}
+
+	/**
+	 * Reads a sample : timestamp, raw registers and values decoded with the capture settings
+	 * @param  index  Sample index
+	 * @param  sample The sample to fill
+	 * @return        The filled sample
+	 */
+	public Sample readInto(long index, Sample sample)
+	{
+		Captures current = captures;
+		int capture = current.find(checkIndex(index));
+
+		return readInto(index, sample, current.scalings[capture]);
+	}
+
+	/**
+	 * Reads the samples from index from (included) to index to (excluded) into the same reusable sample, handing each one to the visitor
+	 * Nothing is allocated : the visitor must copy what it keeps
+	 * @param from    First sample index
+	 * @param to      End of the range, at most size()
+	 * @param sample  The sample to fill
+	 * @param visitor Called once per sample, in order
+	 */
+	public void forEach(long from, long to, Sample sample, SampleListener visitor)
+	{
+		if (from < 0 || from > to || to > size.get())
+		{
+			throw new IndexOutOfBoundsException("Range [" + from + ", " + to + ") out of [0, " + size.get() + ")");
+		}
+
+		Captures current = captures;
+		int capture = current.find(from);
+
+		for (long index = from; index < to; index++)
+		{
+			// Settings are looked up again only when the range crosses a change
+			while (capture + 1 < current.starts.length && current.starts[capture + 1] <= index)
+			{
+				capture++;
+			}
+
+			visitor.onSample(readInto(index, sample, current.scalings[capture]));
+		}
+	}
+
+	/**
+	 * Drops the chunk table : the off-heap memory is released once the chunks are garbage collected
+	 * Writer thread only, with no reader left
+	 */
+	public void clear()
+	{
+		Arrays.fill(chunks, null);
+
+		next = 0;
+		size.set(0);
+
+		Captures current = captures;
+		int last = current.starts.length - 1;
+		captures = new Captures(new long[] { 0 }, new Ina219Scaling[] { current.scalings[last] });
+	}
+
+	/**
+	 * @return Scale factors of the next samples : the pending ones, or the last capture
+	 */
+	private Ina219Scaling latestScaling()
+	{
+		Ina219Scaling pending = pendingScaling.get();
+
+		if (pending != null)
+		{
+			return pending;
+		}
+
+		Captures current = captures;
+
+		return current.scalings[current.scalings.length - 1];
+	}
+
+	/**
+	 * Starts a capture with the pending scale factors, if any, from the next sample. Writer thread only.
+	 */
+	private void applyPendingScaling()
+	{
+		// Plain read first : no atomic update on the append path unless setCapture() was called
+		if (pendingScaling.get() == null)
+		{
+			return;
+		}
+
+		Ina219Scaling scaling = pendingScaling.getAndSet(null);
+		Captures current = captures;
+		int count = current.starts.length;
+
+		long[] starts = Arrays.copyOf(current.starts, count + 1);
+		Ina219Scaling[] scalings = Arrays.copyOf(current.scalings, count + 1);
+
+		starts[count]   = next;
+		scalings[count] = scaling;
+
+		captures = new Captures(starts, scalings);
+	}
+
+	/**
+	 * Fills the sample from the stored registers
+	 */
+	private Sample readInto(long index, Sample sample, Ina219Scaling scaling)
+	{
+		ByteBuffer chunk = chunk(index);
+		int slot = slot(index);
+
+		sample.timestampNanos       = chunk.getLong(TIMESTAMP_OFFSET + slot * Long.BYTES);
+		sample.shuntVoltageRegister = chunk.getShort(SHUNT_VOLTAGE_OFFSET + slot * Short.BYTES) & 0xFFFF;
+		sample.busVoltageRegister   = chunk.getShort(BUS_VOLTAGE_OFFSET + slot * Short.BYTES) & 0xFFFF;
+		sample.currentRegister      = chunk.getShort(CURRENT_OFFSET + slot * Short.BYTES) & 0xFFFF;
+		sample.powerRegister        = chunk.getShort(POWER_OFFSET + slot * Short.BYTES) & 0xFFFF;
+
+		return scaling.decode(sample);
+	}
+
+	private ByteBuffer chunk(long index)
+	{
+		return chunks[(int) (checkIndex(index) >>> CHUNK_SHIFT)];
+	}
+
+	private static int slot(long index)
+	{
+		return (int) index & CHUNK_MASK;
+	}
+
+	private long checkIndex(long index)
+	{
+		if (index < 0 || index >= size.get())
+		{
+			throw new IndexOutOfBoundsException("Sample index " + index + " out of [0, " + size.get() + ")");
+		}
+
+		return index;
+	}
+}
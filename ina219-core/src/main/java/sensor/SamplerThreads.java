@@ -0,0 +1,117 @@
+/**
+ * Thread factories for the sampling engine : platform threads, or virtual threads when the JVM has them (Java 21+)
+ * Virtual threads are looked up by reflection, so the driver still builds and runs on Java 11.
+ * A virtual thread costs a few hundred bytes of heap while parked, against a platform thread stack of several hundred KB,
+ * which makes one sampler per device affordable on large fleets.
+ *
+ * @author Alexandre Scieux
+ * @version 1.0
+ */
+
+package sensor;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class SamplerThreads
+{
+	/* Thread.isVirtual(), null before Java 21 */
+	private static final Method IS_VIRTUAL = isVirtualMethod();
+
+	private SamplerThreads()
+	{
+	}
+
+	/**
+	 * Virtual threads are not time-sliced : a loop that never blocks keeps its carrier thread, starving the other virtual threads.
+	 * The sampling loops check this once to yield instead of spinning.
+	 * @param  thread The thread to check
+	 * @return        True if the thread is a virtual thread
+	 */
+	public static boolean isVirtual(Thread thread)
+	{
+		if (IS_VIRTUAL == null)
+		{
+			return false;
+		}
+
+		try
+		{
+			return (Boolean) IS_VIRTUAL.invoke(thread);
+		}
+		catch (ReflectiveOperationException roe)
+		{
+			return false;
+		}
+	}
+
+	/**
+	 * @param  prefix Thread name prefix, followed by a counter
+	 * @return        Factory of daemon platform threads
+	 */
+	public static ThreadFactory platform(String prefix)
+	{
+		AtomicInteger counter = new AtomicInteger();
+
+		return runnable ->
+		{
+			Thread thread = new Thread(runnable, prefix + counter.getAndIncrement());
+			thread.setDaemon(true);
+
+			return thread;
+		};
+	}
+
+	/**
+	 * @return True if the JVM supports virtual threads
+	 */
+	public static boolean isVirtualSupported()
+	{
+		try
+		{
+			virtual("");
+			return true;
+		}
+		catch (UnsupportedOperationException uoe)
+		{
+			return false;
+		}
+	}
+
+	/**
+	 * @param  prefix Thread name prefix, followed by a counter
+	 * @return        Factory of virtual threads (always daemon)
+	 * @throws UnsupportedOperationException If the JVM has no virtual threads (before Java 21)
+	 */
+	public static ThreadFactory virtual(String prefix)
+	{
+		try
+		{
+			// Thread.ofVirtual().name(prefix, 0).factory()
+			// Methods looked up on the public Thread.Builder interface, the implementation class is not accessible
+			Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+			Object builder       = Thread.class.getMethod("ofVirtual").invoke(null);
+			Method name          = builderType.getMethod("name", String.class, long.class);
+			Method factory       = builderType.getMethod("factory");
+
+			return (ThreadFactory) factory.invoke(name.invoke(builder, prefix, 0L));
+		}
+		catch (ReflectiveOperationException | RuntimeException e)
+		{
+			throw new UnsupportedOperationException("Virtual threads need Java 21 or later", e);
+		}
+	}
+
+	private static Method isVirtualMethod()
+	{
+		try
+		{
+			return Thread.class.getMethod("isVirtual");
+		}
+		catch (NoSuchMethodException nsme)
+		{
+			return null;
+		}
+	}
+}
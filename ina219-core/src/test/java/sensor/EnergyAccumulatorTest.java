@@ -0,0 +1,187 @@
+/**
+ * Checks EnergyAccumulator on synthetic timestamps : exact energy and charge under constant and ramping power, gaps left
+ * out of the integral, counters reset independently of the totals, and no drift over a long capture
+ *
+ * @author Alexandre Scieux
+ * @version 1.0
+ */
+
+package sensor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class EnergyAccumulatorTest
+{
+	private static final long MILLISECOND = 1_000_000;
+	private static final long SECOND      = 1_000_000_000;
+	private static final double EPSILON   = 1e-12;
+
+	private final Sample sample = new Sample();
+
+	@Test
+	void constantPowerIntegratesExactly()
+	{
+		EnergyAccumulator accumulator = new EnergyAccumulator();
+
+		// 1001 samples 1 ms apart : 1 s
+		for (int i = 0; i <= 1000; i++)
+		{
+			feed(accumulator, i * MILLISECOND, 2.0, 0.5);
+		}
+
+		assertEquals(1001, accumulator.getSampleCount());
+		assertEquals(SECOND, accumulator.getIntegratedNanos());
+		assertEquals(2.0, accumulator.getJoules(), EPSILON, "Joules");
+		assertEquals(0.5, accumulator.getCoulombs(), EPSILON, "Coulombs");
+		assertEquals(2.0 / 3600, accumulator.getWattHours(), EPSILON, "Watt-hours");
+		assertEquals(0.5 / 3600, accumulator.getAmpHours(), EPSILON, "Amp-hours");
+		assertEquals(0, accumulator.getGapCount());
+	}
+
+	@Test
+	void rampIntegratesExactly()
+	{
+		EnergyAccumulator accumulator = new EnergyAccumulator();
+
+		// p = 3t W, i = 1 - 2t A over 2 s : the trapezoids are exact on linear signals
+		for (int i = 0; i <= 2000; i++)
+		{
+			double t = i / 1000.0;
+
+			feed(accumulator, 5 * SECOND + i * MILLISECOND, 3 * t, 1 - 2 * t);
+		}
+
+		assertEquals(6.0, accumulator.getJoules(), 1e-9, "Joules : 3t integrated over [0, 2]");
+		assertEquals(-2.0, accumulator.getCoulombs(), 1e-9, "Coulombs : 1 - 2t integrated over [0, 2]");
+	}
+
+	@Test
+	void gapsAreNotIntegrated()
+	{
+		EnergyAccumulator accumulator = new EnergyAccumulator(10 * MILLISECOND);
+		long t = 0;
+
+		for (int i = 0; i <= 100; i++)
+		{
+			feed(accumulator, t, 1.0, 1.0);
+			t += MILLISECOND;
+		}
+
+		// Sampler stopped for 5 s, then restarted : the interval is left out
+		t += 5 * SECOND;
+
+		for (int i = 0; i <= 100; i++)
+		{
+			feed(accumulator, t, 1.0, 1.0);
+			t += MILLISECOND;
+		}
+
+		// Timestamp going back (another clock) : left out as well
+		feed(accumulator, 0, 1.0, 1.0);
+
+		assertEquals(2, accumulator.getGapCount());
+		assertEquals(200 * MILLISECOND, accumulator.getIntegratedNanos());
+		assertEquals(0.2, accumulator.getJoules(), EPSILON, "Joules");
+		assertEquals(0.2, accumulator.getCoulombs(), EPSILON, "Coulombs");
+
+		// At the limit : still integrated
+		feed(accumulator, 10 * MILLISECOND, 1.0, 1.0);
+
+		assertEquals(2, accumulator.getGapCount());
+		assertEquals(0.21, accumulator.getJoules(), EPSILON, "Joules");
+	}
+
+	@Test
+	void countersResetWithoutTouchingTotals()
+	{
+		EnergyAccumulator accumulator = new EnergyAccumulator();
+		long t = 0;
+
+		for (int i = 0; i <= 1000; i++)
+		{
+			feed(accumulator, t, 1.0, 0.25);
+			t += MILLISECOND;
+		}
+
+		// Created after 1 s : starts from 0
+		EnergyAccumulator.Counter job = accumulator.counter("job");
+
+		assertEquals(0, job.getJoules(), "New counter");
+		assertEquals(0, job.getAveragePower(), "Average power before any interval");
+
+		for (int i = 0; i < 500; i++)
+		{
+			feed(accumulator, t, 4.0, 1.0);
+			t += MILLISECOND;
+		}
+
+		// The first interval after the creation starts at 1 W
+		double expected = 0.5 * (1.0 + 4.0) * 0.001 + 499 * 4.0 * 0.001;
+
+		assertEquals(expected, job.getJoules(), EPSILON, "Counter joules");
+		assertEquals(500 * MILLISECOND, job.getIntegratedNanos());
+		assertEquals(expected / 0.5, job.getAveragePower(), EPSILON, "Counter average power");
+
+		job.reset();
+
+		assertEquals(0, job.getJoules(), "Counter after reset");
+		assertEquals(0, job.getCoulombs(), "Counter after reset");
+		assertEquals(1.0 + expected, accumulator.getJoules(), EPSILON, "Totals after the counter reset");
+
+		for (int i = 0; i < 100; i++)
+		{
+			feed(accumulator, t, 4.0, 1.0);
+			t += MILLISECOND;
+		}
+
+		assertEquals(0.4, job.getJoules(), EPSILON, "Counter joules after reset");
+		assertEquals(0.1, job.getCoulombs(), EPSILON, "Counter coulombs after reset");
+		assertEquals(1.4 + expected, accumulator.getJoules(), EPSILON, "Totals");
+		assertTrue(accumulator.getCounterNames().contains("job"));
+		assertEquals(job, accumulator.counter("job"), "Same counter for the same name");
+
+		accumulator.removeCounter("job");
+
+		assertTrue(accumulator.getCounterNames().isEmpty());
+	}
+
+	@Test
+	void longCaptureDoesNotDrift()
+	{
+		EnergyAccumulator accumulator = new EnergyAccumulator();
+		long samples = 36_000_000;
+
+		// 10 hours at 1 kHz of 1.1 W, 0.3 A : increments of 1.1e-3 J, none of them exact in binary
+		for (long i = 0; i <= samples; i++)
+		{
+			feed(accumulator, i * MILLISECOND, 1.1, 0.3);
+		}
+
+		double seconds = samples / 1000.0;
+		double tolerance = 1e-12;
+		double naive = 0;
+
+		for (long i = 0; i < samples; i++)
+		{
+			naive += (1.1 + 1.1) * 0.5 * 0.001;
+		}
+
+		// A plain sum is off by more than the tolerance : the compensated totals are not
+		assertTrue(Math.abs(naive - 1.1 * seconds) > tolerance * 1.1 * seconds, "Plain sum drift : " + (naive - 1.1 * seconds));
+		assertEquals(1.1 * seconds, accumulator.getJoules(), tolerance * 1.1 * seconds, "Joules");
+		assertEquals(0.3 * seconds, accumulator.getCoulombs(), tolerance * 0.3 * seconds, "Coulombs");
+		assertEquals(samples * MILLISECOND, accumulator.getIntegratedNanos());
+	}
+
+	private void feed(EnergyAccumulator accumulator, long timestampNanos, double power, double current)
+	{
+		sample.timestampNanos = timestampNanos;
+		sample.power          = power;
+		sample.current        = current;
+
+		accumulator.onSample(sample);
+	}
+}
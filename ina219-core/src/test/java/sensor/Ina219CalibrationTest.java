@@ -0,0 +1,95 @@
+/**
+ * Checks Ina219Calibration.compute() : the calibration procedure of the datasheet (8.5.1) worked on 0.1 ohm shunts,
+ * FS0 cleared, the 0xFFFE clamp, the smallest PGA range holding the maximum shunt voltage, and the rejected inputs
+ *
+ * @author Alexandre Scieux
+ * @version 1.0
+ */
+
+package sensor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class Ina219CalibrationTest
+{
+	@Test
+	void workedExample()
+	{
+		// 0.1 ohm, 2 A : Minimum_LSB = 2 / 32767, Cal = trunc(0.04096 / (Minimum_LSB x 0.1)) = trunc(6710.68)
+		Ina219Calibration calibration = Ina219Calibration.compute(0.1, 2.0);
+
+		assertEquals(6710, calibration.getCalibration(), "Cal");
+		assertEquals(0.04096 / (6710 * 0.1), calibration.getCurrentLsb(), 1e-15, "Current_LSB applied with the truncated Cal");
+		assertEquals(20 * calibration.getCurrentLsb(), calibration.getPowerLsb(), 1e-15, "Power_LSB = 20 x Current_LSB");
+		assertEquals(Ina219.Gain.INA219_CONFIG_GAIN_8_320MV, calibration.getGain(), "0.2 V needs the 320 mV range");
+
+		// The truncation makes the LSB slightly larger : the maximum expected current still fits the register
+		assertTrue(calibration.getCurrentLsb() >= 2.0 / 32767, "Current_LSB at least Minimum_LSB");
+		assertTrue(calibration.getMaxMeasurableCurrent() >= 2.0, "Maximum expected current measurable");
+
+		// 0.1 ohm, 3.2 A : the full 320 mV range, Cal = trunc(4194.18)
+		Ina219Calibration full = Ina219Calibration.compute(0.1, 3.2);
+
+		assertEquals(4194, full.getCalibration(), "Cal at full scale");
+		assertEquals(Ina219.Gain.INA219_CONFIG_GAIN_8_320MV, full.getGain());
+	}
+
+	@Test
+	void clearsVoidBit()
+	{
+		// trunc(13421.36) is odd : FS0 cannot hold the 1
+		Ina219Calibration calibration = Ina219Calibration.compute(0.1, 1.0);
+
+		assertEquals(13420, calibration.getCalibration());
+		assertEquals(0.04096 / (13420 * 0.1), calibration.getCurrentLsb(), 1e-15);
+	}
+
+	@Test
+	void clampsToLargestCalibration()
+	{
+		// 0.1 ohm, 1 mA : trunc(0.04096 / ((0.001 / 32767) x 0.1)) = 13421363, far above the register
+		Ina219Calibration calibration = Ina219Calibration.compute(0.1, 0.001);
+
+		assertEquals(0xFFFE, calibration.getCalibration(), "Clamped Cal");
+		assertEquals(0.04096 / (0xFFFE * 0.1), calibration.getCurrentLsb(), 1e-18, "Current_LSB of the clamped Cal");
+		assertEquals(20 * calibration.getCurrentLsb(), calibration.getPowerLsb(), 1e-18);
+		assertTrue(calibration.getCurrentLsb() > 0.001 / 32767, "Larger LSB than the ideal one");
+		assertEquals(Ina219.Gain.INA219_CONFIG_GAIN_1_40MV, calibration.getGain());
+	}
+
+	@Test
+	void selectsSmallestPgaRange()
+	{
+		// 0.1 ohm : 40, 80, 160, 320 mV at 0.4, 0.8, 1.6, 3.2 A
+		assertEquals(Ina219.Gain.INA219_CONFIG_GAIN_1_40MV, Ina219Calibration.compute(0.1, 0.1).getGain());
+		assertEquals(Ina219.Gain.INA219_CONFIG_GAIN_1_40MV, Ina219Calibration.compute(0.1, 0.4).getGain(), "40 mV fits the 40 mV range");
+		assertEquals(Ina219.Gain.INA219_CONFIG_GAIN_2_80MV, Ina219Calibration.compute(0.1, 0.41).getGain());
+		assertEquals(Ina219.Gain.INA219_CONFIG_GAIN_2_80MV, Ina219Calibration.compute(0.1, 0.8).getGain());
+		assertEquals(Ina219.Gain.INA219_CONFIG_GAIN_4_160MV, Ina219Calibration.compute(0.1, 0.81).getGain());
+		assertEquals(Ina219.Gain.INA219_CONFIG_GAIN_4_160MV, Ina219Calibration.compute(0.1, 1.6).getGain());
+		assertEquals(Ina219.Gain.INA219_CONFIG_GAIN_8_320MV, Ina219Calibration.compute(0.1, 1.61).getGain());
+		assertEquals(Ina219.Gain.INA219_CONFIG_GAIN_8_320MV, Ina219Calibration.compute(0.1, 3.2).getGain());
+
+		// Same shunt voltage, other shunt
+		assertEquals(Ina219.Gain.INA219_CONFIG_GAIN_2_80MV, Ina219Calibration.compute(0.01, 8.0).getGain());
+	}
+
+	@Test
+	void rejectsCalibrationsBelowTwo()
+	{
+		// Cal = trunc(0.04096 x 32767 / V_SHUNT) : within the 320 mV range it never goes below 4194, so a Cal below 2
+		// (shunt and current too large) always comes with a shunt voltage out of range
+		assertThrows(IllegalArgumentException.class, () -> Ina219Calibration.compute(0.1, 3.3), "Just above 320 mV");
+		assertThrows(IllegalArgumentException.class, () -> Ina219Calibration.compute(100, 10), "Cal trunc(1.34)");
+		assertThrows(IllegalArgumentException.class, () -> Ina219Calibration.compute(1000, 100), "Cal 0");
+
+		assertThrows(IllegalArgumentException.class, () -> Ina219Calibration.compute(0, 1));
+		assertThrows(IllegalArgumentException.class, () -> Ina219Calibration.compute(0.1, 0));
+		assertThrows(IllegalArgumentException.class, () -> Ina219Calibration.compute(0.1, Double.NaN));
+		assertThrows(IllegalArgumentException.class, () -> Ina219Calibration.compute(-0.1, 1));
+	}
+}
@@ -0,0 +1,90 @@
+/**
+ * Checks Lttb : first and last points kept, one point per bucket, the expected points selected on a hand-computed series,
+ * and the series returned whole or evenly spaced when there is nothing to triangulate
+ *
+ * @author Alexandre Scieux
+ * @version 1.0
+ */
+
+package sensor;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class LttbTest
+{
+	@Test
+	void keepsFirstAndLastPointsAndOnePointPerBucket()
+	{
+		int length = 1000;
+		int threshold = 50;
+		long[] x = new long[length];
+		double[] y = new double[length];
+		Random random = new Random(7);
+
+		for (int i = 0; i < length; i++)
+		{
+			x[i] = 1_000_000_000L + i * 1_000_000L;
+			y[i] = random.nextGaussian();
+		}
+
+		int[] selected = new int[threshold];
+
+		assertEquals(threshold, Lttb.downsample(x, y, length, threshold, selected));
+		assertEquals(0, selected[0], "First point");
+		assertEquals(length - 1, selected[threshold - 1], "Last point");
+
+		double every = (double) (length - 2) / (threshold - 2);
+
+		for (int bucket = 0; bucket < threshold - 2; bucket++)
+		{
+			int index = selected[bucket + 1];
+
+			assertTrue(index >= (int) (bucket * every) + 1 && index < (int) ((bucket + 1) * every) + 1, "Point " + index + " outside of bucket " + bucket);
+		}
+	}
+
+	@Test
+	void selectsLargestTriangles()
+	{
+		long[] x = { 0, 1, 2, 3, 4, 5, 6, 7 };
+		double[] y = { 0, 0, 5, 0, 0, 0, -4, 0 };
+		int[] selected = new int[4];
+
+		// Buckets [1, 4) and [4, 7) : the spike of each bucket forms the largest triangle
+		assertEquals(4, Lttb.downsample(x, y, x.length, 4, selected));
+		assertArrayEquals(new int[] { 0, 2, 6, 7 }, selected);
+	}
+
+	@Test
+	void shortSeriesAndSmallThresholds()
+	{
+		long[] x = new long[10];
+		double[] y = new double[10];
+		int[] selected = new int[10];
+
+		for (int i = 0; i < x.length; i++)
+		{
+			x[i] = i;
+			y[i] = i * i;
+		}
+
+		// Nothing to drop
+		assertEquals(10, Lttb.downsample(x, y, 10, 20, selected));
+		assertArrayEquals(new int[] { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9 }, selected);
+
+		// Too few points for the triangles : first and last
+		Arrays.fill(selected, -1);
+		assertEquals(2, Lttb.downsample(x, y, 10, 2, selected));
+		assertEquals(0, selected[0]);
+		assertEquals(9, selected[1]);
+
+		assertEquals(0, Lttb.downsample(x, y, 0, 10, selected), "Empty series");
+	}
+}
@@ -0,0 +1,156 @@
+/**
+ * Checks QuantileSketch against the exact quantiles of the sorted values : p50, p99 and p99.9 within the relative accuracy,
+ * negative values and values counted as 0, merges equal to a single sketch of both streams, mismatched merges rejected
+ *
+ * @author Alexandre Scieux
+ * @version 1.0
+ */
+
+package sensor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class QuantileSketchTest
+{
+	private static final int VALUES = 100_000;
+	private static final double[] QUANTILES = { 0, 0.001, 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99, 0.999, 1 };
+
+	@Test
+	void percentilesWithinRelativeAccuracy()
+	{
+		QuantileSketch sketch = new QuantileSketch();
+		Random random = new Random(1);
+		double[] values = new double[VALUES];
+
+		// Log-normal around 0.1 A : several decades, long tail
+		for (int i = 0; i < VALUES; i++)
+		{
+			values[i] = 0.1 * Math.exp(random.nextGaussian());
+			sketch.add(values[i]);
+		}
+
+		Arrays.sort(values);
+
+		assertWithinAccuracy(sketch, values, 0.5, sketch.getP50());
+		assertWithinAccuracy(sketch, values, 0.99, sketch.getP99());
+		assertWithinAccuracy(sketch, values, 0.999, sketch.getP999());
+
+		assertEquals(VALUES, sketch.getCount());
+		assertEquals(values[0], sketch.getMin(), "Min is exact");
+		assertEquals(values[VALUES - 1], sketch.getMax(), "Max is exact");
+	}
+
+	@Test
+	void negativeValuesAndZeroBucket()
+	{
+		QuantileSketch sketch = new QuantileSketch();
+		Random random = new Random(2);
+		double[] values = new double[VALUES];
+
+		// Current flowing both ways, and a fifth of the values below the smallest magnitude (idle, offset noise)
+		for (int i = 0; i < VALUES; i++)
+		{
+			values[i] = i % 5 == 0 ? random.nextGaussian() * QuantileSketch.DEFAULT_MIN_VALUE / 4 : random.nextGaussian();
+			sketch.add(values[i]);
+		}
+
+		Arrays.sort(values);
+
+		for (double quantile : QUANTILES)
+		{
+			assertWithinAccuracy(sketch, values, quantile, sketch.getQuantile(quantile));
+		}
+
+		// Around the median : values counted as 0
+		double exact = exact(values, 0.5);
+
+		assertTrue(Math.abs(exact) < QuantileSketch.DEFAULT_MIN_VALUE, "Median in the zero bucket : " + exact);
+		assertEquals(0, sketch.getP50(), "Median");
+		assertTrue(sketch.getQuantile(0.1) < 0, "Negative quantile");
+	}
+
+	@Test
+	void mergeEqualsSingleSketchOfBothStreams()
+	{
+		QuantileSketch first  = new QuantileSketch();
+		QuantileSketch second = first.newEmpty();
+		QuantileSketch both   = first.newEmpty();
+		Random random = new Random(3);
+
+		for (int i = 0; i < VALUES; i++)
+		{
+			double a = random.nextGaussian() * 2;
+			double b = 5 + random.nextGaussian() * 0.5;
+
+			first.add(a);
+			second.add(b);
+			both.add(a);
+			both.add(b);
+		}
+
+		first.merge(second);
+
+		assertEquals(both.getCount(), first.getCount());
+		assertEquals(both.getMin(), first.getMin());
+		assertEquals(both.getMax(), first.getMax());
+		assertEquals(both.getMean(), first.getMean(), 1e-12);
+
+		for (double quantile : QUANTILES)
+		{
+			assertEquals(both.getQuantile(quantile), first.getQuantile(quantile), "Quantile " + quantile);
+		}
+
+		QuantileSketch copy = first.newEmpty();
+		copy.copyFrom(first);
+
+		assertEquals(first.getP999(), copy.getP999(), "Copy");
+	}
+
+	@Test
+	void mergeRejectsMismatchedParameters()
+	{
+		QuantileSketch sketch = new QuantileSketch(0.01, 1e-6, 1e4);
+
+		QuantileSketch[] mismatched =
+		{
+			new QuantileSketch(0.02, 1e-6, 1e4),
+			new QuantileSketch(0.01, 1e-5, 1e4),
+			new QuantileSketch(0.01, 1e-6, 1e3)
+		};
+
+		for (QuantileSketch other : mismatched)
+		{
+			other.add(1);
+
+			assertFalse(sketch.isMergeableWith(other));
+			assertThrows(IllegalArgumentException.class, () -> sketch.merge(other));
+		}
+
+		assertEquals(0, sketch.getCount(), "Sketch untouched by the rejected merges");
+		assertTrue(sketch.isMergeableWith(sketch.newEmpty()));
+	}
+
+	private static double exact(double[] sorted, double quantile)
+	{
+		return sorted[(int) (quantile * (sorted.length - 1))];
+	}
+
+	/**
+	 * Relative accuracy on the values with their own bucket, absolute below the smallest magnitude (counted as 0)
+	 */
+	private static void assertWithinAccuracy(QuantileSketch sketch, double[] sorted, double quantile, double estimate)
+	{
+		double exact = exact(sorted, quantile);
+		double tolerance = Math.abs(exact) < sketch.getMinValue() ? sketch.getMinValue() : sketch.getRelativeAccuracy() * Math.abs(exact) * (1 + 1e-9);
+
+		assertEquals(exact, estimate, tolerance, "Quantile " + quantile);
+	}
+}
@@ -0,0 +1,120 @@
+/**
+ * Checks that the sampling read paths allocate nothing : readInto() and readIntoIfReady() on a stub transport, measured
+ * with the per-thread allocation counter of the JVM. The loops are warmed up first, so the counter only sees the compiled
+ * read path, not the interpreter or the JIT.
+ *
+ * @author Alexandre Scieux
+ * @version 1.0
+ */
+
+package sensor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+import org.junit.jupiter.api.Test;
+
+class ReadIntoAllocationTest
+{
+	private static final int WARMUP_ROUNDS = 5;
+	private static final int CALLS         = 100_000;
+
+	private static final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	@Test
+	void readIntoAllocatesNothing() throws IOException
+	{
+		Ina219 ina219 = calibratedDriver();
+		Sample sample = new Sample();
+
+		for (int round = 0; round < WARMUP_ROUNDS; round++)
+		{
+			readInto(ina219, sample);
+		}
+
+		long before = allocatedBytes();
+		readInto(ina219, sample);
+		long allocated = allocatedBytes() - before;
+
+		assertEquals(0, allocated, "Bytes allocated by " + CALLS + " readInto() calls");
+		assertTrue(sample.getCurrent() != 0, "Sample not decoded");
+	}
+
+	@Test
+	void readIntoIfReadyAllocatesNothing() throws IOException
+	{
+		Ina219 ina219 = calibratedDriver();
+		Sample sample = new Sample();
+
+		for (int round = 0; round < WARMUP_ROUNDS; round++)
+		{
+			readIntoIfReady(ina219, sample);
+		}
+
+		long before = allocatedBytes();
+		readIntoIfReady(ina219, sample);
+		long allocated = allocatedBytes() - before;
+
+		assertEquals(0, allocated, "Bytes allocated by " + CALLS + " readIntoIfReady() calls");
+		assertTrue(sample.getCurrent() != 0, "Sample not decoded");
+	}
+
+	private static void readInto(Ina219 ina219, Sample sample) throws IOException
+	{
+		for (int i = 0; i < CALLS; i++)
+		{
+			ina219.readInto(sample);
+		}
+	}
+
+	private static void readIntoIfReady(Ina219 ina219, Sample sample) throws IOException
+	{
+		for (int i = 0; i < CALLS; i++)
+		{
+			ina219.readIntoIfReady(sample);
+		}
+	}
+
+	private static Ina219 calibratedDriver() throws IOException
+	{
+		Ina219 ina219 = new Ina219(new StubTransport());
+		ina219.setCalibration(Ina219.Registers.INA219_CALIBRATION_DEFAULT.getValue());
+
+		return ina219;
+	}
+
+	private static long allocatedBytes()
+	{
+		return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * Device answering fixed measurement registers, a conversion being always ready
+	 */
+	private static final class StubTransport implements I2CTransport
+	{
+		/* Configuration, shunt voltage (5 mV), bus voltage (5 V, CNVR set), power, current, calibration */
+		private final int[] registers = { 0x399F, 500, (1250 << 3) | RegisterDecoder.BUS_VOLTAGE_CNVR, 2500, 5000, 0 };
+
+		@Override
+		public int getAddress()
+		{
+			return Ina219.Registers.INA219_I2C_ADDRESS.getValue();
+		}
+
+		@Override
+		public int readRegister(int register)
+		{
+			return registers[register];
+		}
+
+		@Override
+		public void writeRegister(int register, int value)
+		{
+			registers[register] = value & 0xFFFF;
+		}
+	}
+}
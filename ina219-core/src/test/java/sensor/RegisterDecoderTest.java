@@ -0,0 +1,134 @@
+/**
+ * Exhaustive check of RegisterDecoder : every raw register value (65536) at every PGA setting (4), against the
+ * String-based twosComplement / isNegative and divide-based decoding the driver used before
+ *
+ * @author Alexandre Scieux
+ * @version 1.0
+ */
+
+package sensor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+@SuppressWarnings("deprecation")
+class RegisterDecoderTest
+{
+	private static final int REGISTER_VALUES = 0x10000;
+
+	private static final Ina219.Gain[] gains =
+	{
+		Ina219.Gain.INA219_CONFIG_GAIN_1_40MV,
+		Ina219.Gain.INA219_CONFIG_GAIN_2_80MV,
+		Ina219.Gain.INA219_CONFIG_GAIN_4_160MV,
+		Ina219.Gain.INA219_CONFIG_GAIN_8_320MV
+	};
+
+	/* Driver without a device : the reference conversions never touch the bus */
+	private final Ina219 reference = new Ina219(new I2CTransport()
+	{
+		@Override
+		public int getAddress()
+		{
+			return Ina219.Registers.INA219_I2C_ADDRESS.getValue();
+		}
+
+		@Override
+		public int readRegister(int register) throws IOException
+		{
+			throw new IOException("No device");
+		}
+
+		@Override
+		public void writeRegister(int register, int value) throws IOException
+		{
+			throw new IOException("No device");
+		}
+	});
+
+	@Test
+	void shuntVoltageMatchesReferenceAtEveryGain()
+	{
+		for (int pga = 0; pga < gains.length; pga++)
+		{
+			// 13 significant bits at PGA = 1, one more per PGA step, the bits above being copies of the sign
+			int fieldRange = 1 << (13 + pga);
+
+			for (int register = 0; register < REGISTER_VALUES; register++)
+			{
+				int field = register % fieldRange;
+				int signExtended = field / (fieldRange / 2) == 1 ? field + REGISTER_VALUES - fieldRange : field;
+				int expected = referenceCounts(signExtended);
+
+				assertEquals(expected, RegisterDecoder.shuntVoltageCounts(register, gains[pga]), "Shunt voltage counts of " + register + " at PGA " + pga);
+				assertEquals(expected, RegisterDecoder.shuntVoltageCounts(register, pga), "Shunt voltage counts of " + register + " at PG bits " + pga);
+				assertEquals(expected / 100000.0, RegisterDecoder.shuntVoltage(register, gains[pga]), 1e-12, "Shunt voltage of " + register + " at PGA " + pga);
+			}
+		}
+	}
+
+	@Test
+	void busVoltageMatchesReference()
+	{
+		for (int register = 0; register < REGISTER_VALUES; register++)
+		{
+			int expected = register / 8;
+
+			assertEquals(expected, RegisterDecoder.busVoltageCounts(register), "Bus voltage counts of " + register);
+			assertEquals(expected * 4 / 1000.0, RegisterDecoder.busVoltage(register), 1e-12, "Bus voltage of " + register);
+			assertEquals(register / 2 % 2 == 1, RegisterDecoder.isConversionReady(register));
+			assertEquals(register % 2 == 1, RegisterDecoder.isOverflow(register));
+		}
+	}
+
+	@Test
+	void currentAndPowerMatchReference()
+	{
+		for (int register = 0; register < REGISTER_VALUES; register++)
+		{
+			assertEquals(referenceCounts(register), RegisterDecoder.currentCounts(register), "Current counts of " + register);
+			assertEquals(register, RegisterDecoder.powerCounts(register), "Power counts of " + register);
+		}
+	}
+
+	@Test
+	void magnitudeMatchesTwosComplement()
+	{
+		for (int register = 0; register < REGISTER_VALUES; register++)
+		{
+			assertEquals(referenceMagnitude(register), RegisterDecoder.magnitude(register), "Magnitude of " + register);
+		}
+	}
+
+	/**
+	 * @return Signed value of a 16-bit twos-complement register, from the String-based conversions
+	 */
+	private int referenceCounts(int register)
+	{
+		int magnitude = referenceMagnitude(register);
+
+		return reference.isNegative(register) ? -magnitude : magnitude;
+	}
+
+	/**
+	 * twosComplement() returns 0 for 1 (taken as the second representation of 0) and for 0x8000 (no positive counterpart) :
+	 * the two values it cannot represent are the only ones answered here
+	 */
+	private int referenceMagnitude(int register)
+	{
+		if (register == 1)
+		{
+			return 1;
+		}
+
+		if (register == 0x8000)
+		{
+			return 0x8000;
+		}
+
+		return reference.twosComplement(register);
+	}
+}
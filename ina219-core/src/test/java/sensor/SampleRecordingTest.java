@@ -0,0 +1,93 @@
+/**
+ * Checks SampleRecording against files of SampleRecordingWriter : records read back through the lazily mapped windows,
+ * and a header with a negative sample count rejected as corrupted
+ *
+ * @author Alexandre Scieux
+ * @version 1.0
+ */
+
+package sensor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SampleRecordingTest
+{
+	private static final int ADDRESS       = Ina219.Registers.INA219_I2C_ADDRESS.getValue();
+	private static final double SHUNT_OHMS = 0.1;
+	private static final int SAMPLES       = 1000;
+
+	private Path path;
+
+	@BeforeEach
+	void setUp() throws IOException
+	{
+		path = Files.createTempFile("ina219-recording", ".rec");
+
+		try (SampleRecordingWriter writer = SampleRecordingWriter.create(path, ADDRESS, ConfigRegister.DEFAULT, 4096, SHUNT_OHMS))
+		{
+			for (int i = 0; i < SAMPLES; i++)
+			{
+				writer.append(i * 1_000_000L, i & 0xFFFF, (i << 3) & 0xFFFF, (i * 2) & 0xFFFF, (i * 3) & 0xFFFF);
+			}
+		}
+	}
+
+	@AfterEach
+	void tearDown() throws IOException
+	{
+		Files.deleteIfExists(path);
+	}
+
+	@Test
+	void readsBackWrittenRecords() throws IOException
+	{
+		try (SampleRecording recording = SampleRecording.open(path))
+		{
+			assertEquals(SAMPLES, recording.size());
+			assertEquals(ADDRESS, recording.getAddress());
+			assertEquals(4096, recording.getCalibration());
+
+			Sample sample = new Sample();
+
+			// Backwards : the window is mapped by whichever record is accessed first
+			for (int i = SAMPLES - 1; i >= 0; i--)
+			{
+				recording.readInto(i, sample);
+
+				assertEquals(i * 1_000_000L, sample.timestampNanos, "Timestamp " + i);
+				assertEquals(i & 0xFFFF, sample.shuntVoltageRegister, "Shunt voltage register " + i);
+				assertEquals((i << 3) & 0xFFFF, sample.busVoltageRegister, "Bus voltage register " + i);
+				assertEquals((i * 2) & 0xFFFF, sample.currentRegister, "Current register " + i);
+				assertEquals((i * 3) & 0xFFFF, sample.powerRegister, "Power register " + i);
+			}
+
+			assertThrows(IndexOutOfBoundsException.class, () -> recording.getTimestampNanos(SAMPLES));
+		}
+	}
+
+	@Test
+	void rejectsNegativeSampleCount() throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE))
+		{
+			ByteBuffer count = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN).putLong(0, -1);
+			channel.write(count, SampleRecording.SAMPLE_COUNT_OFFSET);
+		}
+
+		IOException corrupted = assertThrows(IOException.class, () -> SampleRecording.open(path));
+		assertEquals("Corrupted sample recording header", corrupted.getMessage());
+	}
+}
@@ -0,0 +1,229 @@
+/**
+ * Checks the SampleRingBuffer publication : batches drained in order, a lapped consumer skipping the overwritten samples,
+ * and consumers copying consistent samples while the producer runs
+ *
+ * @author Alexandre Scieux
+ * @version 1.0
+ */
+
+package sensor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+class SampleRingBufferTest
+{
+	@Test
+	void drainsBatchesInOrder()
+	{
+		SampleRingBuffer buffer = new SampleRingBuffer(16);
+		SampleRingBuffer.Cursor cursor = buffer.newCursor();
+		Sample[] batch = batch(4);
+
+		for (int i = 0; i < 10; i++)
+		{
+			buffer.publish(sample(i));
+		}
+
+		long expected = 0;
+		int count;
+
+		while ((count = buffer.drain(cursor, batch)) > 0)
+		{
+			assertTrue(count <= batch.length, "Batch overflow");
+
+			for (int i = 0; i < count; i++)
+			{
+				assertSample(expected++, batch[i]);
+			}
+		}
+
+		assertEquals(10, expected, "Samples drained");
+		assertEquals(0, cursor.getLost(), "Samples lost");
+		assertEquals(10, cursor.getPosition());
+		assertEquals(0, buffer.drain(cursor, batch), "Nothing new");
+	}
+
+	@Test
+	void lappedConsumerSkipsOverwrittenSamples()
+	{
+		SampleRingBuffer buffer = new SampleRingBuffer(8);
+		SampleRingBuffer.Cursor cursor = buffer.newCursor();
+		Sample[] batch = batch(16);
+
+		for (int i = 0; i < 20; i++)
+		{
+			buffer.publish(sample(i));
+		}
+
+		// The slot of the next sequence is never read : capacity - 1 samples are left
+		int count = buffer.drain(cursor, batch);
+
+		assertEquals(buffer.getCapacity() - 1, count, "Samples readable");
+		assertEquals(20 - count, cursor.getLost(), "Samples lost");
+
+		for (int i = 0; i < count; i++)
+		{
+			assertSample(20 - count + i, batch[i]);
+		}
+
+		buffer.publish(sample(20));
+
+		assertEquals(1, buffer.drain(cursor, batch));
+		assertSample(20, batch[0]);
+	}
+
+	@Test
+	void newCursorFromOldestStartsOnOldestReadableSample()
+	{
+		SampleRingBuffer buffer = new SampleRingBuffer(8);
+
+		for (int i = 0; i < 3; i++)
+		{
+			buffer.publish(sample(i));
+		}
+
+		assertEquals(0, buffer.newCursorFromOldest().getPosition());
+		assertEquals(3, buffer.newCursor().getPosition());
+
+		for (int i = 3; i < 20; i++)
+		{
+			buffer.publish(sample(i));
+		}
+
+		SampleRingBuffer.Cursor cursor = buffer.newCursorFromOldest();
+		Sample[] batch = batch(16);
+
+		assertEquals(buffer.getCapacity() - 1, buffer.drain(cursor, batch));
+		assertEquals(0, cursor.getLost());
+		assertSample(20 - buffer.getCapacity() + 1, batch[0]);
+	}
+
+	@Test
+	void concurrentConsumersNeverSeeTornSamples() throws InterruptedException
+	{
+		SampleRingBuffer buffer = new SampleRingBuffer(4);
+		AtomicBoolean torn = new AtomicBoolean();
+		AtomicBoolean outOfOrder = new AtomicBoolean();
+		long samples = 2_000_000;
+
+		Thread[] consumers = new Thread[2];
+
+		for (int c = 0; c < consumers.length; c++)
+		{
+			SampleRingBuffer.Cursor cursor = buffer.newCursor();
+
+			consumers[c] = new Thread(() ->
+			{
+				Sample[] batch = batch(8);
+				long last = -1;
+
+				while (last < samples - 1)
+				{
+					int count = buffer.drain(cursor, batch);
+
+					for (int i = 0; i < count; i++)
+					{
+						Sample sample = batch[i];
+						long sequence = sample.timestampNanos;
+
+						if (!consistent(sequence, sample))
+						{
+							torn.set(true);
+						}
+
+						if (sequence <= last)
+						{
+							outOfOrder.set(true);
+						}
+
+						last = sequence;
+					}
+				}
+			});
+
+			consumers[c].start();
+		}
+
+		Sample sample = new Sample();
+
+		for (long i = 0; i < samples; i++)
+		{
+			fill(i, sample);
+			buffer.publish(sample);
+		}
+
+		for (Thread consumer : consumers)
+		{
+			consumer.join(60_000);
+			assertTrue(!consumer.isAlive(), "Consumer stuck");
+		}
+
+		assertTrue(!torn.get(), "Torn sample copied");
+		assertTrue(!outOfOrder.get(), "Samples out of order");
+		assertEquals(samples, buffer.getPublishedCount());
+	}
+
+	private static Sample[] batch(int size)
+	{
+		Sample[] batch = new Sample[size];
+
+		for (int i = 0; i < size; i++)
+		{
+			batch[i] = new Sample();
+		}
+
+		return batch;
+	}
+
+	private static Sample sample(long sequence)
+	{
+		return fill(sequence, new Sample());
+	}
+
+	/**
+	 * Every field derived from the sequence : a copy mixing two samples is detected
+	 */
+	private static Sample fill(long sequence, Sample sample)
+	{
+		int value = (int) sequence;
+
+		sample.timestampNanos       = sequence;
+		sample.source               = value;
+		sample.shuntVoltageRegister = value & 0xFFFF;
+		sample.busVoltageRegister   = (value >>> 1) & 0xFFFF;
+		sample.currentRegister      = (value >>> 2) & 0xFFFF;
+		sample.powerRegister        = (value >>> 3) & 0xFFFF;
+		sample.shuntVoltage         = sequence;
+		sample.busVoltage           = sequence * 2.0;
+		sample.current              = sequence * 3.0;
+		sample.power                = sequence * 4.0;
+
+		return sample;
+	}
+
+	private static boolean consistent(long sequence, Sample sample)
+	{
+		int value = (int) sequence;
+
+		return sample.source == value
+			&& sample.shuntVoltageRegister == (value & 0xFFFF)
+			&& sample.busVoltageRegister == ((value >>> 1) & 0xFFFF)
+			&& sample.currentRegister == ((value >>> 2) & 0xFFFF)
+			&& sample.powerRegister == ((value >>> 3) & 0xFFFF)
+			&& sample.shuntVoltage == sequence
+			&& sample.busVoltage == sequence * 2.0
+			&& sample.current == sequence * 3.0
+			&& sample.power == sequence * 4.0;
+	}
+
+	private static void assertSample(long sequence, Sample sample)
+	{
+		assertEquals(sequence, sample.timestampNanos, "Sequence");
+		assertTrue(consistent(sequence, sample), "Sample " + sequence + " content");
+	}
+}
@@ -0,0 +1,164 @@
+/**
+ * Checks the SampleRollup cascade against buckets recomputed from the samples at every level, with unaligned timestamps
+ * and a period without samples, and the ring of closed buckets : overwritten sequences rejected by read(), search() bounds
+ *
+ * @author Alexandre Scieux
+ * @version 1.0
+ */
+
+package sensor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class SampleRollupTest
+{
+	private static final long MILLISECOND = 1_000_000;
+
+	@Test
+	void cascadedBucketsMatchRecomputedBuckets()
+	{
+		long[] resolutions = { 10 * MILLISECOND, 100 * MILLISECOND, 1000 * MILLISECOND };
+		SampleRollup rollup = new SampleRollup(resolutions, new int[] { 1000, 100, 10 });
+		List<Sample> samples = new ArrayList<>();
+
+		// 1 sample every 3 ms, starting off the bucket boundaries, with 350 ms without samples in the middle
+		long t = 5 * MILLISECOND;
+
+		for (int i = 0; i < 1200; i++)
+		{
+			t += i == 600 ? 350 * MILLISECOND : 3 * MILLISECOND;
+
+			Sample sample = new Sample();
+			sample.timestampNanos = t;
+			sample.current        = Math.sin(i / 17.0);
+			sample.busVoltage     = 5 + i % 7;
+
+			samples.add(sample);
+			rollup.onSample(sample);
+		}
+
+		// Each level sees the samples of the closed buckets of the finer level, its own last bucket still open
+		List<Sample> fed = samples;
+
+		for (int level = 0; level < resolutions.length; level++)
+		{
+			List<List<Sample>> groups = group(fed, resolutions[level]);
+			List<List<Sample>> closed = groups.subList(0, groups.size() - 1);
+			SampleRollup.Level rolled = rollup.getLevel(level);
+			SampleRollup.Bucket bucket = new SampleRollup.Bucket();
+
+			assertEquals(closed.size(), rolled.getEnd(), "Closed buckets at level " + level);
+
+			for (int sequence = 0; sequence < closed.size(); sequence++)
+			{
+				List<Sample> group = closed.get(sequence);
+				String label = " of bucket " + sequence + " at level " + level;
+
+				assertTrue(rolled.read(sequence, bucket), "Readable" + label);
+				assertEquals(Math.floorDiv(group.get(0).timestampNanos, resolutions[level]) * resolutions[level], bucket.getStartNanos(), "Start" + label);
+				assertEquals(group.size(), bucket.getCount(), "Count" + label);
+
+				for (SampleChannel channel : SampleChannel.values())
+				{
+					double min = Double.POSITIVE_INFINITY;
+					double max = Double.NEGATIVE_INFINITY;
+					double sum = 0;
+
+					for (Sample sample : group)
+					{
+						min = Math.min(min, channel.get(sample));
+						max = Math.max(max, channel.get(sample));
+						sum += channel.get(sample);
+					}
+
+					assertEquals(min, bucket.getMin(channel), "Min of " + channel + label);
+					assertEquals(max, bucket.getMax(channel), "Max of " + channel + label);
+					assertEquals(sum / group.size(), bucket.getMean(channel), 1e-12, "Mean of " + channel + label);
+				}
+			}
+
+			assertFalse(rolled.read(closed.size(), bucket), "Open bucket at level " + level);
+
+			fed = new ArrayList<>();
+
+			for (List<Sample> group : closed)
+			{
+				fed.addAll(group);
+			}
+		}
+	}
+
+	@Test
+	void readRejectsOverwrittenBuckets()
+	{
+		long resolution = 10 * MILLISECOND;
+		SampleRollup rollup = new SampleRollup(new long[] { resolution }, new int[] { 4 });
+		SampleRollup.Level level = rollup.getLevel(0);
+		SampleRollup.Bucket bucket = new SampleRollup.Bucket();
+		Sample sample = new Sample();
+
+		// One sample per bucket : 11 buckets, the last one open
+		for (int i = 0; i <= 10; i++)
+		{
+			sample.timestampNanos = i * resolution;
+			rollup.onSample(sample);
+		}
+
+		assertEquals(10, level.getEnd());
+
+		// The slot of the next bucket to close is not offered, although still intact
+		assertEquals(7, level.getOldest());
+
+		for (long sequence = 0; sequence < 6; sequence++)
+		{
+			assertFalse(level.read(sequence, bucket), "Overwritten bucket " + sequence);
+		}
+
+		for (long sequence = level.getOldest(); sequence < level.getEnd(); sequence++)
+		{
+			assertTrue(level.read(sequence, bucket), "Bucket " + sequence);
+			assertEquals(sequence * resolution, bucket.getStartNanos(), "Start of bucket " + sequence);
+			assertEquals(1, bucket.getCount());
+		}
+
+		assertFalse(level.read(-1, bucket), "Negative sequence");
+		assertFalse(level.read(level.getEnd(), bucket), "Open bucket");
+
+		// First bucket ending after the time, clamped to the readable buckets
+		assertEquals(level.getOldest(), level.search(0));
+		assertEquals(8, level.search(8 * resolution + 1));
+		assertEquals(9, level.search(9 * resolution));
+		assertEquals(level.getEnd(), level.search(100 * resolution));
+	}
+
+	/**
+	 * @return The samples grouped by bucket of the resolution, in order
+	 */
+	private static List<List<Sample>> group(List<Sample> samples, long resolution)
+	{
+		List<List<Sample>> groups = new ArrayList<>();
+		long current = Long.MIN_VALUE;
+
+		for (Sample sample : samples)
+		{
+			long start = Math.floorDiv(sample.timestampNanos, resolution);
+
+			if (start != current)
+			{
+				groups.add(new ArrayList<>());
+				current = start;
+			}
+
+			groups.get(groups.size() - 1).add(sample);
+		}
+
+		return groups;
+	}
+}
@@ -0,0 +1,220 @@
+/**
+ * Checks SampleStatistics against a brute-force recomputation over the samples of the expected window, after every
+ * sample : tumbling and sliding windows, in samples and in time, on random values and irregular timestamps
+ *
+ * @author Alexandre Scieux
+ * @version 1.0
+ */
+
+package sensor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class SampleStatisticsTest
+{
+	private static final int SAMPLES     = 5000;
+	private static final long PERIOD     = 1_000_000;
+	private static final double EPSILON  = 1e-9;
+
+	private final Sample[] samples = samples(42);
+
+	@Test
+	void tumblingSamplesMatchBruteForce()
+	{
+		int window = 37;
+		SampleStatistics statistics = SampleStatistics.tumblingSamples(window);
+		SampleStatistics.Snapshot snapshot = new SampleStatistics.Snapshot();
+
+		for (int k = 0; k < SAMPLES; k++)
+		{
+			statistics.onSample(samples[k]);
+
+			// Windows [0, 37), [37, 74) ... : the last one completed by sample k
+			int completed = (k + 1) / window;
+
+			assertEquals(completed, statistics.getWindowCount(), "Windows after sample " + k);
+
+			if (completed > 0)
+			{
+				int from = (completed - 1) * window;
+				int to   = completed * window;
+
+				assertWindow(statistics.snapshot(snapshot), from, to, samples[from].timestampNanos, samples[to - 1].timestampNanos, k);
+			}
+		}
+	}
+
+	@Test
+	void tumblingNanosMatchBruteForce()
+	{
+		long window = 20 * PERIOD;
+		SampleStatistics statistics = SampleStatistics.tumblingNanos(window);
+		SampleStatistics.Snapshot snapshot = new SampleStatistics.Snapshot();
+		long origin = samples[0].timestampNanos;
+
+		for (int k = 0; k < SAMPLES; k++)
+		{
+			statistics.onSample(samples[k]);
+
+			// Windows aligned on the first sample : the last one holding samples and ended by sample k
+			long current = (samples[k].timestampNanos - origin) / window;
+			long completed = -1;
+			long windows = 0;
+			long previous = -1;
+
+			for (int j = 0; j < k; j++)
+			{
+				long index = (samples[j].timestampNanos - origin) / window;
+
+				if (index < current && index != previous)
+				{
+					completed = index;
+					windows++;
+					previous = index;
+				}
+			}
+
+			assertEquals(windows, statistics.getWindowCount(), "Windows after sample " + k);
+
+			if (completed >= 0)
+			{
+				int from = 0;
+
+				while ((samples[from].timestampNanos - origin) / window != completed)
+				{
+					from++;
+				}
+
+				int to = from;
+
+				while ((samples[to].timestampNanos - origin) / window == completed)
+				{
+					to++;
+				}
+
+				long start = origin + completed * window;
+
+				assertWindow(statistics.snapshot(snapshot), from, to, start, start + window, k);
+			}
+		}
+	}
+
+	@Test
+	void slidingSamplesMatchBruteForce()
+	{
+		int window = 50;
+		SampleStatistics statistics = SampleStatistics.slidingSamples(window);
+		SampleStatistics.Snapshot snapshot = new SampleStatistics.Snapshot();
+
+		for (int k = 0; k < SAMPLES; k++)
+		{
+			statistics.onSample(samples[k]);
+
+			int from = Math.max(0, k + 1 - window);
+
+			assertEquals(k + 1, statistics.getWindowCount(), "Windows after sample " + k);
+			assertWindow(statistics.snapshot(snapshot), from, k + 1, samples[from].timestampNanos, samples[k].timestampNanos, k);
+		}
+	}
+
+	@Test
+	void slidingNanosMatchBruteForce()
+	{
+		long window = 30 * PERIOD;
+		int maxSamples = 24;
+		SampleStatistics statistics = SampleStatistics.slidingNanos(window, maxSamples);
+		SampleStatistics.Snapshot snapshot = new SampleStatistics.Snapshot();
+
+		for (int k = 0; k < SAMPLES; k++)
+		{
+			statistics.onSample(samples[k]);
+
+			// Samples younger than the window, at most maxSamples of them
+			int from = k;
+
+			while (from > 0 && k - from + 1 < maxSamples && samples[k].timestampNanos - samples[from - 1].timestampNanos < window)
+			{
+				from--;
+			}
+
+			assertWindow(statistics.snapshot(snapshot), from, k + 1, samples[from].timestampNanos, samples[k].timestampNanos, k);
+		}
+	}
+
+	/**
+	 * Compares the snapshot with the statistics of samples[from, to), recomputed in two passes
+	 */
+	private void assertWindow(SampleStatistics.Snapshot snapshot, int from, int to, long start, long end, int k)
+	{
+		String after = " after sample " + k;
+
+		assertEquals(to - from, snapshot.getCount(), "Count" + after);
+		assertEquals(start, snapshot.getStartNanos(), "Start" + after);
+		assertEquals(end, snapshot.getEndNanos(), "End" + after);
+
+		for (SampleChannel channel : SampleChannel.values())
+		{
+			double min = Double.POSITIVE_INFINITY;
+			double max = Double.NEGATIVE_INFINITY;
+			double sum = 0;
+			double squares = 0;
+
+			for (int i = from; i < to; i++)
+			{
+				double x = channel.get(samples[i]);
+
+				min = Math.min(min, x);
+				max = Math.max(max, x);
+				sum += x;
+				squares += x * x;
+			}
+
+			double mean = sum / (to - from);
+			double deviations = 0;
+
+			for (int i = from; i < to; i++)
+			{
+				double d = channel.get(samples[i]) - mean;
+				deviations += d * d;
+			}
+
+			String label = " of " + channel + after;
+
+			assertEquals(min, snapshot.getMin(channel), "Min" + label);
+			assertEquals(max, snapshot.getMax(channel), "Max" + label);
+			assertEquals(mean, snapshot.getMean(channel), EPSILON, "Mean" + label);
+			assertEquals(deviations / (to - from), snapshot.getVariance(channel), EPSILON, "Variance" + label);
+			assertEquals(Math.sqrt(squares / (to - from)), snapshot.getRms(channel), EPSILON, "RMS" + label);
+		}
+	}
+
+	/**
+	 * Random values of both signs, timestamps mostly one period apart with jitter and a few long gaps (empty windows)
+	 */
+	private static Sample[] samples(long seed)
+	{
+		Random random = new Random(seed);
+		Sample[] samples = new Sample[SAMPLES];
+		long timestamp = 1_000_000_000L;
+
+		for (int i = 0; i < SAMPLES; i++)
+		{
+			timestamp += random.nextInt(50) == 0 ? PERIOD * (20 + random.nextInt(80)) : PERIOD / 2 + random.nextInt((int) PERIOD);
+
+			Sample sample = new Sample();
+			sample.timestampNanos = timestamp;
+			sample.shuntVoltage   = random.nextGaussian() * 0.02;
+			sample.busVoltage     = 5 + random.nextGaussian() * 0.1;
+			sample.current        = random.nextGaussian();
+			sample.power          = Math.abs(sample.current) * sample.busVoltage;
+
+			samples[i] = sample;
+		}
+
+		return samples;
+	}
+}
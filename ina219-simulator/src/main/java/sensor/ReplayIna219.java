@@ -0,0 +1,409 @@
+/**
+ * Simulated INA219 serving the registers of a SampleRecording, to run field captures through the unmodified driver
+ *
+ * Replay clock :
+ * - At speed 1 the records become current at their recorded pace, at speed N N times faster : a record is due at
+ *   start + (timestamp - first timestamp) / N, and the measurement registers hold the last record due, like the conversion
+ *   results of the real device. Records that come due between two reads are skipped.
+ * - At AS_FAST_AS_POSSIBLE (speed 0) every record is current until its power register is read, then the next one is :
+ *   each driver read cycle (readInto, readIntoIfReady) gets the next record.
+ * CNVR is set when a record became current since the last power register read, so CONVERSION_READY sampling and
+ * readIntoIfReady() see each replayed record once. The configuration and calibration registers start with the recorded values
+ * and accept writes, which do not change the replayed values.
+ *
+ * @author Alexandre Scieux
+ * @version 1.0
+ */
+
+package sensor;
+
+import java.io.IOException;
+
+public class ReplayIna219 extends SimulatedI2CDevice
+{
+	/* Speed replaying the records back to back, one per read cycle */
+	public static final double AS_FAST_AS_POSSIBLE = 0;
+
+	private static final int reg_config             = Ina219.Registers.INA219_REG_CONFIG.getValue();
+	private static final int reg_shuntvoltage       = Ina219.Registers.INA219_REG_SHUNTVOLTAGE.getValue();
+	private static final int reg_busvoltage         = Ina219.Registers.INA219_REG_BUSVOLTAGE.getValue();
+	private static final int reg_power              = Ina219.Registers.INA219_REG_POWER.getValue();
+	private static final int reg_current            = Ina219.Registers.INA219_REG_CURRENT.getValue();
+	private static final int reg_calibration        = Ina219.Registers.INA219_REG_CALIBRATION.getValue();
+
+	private final SampleRecording recording;
+	private final int address;
+	private final double speed;
+	private final boolean looping;
+
+	/* Recording timeline */
+	private final long size;
+	private final long firstTimestamp;
+	private final long loopNanos;
+
+	/* Registers written by the driver */
+	private int configuration;
+	private int calibration;
+
+	/* Replay position : current record, number of records made current, value of sequence at the last power register read */
+	private long startNanos;
+	private long position                           = -1;
+	private long sequence                           = 0;
+	private long consumed                           = 0;
+	private long consumedPosition                   = -1;
+	private long loops                              = 0;
+
+	/**
+	 * Replays the recording once, starting now
+	 * @param recording The recording, left open
+	 * @param speed     Replay speed (1 for real time, N for N times faster), AS_FAST_AS_POSSIBLE for one record per read cycle
+	 */
+	public ReplayIna219(SampleRecording recording, double speed)
+	{
+		this(recording, speed, false);
+	}
+
+	/**
+	 * @param recording The recording, left open
+	 * @param speed     Replay speed (1 for real time, N for N times faster), AS_FAST_AS_POSSIBLE for one record per read cycle
+	 * @param looping   True to start over after the last record (one mean record period after it), false to hold the last record
+	 */
+	public ReplayIna219(SampleRecording recording, double speed, boolean looping)
+	{
+		if (recording.size() == 0)
+		{
+			throw new IllegalArgumentException("Empty recording");
+		}
+
+		if (!(speed >= 0) || Double.isInfinite(speed))
+		{
+			throw new IllegalArgumentException("Replay speed out of range : " + speed);
+		}
+
+		this.recording      = recording;
+		this.address        = recording.getAddress();
+		this.speed          = speed;
+		this.looping        = looping;
+		this.size           = recording.size();
+		this.firstTimestamp = recording.getTimestampNanos(0);
+		this.configuration  = recording.getConfiguration().getValue();
+		this.calibration    = recording.getCalibration();
+
+		long duration = recording.getTimestampNanos(size - 1) - firstTimestamp;
+		this.loopNanos = scale(size > 1 ? duration + duration / (size - 1) : 0);
+
+		if (looping && speed != AS_FAST_AS_POSSIBLE && loopNanos <= 0)
+		{
+			throw new IllegalArgumentException("A real-time loop needs records spread over time");
+		}
+
+		restart();
+	}
+
+	/**
+	 * Starts the replay over from the first record, now
+	 */
+	public synchronized void restart()
+	{
+		startNanos       = System.nanoTime();
+		position         = -1;
+		sequence         = 0;
+		consumed         = 0;
+		consumedPosition = -1;
+		loops            = 0;
+
+		if (speed == AS_FAST_AS_POSSIBLE)
+		{
+			position = 0;
+			sequence = 1;
+		}
+		else
+		{
+			update(startNanos);
+		}
+	}
+
+	/**
+	 * @return Address of the recorded device
+	 */
+	@Override
+	public int getAddress()
+	{
+		return address;
+	}
+
+	/**
+	 * @return Replay speed, AS_FAST_AS_POSSIBLE for one record per read cycle
+	 */
+	public double getSpeed()
+	{
+		return speed;
+	}
+
+	/**
+	 * @return Index of the record currently served
+	 */
+	public synchronized long getPosition()
+	{
+		update(System.nanoTime());
+		return position;
+	}
+
+	/**
+	 * @return Number of records that became current since the start, including the skipped ones
+	 */
+	public synchronized long getReplayedCount()
+	{
+		update(System.nanoTime());
+		return sequence;
+	}
+
+	/**
+	 * @return Number of times the recording started over
+	 */
+	public synchronized long getLoopCount()
+	{
+		update(System.nanoTime());
+		return loops;
+	}
+
+	/**
+	 * @return True when the last record was served and read (never when looping)
+	 */
+	public synchronized boolean isFinished()
+	{
+		update(System.nanoTime());
+		return !looping && position == size - 1 && consumed == sequence;
+	}
+
+	/**
+	 * Reads a 16-bit register : the measurement registers of the current record, or the configuration and calibration registers
+	 * @param  register Register address
+	 * @return          Register content (0..65535)
+	 */
+	@Override
+	public synchronized int readRegister(int register)
+	{
+		update(System.nanoTime());
+		setPointer(register);
+
+		long record = Math.max(position, 0);
+
+		if (register == reg_config)
+		{
+			return configuration;
+		}
+		else if (register == reg_shuntvoltage)
+		{
+			return recording.getShuntVoltageRegister(record);
+		}
+		else if (register == reg_busvoltage)
+		{
+			int flags = recording.getBusVoltageRegister(record) & ~RegisterDecoder.BUS_VOLTAGE_CNVR;
+
+			return sequence > consumed ? flags | RegisterDecoder.BUS_VOLTAGE_CNVR : flags;
+		}
+		else if (register == reg_power)
+		{
+			int power = recording.getPowerRegister(record);
+			consume();
+
+			return power;
+		}
+		else if (register == reg_current)
+		{
+			return recording.getCurrentRegister(record);
+		}
+		else if (register == reg_calibration)
+		{
+			return calibration;
+		}
+
+		return 0;
+	}
+
+	/**
+	 * Writes the configuration or calibration register. The replayed values do not depend on them.
+	 * @param register Register address
+	 * @param value    Register content (0..65535)
+	 */
+	@Override
+	public synchronized void writeRegister(int register, int value)
+	{
+		setPointer(register);
+
+		if (register == reg_config)
+		{
+			configuration = ConfigRegister.of(value).isReset() ? ConfigRegister.DEFAULT.getValue() : value & 0xFFFF;
+		}
+		else if (register == reg_calibration)
+		{
+			// FS0 is a void bit
+			calibration = value & 0xFFFE;
+		}
+	}
+
+	/**
+	 * Reads the whole recording through the driver, each sample once, and hands the samples to the listener
+	 * Real-time replays wait until the next record is due. The samples are restamped with their recorded timestamp,
+	 * so downstream processing sees the original timeline whatever the speed. The driver is given the recorded configuration,
+	 * calibration and shunt resistance, so the samples are scaled as during the capture.
+	 * Returns at the end of the recording (never when looping), or when the calling thread is interrupted.
+	 * @param  ina219      Driver connected to this device
+	 * @param  listener    Destination of the samples
+	 * @return             Number of samples delivered
+	 * @throws IOException Input/Output Exception from the driver
+	 */
+	public long drive(Ina219 ina219, SampleListener listener) throws IOException
+	{
+		Sample sample = new Sample();
+		long count = 0;
+
+		// Recorded registers and shunt resistance : the driver decodes with the scale factors of the capture
+		ina219.setShuntOhms(recording.getScaling().getShuntOhms());
+		ina219.configure(Ina219Configuration.builder(recording.getConfiguration()).calibration(recording.getCalibration()).build());
+
+		while (!isFinished() && !Thread.currentThread().isInterrupted())
+		{
+			if (ina219.readIntoIfReady(sample))
+			{
+				sample.timestampNanos = recording.getTimestampNanos(getConsumedPosition());
+				listener.onSample(sample);
+				count++;
+			}
+			else
+			{
+				// Park, then spin the tail : records can be due every few microseconds at high speeds
+				Deadlines.awaitNanoTime(System.nanoTime() + nanosUntilNextRecord());
+			}
+		}
+
+		return count;
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("ReplayIna219[0x%02X, x%s]", address, speed == AS_FAST_AS_POSSIBLE ? "max" : Double.toString(speed));
+	}
+
+	/**
+	 * @return Record of the last power register read
+	 */
+	private synchronized long getConsumedPosition()
+	{
+		return consumedPosition;
+	}
+
+	/**
+	 * @return Time until the next record becomes current, in ns (0 if due, or when replaying as fast as possible)
+	 */
+	private synchronized long nanosUntilNextRecord()
+	{
+		if (speed == AS_FAST_AS_POSSIBLE)
+		{
+			return 0;
+		}
+
+		long next = position + 1;
+		long base = startNanos;
+
+		if (next == size)
+		{
+			if (!looping)
+			{
+				return 0;
+			}
+
+			next = 0;
+			base += loopNanos;
+		}
+
+		return Math.max(0, due(base, next) - System.nanoTime());
+	}
+
+	/**
+	 * Power register read : the current record is consumed, CNVR cleared. As fast as possible, the next record becomes current.
+	 */
+	private void consume()
+	{
+		consumed = sequence;
+		consumedPosition = Math.max(position, 0);
+
+		if (speed != AS_FAST_AS_POSSIBLE)
+		{
+			return;
+		}
+
+		if (position + 1 < size)
+		{
+			position++;
+			sequence++;
+		}
+		else if (looping)
+		{
+			position = 0;
+			sequence++;
+			loops++;
+		}
+	}
+
+	/**
+	 * Makes current the records due at the provided time
+	 * @param now Current time (System.nanoTime)
+	 */
+	private void update(long now)
+	{
+		if (speed == AS_FAST_AS_POSSIBLE)
+		{
+			return;
+		}
+
+		while (true)
+		{
+			long next = position + 1;
+			long base = startNanos;
+
+			if (next == size)
+			{
+				if (!looping)
+				{
+					return;
+				}
+
+				next = 0;
+				base += loopNanos;
+			}
+
+			if (now - due(base, next) < 0)
+			{
+				return;
+			}
+
+			if (next == 0 && position >= 0)
+			{
+				startNanos = base;
+				loops++;
+			}
+
+			position = next;
+			sequence++;
+		}
+	}
+
+	/**
+	 * @return Time at which a record becomes current (System.nanoTime)
+	 */
+	private long due(long base, long record)
+	{
+		return base + scale(recording.getTimestampNanos(record) - firstTimestamp);
+	}
+
+	/**
+	 * @return Recorded duration scaled to the replay speed
+	 */
+	private long scale(long recordedNanos)
+	{
+		return speed == AS_FAST_AS_POSSIBLE ? 0 : (long) (recordedNanos / speed);
+	}
+}
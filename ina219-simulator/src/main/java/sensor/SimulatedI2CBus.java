@@ -0,0 +1,94 @@
+/**
+ * In-memory I2C bus handing out simulated devices
+ *
+ * SimulatedI2CBus bus = new SimulatedI2CBus(1);
+ * SimulatedIna219 device = bus.addIna219(0x40);
+ * Ina219 ina219 = new Ina219(Pi4jTransport.open(bus, 0x40));
+ *
+ * @author Alexandre Scieux
+ * @version 1.0
+ */
+
+package sensor;
+
+import com.pi4j.io.i2c.I2CBus;
+import com.pi4j.io.i2c.I2CDevice;
+
+import java.io.IOException;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class SimulatedI2CBus implements I2CBus
+{
+	private final int busNumber;
+	private final Map<Integer, I2CDevice> devices = new ConcurrentHashMap<>();
+
+	/**
+	 * @param busNumber Number of the simulated bus
+	 */
+	public SimulatedI2CBus(int busNumber)
+	{
+		this.busNumber = busNumber;
+	}
+
+	/**
+	 * Connects a simulated INA219 to the bus
+	 * @param  address Address of the device on the bus
+	 * @return         The simulated device
+	 */
+	public SimulatedIna219 addIna219(int address)
+	{
+		SimulatedIna219 device = new SimulatedIna219(address);
+		addDevice(address, device);
+
+		return device;
+	}
+
+	/**
+	 * Connects a device to the bus
+	 * @param address Address of the device on the bus
+	 * @param device  The device
+	 */
+	public void addDevice(int address, I2CDevice device)
+	{
+		if (devices.putIfAbsent(address, device) != null)
+		{
+			throw new IllegalStateException(String.format("Address 0x%02X already in use on bus %d", address, busNumber));
+		}
+	}
+
+	@Override
+	public I2CDevice getDevice(int address) throws IOException
+	{
+		I2CDevice device = devices.get(address);
+
+		if (device == null)
+		{
+			throw new IOException(String.format("No device at address 0x%02X on bus %d", address, busNumber));
+		}
+
+		return device;
+	}
+
+	public int getBusNumber()
+	{
+		return busNumber;
+	}
+
+	public String getFileName()
+	{
+		return "simulated-i2c-" + busNumber;
+	}
+
+	public int getFileDescriptor()
+	{
+		return -1;
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		devices.clear();
+	}
+}
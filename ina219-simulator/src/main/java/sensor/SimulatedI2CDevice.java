@@ -0,0 +1,146 @@
+/**
+ * Base of the simulated devices : maps the Pi4J I2CDevice byte-level calls onto 16-bit register reads and writes
+ * A device implements the I2CTransport register access, and can then be used directly as a transport or through a SimulatedI2CBus.
+ * Reads and writes are serialized on the device instance.
+ *
+ * @author Alexandre Scieux
+ * @version 1.0
+ */
+
+package sensor;
+
+import com.pi4j.io.i2c.I2CDevice;
+
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+public abstract class SimulatedI2CDevice implements I2CDevice, I2CTransport
+{
+	/* Register addressed by the last pointer write */
+	private int pointer = 0;
+
+	@Override
+	public int read(int address, byte[] buffer, int offset, int size) throws IOException
+	{
+		return readBytes(readRegister(address), buffer, offset, size);
+	}
+
+	@Override
+	public void write(int address, byte[] buffer, int offset, int size) throws IOException
+	{
+		if (size < 2)
+		{
+			// Pointer write only
+			setPointer(address);
+			return;
+		}
+
+		writeRegister(address, ((buffer[offset] & 0xFF) << 8) | (buffer[offset + 1] & 0xFF));
+	}
+
+	@Override
+	public void write(byte b) throws IOException
+	{
+		setPointer(b & 0xFF);
+	}
+
+	@Override
+	public void write(byte[] buffer, int offset, int size) throws IOException
+	{
+		if (size > 0)
+		{
+			write(buffer[offset] & 0xFF, buffer, offset + 1, size - 1);
+		}
+	}
+
+	public void write(byte[] buffer) throws IOException
+	{
+		write(buffer, 0, buffer.length);
+	}
+
+	@Override
+	public void write(int address, byte b) throws IOException
+	{
+		// Registers are 16 bits wide, a single data byte is not latched
+		setPointer(address);
+	}
+
+	public void write(int address, byte[] buffer) throws IOException
+	{
+		write(address, buffer, 0, buffer.length);
+	}
+
+	@Override
+	public int read() throws IOException
+	{
+		return (readRegister(currentPointer()) >>> 8) & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] buffer, int offset, int size) throws IOException
+	{
+		return readBytes(readRegister(currentPointer()), buffer, offset, size);
+	}
+
+	@Override
+	public int read(int address) throws IOException
+	{
+		return (readRegister(address) >>> 8) & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] writeBuffer, int writeOffset, int writeSize, byte[] readBuffer, int readOffset, int readSize) throws IOException
+	{
+		if (writeSize > 0)
+		{
+			setPointer(writeBuffer[writeOffset] & 0xFF);
+		}
+
+		return read(readBuffer, readOffset, readSize);
+	}
+
+	public void ioctl(long command, int value) throws IOException
+	{
+		throw new IOException("ioctl not supported by " + this);
+	}
+
+	public void ioctl(long command, ByteBuffer data, IntBuffer offsets) throws IOException
+	{
+		throw new IOException("ioctl not supported by " + this);
+	}
+
+	/**
+	 * Selects the register addressed by the following byte reads
+	 * @param register Register address
+	 */
+	protected synchronized void setPointer(int register)
+	{
+		pointer = register;
+	}
+
+	/**
+	 * @return Register addressed by the last pointer write
+	 */
+	protected synchronized int currentPointer()
+	{
+		return pointer;
+	}
+
+	private static int readBytes(int register, byte[] buffer, int offset, int size)
+	{
+		// MSB first
+		if (size > 0)
+		{
+			buffer[offset] = (byte) (register >>> 8);
+		}
+
+		if (size > 1)
+		{
+			buffer[offset + 1] = (byte) register;
+		}
+
+		return Math.min(size, 2);
+	}
+}
@@ -0,0 +1,356 @@
+/**
+ * In-memory INA219 implementing the Pi4J I2CDevice interface
+ * Lets the driver run unmodified without a Raspberry Pi : pass it to the driver as an I2CTransport, or hand it out through a SimulatedI2CBus
+ *
+ * Register model (datasheet, section 8.6) :
+ * - Shunt and bus voltage inputs are set with setShuntVoltage() / setBusVoltage() and sampled at the end of each conversion
+ * - Shunt voltage is clipped to the PGA range, bus voltage to the BRNG range
+ * - Current = (Shunt voltage x Calibration) / 4096, Power = (Current x Bus voltage) / 5000, OVF when out of range
+ * - Conversion times follow the BADC / SADC settings, CNVR is set at the end of a conversion and cleared by reading the power register or writing the configuration register
+ * - Triggered modes convert once per configuration write, continuous modes convert back to back
+ * - Setting RST restores the power-on values of all registers
+ *
+ * An optional per-transaction latency mimics the time spent on a 100 kHz / 400 kHz bus.
+ *
+ * @author Alexandre Scieux
+ * @version 1.0
+ */
+
+package sensor;
+
+public class SimulatedIna219 extends SimulatedI2CDevice
+{
+	/* I2C clock frequencies */
+	public static final int STANDARD_MODE_HZ       = 100000;
+	public static final int FAST_MODE_HZ           = 400000;
+
+	/* Bits on the wire : start + address + pointer, repeated start + address + 2 data bytes + stop (9 bits per byte with ACK) */
+	private static final int read_transaction_bits  = 2 + 9 * 5;
+	/* Bits on the wire : start + address + pointer + 2 data bytes + stop */
+	private static final int write_transaction_bits = 2 + 9 * 4;
+
+	private static final int reg_config             = Ina219.Registers.INA219_REG_CONFIG.getValue();
+	private static final int reg_shuntvoltage       = Ina219.Registers.INA219_REG_SHUNTVOLTAGE.getValue();
+	private static final int reg_busvoltage         = Ina219.Registers.INA219_REG_BUSVOLTAGE.getValue();
+	private static final int reg_power              = Ina219.Registers.INA219_REG_POWER.getValue();
+	private static final int reg_current            = Ina219.Registers.INA219_REG_CURRENT.getValue();
+	private static final int reg_calibration        = Ina219.Registers.INA219_REG_CALIBRATION.getValue();
+
+	private final int address;
+
+	/* Analog inputs */
+	private volatile double shuntVoltage            = 0;
+	private volatile double busVoltage              = 0;
+
+	/* Registers */
+	private ConfigRegister configuration            = ConfigRegister.DEFAULT;
+	private int calibration                         = 0;
+	private int shuntVoltageCounts                  = 0;
+	private int busVoltageCounts                    = 0;
+	private int current                             = 0;
+	private int power                               = 0;
+	private boolean conversionReady                 = false;
+	private boolean overflow                        = false;
+
+	/* Conversion timing */
+	private long conversionStartNanos               = System.nanoTime();
+	private long conversionTimeNanos                = 0;
+	private boolean converting                      = false;
+
+	/* Bus timing */
+	private long readLatencyNanos                   = 0;
+	private long writeLatencyNanos                  = 0;
+
+	/* Statistics */
+	private long reads                              = 0;
+	private long writes                             = 0;
+	private long conversions                        = 0;
+
+	/**
+	 * @param address Address of the simulated device on the I2C bus
+	 */
+	public SimulatedIna219(int address)
+	{
+		this.address = address;
+
+		startConversions(System.nanoTime());
+	}
+
+	/**
+	 * @return Address of the simulated device on the I2C bus
+	 */
+	@Override
+	public int getAddress()
+	{
+		return address;
+	}
+
+	/**
+	 * Sets the differential voltage applied between Vin+ and Vin-
+	 * @param volts Shunt voltage in V
+	 */
+	public void setShuntVoltage(double volts)
+	{
+		this.shuntVoltage = volts;
+	}
+
+	/**
+	 * Sets the voltage applied between Vin- and GND
+	 * @param volts Bus voltage in V
+	 */
+	public void setBusVoltage(double volts)
+	{
+		this.busVoltage = volts;
+	}
+
+	/**
+	 * Sets the load seen by the simulated device from a shunt resistor and a current
+	 * @param amps      Current flowing through the shunt in A
+	 * @param shuntOhms Shunt resistance in Ohm
+	 */
+	public void setLoad(double amps, double shuntOhms)
+	{
+		this.shuntVoltage = amps * shuntOhms;
+	}
+
+	/**
+	 * Mimics the duration of the I2C transfers
+	 * @param hz I2C clock frequency (STANDARD_MODE_HZ, FAST_MODE_HZ ...), 0 for instantaneous transfers
+	 */
+	public synchronized void setClockFrequency(int hz)
+	{
+		if (hz < 0)
+		{
+			throw new IllegalArgumentException("Clock frequency out of range : " + hz);
+		}
+
+		this.readLatencyNanos  = hz == 0 ? 0 : read_transaction_bits * 1000000000L / hz;
+		this.writeLatencyNanos = hz == 0 ? 0 : write_transaction_bits * 1000000000L / hz;
+	}
+
+	/**
+	 * Mimics the duration of the I2C transfers with explicit values
+	 * @param readNanos  Duration of a register read in ns
+	 * @param writeNanos Duration of a register write in ns
+	 */
+	public synchronized void setTransactionLatency(long readNanos, long writeNanos)
+	{
+		this.readLatencyNanos  = readNanos;
+		this.writeLatencyNanos = writeNanos;
+	}
+
+	/**
+	 * @return Number of register reads served
+	 */
+	public synchronized long getReadCount()
+	{
+		return reads;
+	}
+
+	/**
+	 * @return Number of register writes served
+	 */
+	public synchronized long getWriteCount()
+	{
+		return writes;
+	}
+
+	/**
+	 * @return Number of completed conversions
+	 */
+	public synchronized long getConversionCount()
+	{
+		update(System.nanoTime());
+		return conversions;
+	}
+
+	/**
+	 * Reads a 16-bit register, the way the INA219 answers a pointer write followed by a 2-byte read
+	 * @param  register Register address
+	 * @return          Register content (0..65535)
+	 */
+	@Override
+	public synchronized int readRegister(int register)
+	{
+		busDelay(readLatencyNanos);
+		update(System.nanoTime());
+
+		reads++;
+		setPointer(register);
+
+		if (register == reg_config)
+		{
+			return configuration.getValue();
+		}
+		else if (register == reg_shuntvoltage)
+		{
+			return shuntVoltageCounts & 0xFFFF;
+		}
+		else if (register == reg_busvoltage)
+		{
+			return (busVoltageCounts << 3) | (conversionReady ? RegisterDecoder.BUS_VOLTAGE_CNVR : 0) | (overflow ? RegisterDecoder.BUS_VOLTAGE_OVF : 0);
+		}
+		else if (register == reg_power)
+		{
+			// Reading the power register clears CNVR
+			conversionReady = false;
+			return power;
+		}
+		else if (register == reg_current)
+		{
+			return current & 0xFFFF;
+		}
+		else if (register == reg_calibration)
+		{
+			return calibration;
+		}
+
+		return 0;
+	}
+
+	/**
+	 * Writes a 16-bit register
+	 * Measurement registers are read-only and ignore writes
+	 * @param register Register address
+	 * @param value    Register content (0..65535)
+	 */
+	@Override
+	public synchronized void writeRegister(int register, int value)
+	{
+		busDelay(writeLatencyNanos);
+
+		long now = System.nanoTime();
+		update(now);
+
+		writes++;
+		setPointer(register);
+
+		if (register == reg_config)
+		{
+			ConfigRegister written = ConfigRegister.of(value);
+
+			if (written.isReset())
+			{
+				reset();
+			}
+			else
+			{
+				configuration = written;
+			}
+
+			// Writing the configuration register clears CNVR and restarts the conversions
+			conversionReady = false;
+			startConversions(now);
+		}
+		else if (register == reg_calibration)
+		{
+			// FS0 is a void bit
+			calibration = value & 0xFFFE;
+		}
+	}
+
+	/**
+	 * Power-on reset
+	 */
+	private void reset()
+	{
+		configuration      = ConfigRegister.DEFAULT;
+		calibration        = 0;
+		shuntVoltageCounts = 0;
+		busVoltageCounts   = 0;
+		current            = 0;
+		power              = 0;
+		overflow           = false;
+	}
+
+	private void startConversions(long now)
+	{
+		conversionStartNanos = now;
+		conversionTimeNanos  = configuration.getConversionTimeMicros() * 1000L;
+		converting           = conversionTimeNanos > 0;
+	}
+
+	/**
+	 * Completes the conversions due at the provided time
+	 * @param now Current time (System.nanoTime)
+	 */
+	private void update(long now)
+	{
+		if (!converting || now - conversionStartNanos < conversionTimeNanos)
+		{
+			return;
+		}
+
+		convert();
+
+		if (configuration.isContinuous())
+		{
+			// Skip the conversions nobody looked at, the registers only hold the last one
+			long elapsed = now - conversionStartNanos;
+			conversionStartNanos += elapsed - elapsed % conversionTimeNanos;
+		}
+		else
+		{
+			converting = false;
+		}
+	}
+
+	/**
+	 * Latches the analog inputs into the measurement registers
+	 */
+	private void convert()
+	{
+		int mode = configuration.getValue() & Ina219.OperatingMode.INA219_CONFIG_MODE_MASK.getValue();
+
+		// Shunt voltage, clipped to the PGA range (40 mV x 2^PG)
+		if ((mode & 0x1) != 0)
+		{
+			int range = 4000 << configuration.getGainBits();
+			shuntVoltageCounts = (int) Math.max(-range, Math.min(range, Math.round(shuntVoltage / RegisterDecoder.SHUNT_VOLTAGE_LSB_V)));
+		}
+
+		// Bus voltage, clipped to the BRNG range (16 V / 32 V)
+		if ((mode & 0x2) != 0)
+		{
+			int range = configuration.getBusVoltageRange() == Ina219.BusVoltageRange.INA219_CONFIG_BVOLTAGERANGE_16V ? 4000 : 8000;
+			busVoltageCounts = (int) Math.max(0, Math.min(range, Math.round(busVoltage / RegisterDecoder.BUS_VOLTAGE_LSB_V)));
+		}
+
+		// Current and power calculations (datasheet, equations 4 and 5)
+		long currentCounts = (long) shuntVoltageCounts * calibration / 4096;
+		long powerCounts   = Math.abs(currentCounts) * busVoltageCounts / 5000;
+
+		overflow = currentCounts > Short.MAX_VALUE || currentCounts < Short.MIN_VALUE || powerCounts > 0xFFFF;
+
+		current = (int) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, currentCounts));
+		power   = (int) Math.min(0xFFFF, powerCounts);
+
+		conversionReady = true;
+		conversions++;
+	}
+
+	/**
+	 * Busy-waits for the duration of a bus transfer
+	 * @param nanos Transfer duration in ns
+	 */
+	private static void busDelay(long nanos)
+	{
+		if (nanos <= 0)
+		{
+			return;
+		}
+
+		long deadline = System.nanoTime() + nanos;
+
+		while (System.nanoTime() - deadline < 0)
+		{
+			Thread.onSpinWait();
+		}
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("SimulatedIna219[0x%02X]", address);
+	}
+}
@@ -0,0 +1,206 @@
+/**
+ * Checks the I2CBusScheduler queue on simulated devices : identical queued reads sharing one transfer, a queued write
+ * keeping the reads around it apart, and close() failing the transfers still queued.
+ * A gate device holds the owner thread on its first transfer, so the transfers under test stay queued.
+ *
+ * @author Alexandre Scieux
+ * @version 1.0
+ */
+
+package sensor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class I2CBusSchedulerTest
+{
+	private static final int ADDRESS         = Ina219.Registers.INA219_I2C_ADDRESS.getValue();
+	private static final int REG_CALIBRATION = Ina219.Registers.INA219_REG_CALIBRATION.getValue();
+	private static final long TIMEOUT_MILLIS = 10_000;
+
+	private I2CBusScheduler scheduler;
+	private ExecutorService callers;
+	private Gate gate;
+
+	/**
+	 * Device whose first transfer blocks the owner thread until released
+	 */
+	private static final class Gate implements I2CTransport
+	{
+		private final CountDownLatch entered = new CountDownLatch(1);
+		private final CountDownLatch release = new CountDownLatch(1);
+
+		@Override
+		public int getAddress()
+		{
+			return ADDRESS + 1;
+		}
+
+		@Override
+		public int readRegister(int register) throws IOException
+		{
+			entered.countDown();
+
+			try
+			{
+				if (!release.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS))
+				{
+					throw new IOException("Gate never released");
+				}
+			}
+			catch (InterruptedException ie)
+			{
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted at the gate", ie);
+			}
+
+			return 0;
+		}
+
+		@Override
+		public void writeRegister(int register, int value)
+		{
+		}
+	}
+
+	@BeforeEach
+	void setUp() throws InterruptedException
+	{
+		scheduler = new I2CBusScheduler("test", 16);
+		callers   = Executors.newCachedThreadPool();
+		gate      = new Gate();
+
+		// Holds the owner thread : everything submitted from now on waits in the queue
+		I2CTransport gated = scheduler.transport(gate);
+		callers.submit(() -> gated.readRegister(0));
+		assertTrue(gate.entered.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS), "Owner thread never reached the gate");
+	}
+
+	@AfterEach
+	void tearDown()
+	{
+		gate.release.countDown();
+		scheduler.close();
+		callers.shutdownNow();
+	}
+
+	@Test
+	void identicalQueuedReadsShareOneTransfer() throws Exception
+	{
+		SimulatedIna219 device = new SimulatedIna219(ADDRESS);
+		device.writeRegister(REG_CALIBRATION, 4096);
+
+		I2CTransport transport = scheduler.transport(device);
+
+		Future<Integer> first  = submitRead(transport, REG_CALIBRATION, 2);
+		Future<Integer> second = submitRead(transport, REG_CALIBRATION, 3);
+
+		assertEquals(1, scheduler.getQueueDepth(), "Queued transfers");
+
+		gate.release.countDown();
+
+		assertEquals(4096, result(first));
+		assertEquals(4096, result(second));
+		assertEquals(1, device.getReadCount(), "Reads issued to the device");
+		assertEquals(1, scheduler.getCoalescedCount(), "Coalesced reads");
+		assertEquals(2, scheduler.getTransferCount(), "Transfers, gate included");
+	}
+
+	@Test
+	void writeBetweenReadsKeepsThemApart() throws Exception
+	{
+		SimulatedIna219 device = new SimulatedIna219(ADDRESS);
+		device.writeRegister(REG_CALIBRATION, 4096);
+
+		I2CTransport transport = scheduler.transport(device);
+
+		Future<Integer> before = submitRead(transport, REG_CALIBRATION, 2);
+		Future<Integer> write  = callers.submit(() ->
+		{
+			transport.writeRegister(REG_CALIBRATION, 8192);
+			return 0;
+		});
+		awaitCondition(() -> scheduler.getSubmittedCount() == 3, "Write never queued");
+		Future<Integer> after  = submitRead(transport, REG_CALIBRATION, 4);
+
+		assertEquals(3, scheduler.getQueueDepth(), "Queued transfers");
+
+		gate.release.countDown();
+
+		assertEquals(4096, result(before), "Read queued before the write");
+		result(write);
+		assertEquals(8192, result(after), "Read queued after the write");
+		assertEquals(2, device.getReadCount(), "Reads issued to the device");
+		assertEquals(0, scheduler.getCoalescedCount(), "Coalesced reads");
+	}
+
+	@Test
+	void closeFailsQueuedTransfers() throws Exception
+	{
+		SimulatedIna219 device = new SimulatedIna219(ADDRESS);
+		I2CTransport transport = scheduler.transport(device);
+
+		Future<Integer> queued = submitRead(transport, REG_CALIBRATION, 2);
+
+		Thread closer = new Thread(scheduler::close);
+		closer.start();
+
+		// close() has marked the scheduler closed once it waits for the owner thread
+		awaitCondition(() -> closer.getState() == Thread.State.WAITING, "close() never waited for the owner thread");
+
+		gate.release.countDown();
+		closer.join(TIMEOUT_MILLIS);
+
+		ExecutionException failure = assertThrows(ExecutionException.class, () -> queued.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+		assertTrue(failure.getCause() instanceof IOException, "Queued read failure : " + failure.getCause());
+		assertEquals(0, device.getReadCount(), "Reads issued to the device");
+
+		assertThrows(IOException.class, () -> transport.readRegister(REG_CALIBRATION), "Read submitted after close()");
+	}
+
+	/**
+	 * Submits a read from another thread and waits until the scheduler has taken it
+	 */
+	private Future<Integer> submitRead(I2CTransport transport, int register, long submitted) throws InterruptedException
+	{
+		Future<Integer> read = callers.submit(() -> transport.readRegister(register));
+		awaitCondition(() -> scheduler.getSubmittedCount() == submitted, "Read never queued");
+
+		return read;
+	}
+
+	private static int result(Future<Integer> future) throws Exception
+	{
+		return future.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	private static void awaitCondition(BooleanSupplier condition, String message) throws InterruptedException
+	{
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MILLIS);
+
+		while (!condition.getAsBoolean())
+		{
+			if (System.nanoTime() > deadline)
+			{
+				fail(message);
+			}
+
+			Thread.sleep(1);
+		}
+	}
+}
@@ -0,0 +1,79 @@
+/**
+ * Checks that a listener throwing from onSample() neither stops an Ina219Sampler nor keeps the samples from the other
+ * listeners : the failures are counted and reported to the driver diagnostics
+ *
+ * @author Alexandre Scieux
+ * @version 1.0
+ */
+
+package sensor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+class SamplerListenerTest
+{
+	private static final int ADDRESS = Ina219.Registers.INA219_I2C_ADDRESS.getValue();
+
+	@Test
+	void failingListenerKeepsSamplerRunning() throws IOException, InterruptedException
+	{
+		SimulatedIna219 device = new SimulatedIna219(ADDRESS);
+		device.setLoad(0.5, 0.1);
+		device.setBusVoltage(5.0);
+
+		AtomicInteger errors = new AtomicInteger();
+		AtomicReference<Throwable> reported = new AtomicReference<>();
+
+		Ina219 ina219 = new Ina219(device);
+		ina219.setDiagnosticSink(new DiagnosticSink()
+		{
+			@Override
+			public boolean isEnabled(Level level)
+			{
+				return level == Level.ERROR;
+			}
+
+			@Override
+			public void log(Level level, String message, Throwable cause)
+			{
+				errors.incrementAndGet();
+				reported.set(cause);
+			}
+		});
+
+		Ina219Sampler sampler = new Ina219Sampler(ina219, new SampleRingBuffer(64));
+		CountDownLatch received = new CountDownLatch(5);
+
+		sampler.addListener(sample ->
+		{
+			throw new IllegalStateException("Listener failure");
+		});
+		sampler.addListener(sample -> received.countDown());
+
+		sampler.start();
+
+		try
+		{
+			assertTrue(received.await(10, TimeUnit.SECONDS), "Samples never reached the second listener");
+			assertTrue(sampler.isRunning(), "Sampler stopped");
+		}
+		finally
+		{
+			sampler.stop();
+		}
+
+		assertTrue(sampler.getListenerErrorCount() >= 5, "Listener errors counted : " + sampler.getListenerErrorCount());
+		assertEquals(sampler.getListenerErrorCount(), errors.get(), "Listener errors reported");
+		assertTrue(reported.get() instanceof IllegalStateException, "Reported cause : " + reported.get());
+		assertEquals(0, sampler.getErrorCount(), "Read errors");
+	}
+}
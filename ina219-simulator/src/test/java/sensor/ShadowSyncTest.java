@@ -0,0 +1,94 @@
+/**
+ * Checks that a driver decodes with the registers of the device, not with the power-on shadow copies : a new driver on a
+ * device calibrated beforehand, and a driver replaying a recording after it was given other settings.
+ *
+ * @author Alexandre Scieux
+ * @version 1.0
+ */
+
+package sensor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+
+class ShadowSyncTest
+{
+	private static final int ADDRESS        = Ina219.Registers.INA219_I2C_ADDRESS.getValue();
+	private static final double SHUNT_OHMS  = 0.1;
+	private static final double LOAD_AMPS   = 0.5;
+	private static final double BUS_VOLTS   = 5.0;
+
+	@Test
+	void newDriverDecodesAlreadyCalibratedDevice() throws IOException
+	{
+		SimulatedIna219 device = new SimulatedIna219(ADDRESS);
+		device.setLoad(LOAD_AMPS, SHUNT_OHMS);
+		device.setBusVoltage(BUS_VOLTS);
+
+		// Calibrated by a first driver (another process, a previous run)
+		new Ina219(device).calibrate(SHUNT_OHMS, 2.0);
+
+		Ina219 current = new Ina219(device);
+		current.setShuntOhms(SHUNT_OHMS);
+		assertEquals(LOAD_AMPS, current.read_current(), 1e-3, "read_current()");
+
+		Ina219 power = new Ina219(device);
+		power.setShuntOhms(SHUNT_OHMS);
+		assertEquals(LOAD_AMPS * BUS_VOLTS, power.read_power(), 1e-2, "read_power()");
+
+		Ina219 sample = new Ina219(device);
+		sample.setShuntOhms(SHUNT_OHMS);
+		Sample decoded = sample.readInto(new Sample());
+		assertEquals(LOAD_AMPS, decoded.getCurrent(), 1e-3, "readInto() current");
+		assertEquals(LOAD_AMPS * BUS_VOLTS, decoded.getPower(), 1e-2, "readInto() power");
+	}
+
+	@Test
+	void replayDecodesWithRecordedScaling() throws IOException
+	{
+		Ina219Calibration calibration = Ina219Calibration.compute(SHUNT_OHMS, 2.0);
+		ConfigRegister configuration = ConfigRegister.DEFAULT.withGain(calibration.getGain());
+		Path path = Files.createTempFile("ina219-replay", ".rec");
+
+		try
+		{
+			try (SampleRecordingWriter writer = SampleRecordingWriter.create(path, ADDRESS, configuration, calibration.getCalibration(), SHUNT_OHMS))
+			{
+				for (int i = 0; i < 10; i++)
+				{
+					writer.append(i * 1_000_000L, 5000, 1250 << 3, 16384, 2048);
+				}
+			}
+
+			try (SampleRecording recording = SampleRecording.open(path))
+			{
+				ReplayIna219 device = new ReplayIna219(recording, ReplayIna219.AS_FAST_AS_POSSIBLE);
+
+				// Settings of the driver unrelated to the capture
+				Ina219 ina219 = new Ina219(device);
+				ina219.setCalibration(1234);
+
+				double[] replayed = new double[1];
+				assertEquals(10L, device.drive(ina219, sample -> replayed[0] = sample.getCurrent()));
+
+				Ina219Scaling expected = recording.getScaling();
+				Ina219Scaling scaling  = ina219.getScaling();
+
+				assertEquals(expected.getConfiguration(), scaling.getConfiguration());
+				assertEquals(expected.getCalibration(), scaling.getCalibration(), "Calibration");
+				assertEquals(expected.getCurrentScale(), scaling.getCurrentScale(), 0, "Current scale");
+				assertEquals(expected.getPowerScale(), scaling.getPowerScale(), 0, "Power scale");
+				assertEquals(expected.current(16384), replayed[0], 1e-12, "Replayed current");
+			}
+		}
+		finally
+		{
+			Files.delete(path);
+		}
+	}
+}
@@ -0,0 +1,49 @@
+/**
+ * Checks that a triggered measurement keeps the settings of the device : a new driver only changes the operating mode
+ * of a device configured beforehand, whatever its shadow copies held
+ *
+ * @author Alexandre Scieux
+ * @version 1.0
+ */
+
+package sensor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+class TriggeredMeasurementTest
+{
+	private static final int ADDRESS    = Ina219.Registers.INA219_I2C_ADDRESS.getValue();
+	private static final int REG_CONFIG = Ina219.Registers.INA219_REG_CONFIG.getValue();
+
+	@Test
+	void measureOnceKeepsDeviceConfiguration() throws IOException
+	{
+		SimulatedIna219 device = new SimulatedIna219(ADDRESS);
+		device.setLoad(0.5, 0.1);
+		device.setBusVoltage(5.0);
+
+		// Configured beforehand (another process, a previous run) : none of these are the power-on settings
+		ConfigRegister configured = ConfigRegister.DEFAULT
+			.withBusVoltageRange(Ina219.BusVoltageRange.INA219_CONFIG_BVOLTAGERANGE_16V)
+			.withGain(Ina219.Gain.INA219_CONFIG_GAIN_2_80MV)
+			.withBusADCResolution(Ina219.BusADCResolution.INA219_CONFIG_BADCRES_9BIT)
+			.withShuntADCResolution(Ina219.ShuntADCResolution.INA219_CONFIG_SADCRES_12BIT_4S_2130US);
+		device.writeRegister(REG_CONFIG, configured.getValue());
+
+		Ina219 ina219 = new Ina219(device);
+		Sample sample = ina219.measureOnce(Ina219.OperatingMode.INA219_CONFIG_MODE_SANDBVOLT_TRIGGERED, new Sample());
+
+		ConfigRegister written = ConfigRegister.of(device.readRegister(REG_CONFIG));
+
+		assertEquals(configured.getBusVoltageRange(), written.getBusVoltageRange());
+		assertEquals(configured.getGain(), written.getGain());
+		assertEquals(configured.getBusADCResolution(), written.getBusADCResolution());
+		assertEquals(configured.getShuntADCResolution(), written.getShuntADCResolution());
+		assertEquals(Ina219.OperatingMode.INA219_CONFIG_MODE_SANDBVOLT_TRIGGERED, written.getOperatingMode());
+		assertEquals(5.0, sample.getBusVoltage(), 1e-9, "Bus voltage");
+	}
+}